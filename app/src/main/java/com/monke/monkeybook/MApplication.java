@@ -14,6 +14,7 @@ import androidx.appcompat.app.AppCompatDelegate;
 import com.jayway.jsonpath.Configuration;
 import com.jayway.jsonpath.Option;
 import com.monke.basemvplib.ContextHolder;
+import com.monke.basemvplib.HostRateLimiter;
 import com.monke.monkeybook.help.AppConfigHelper;
 import com.monke.monkeybook.help.Constant;
 import com.monke.monkeybook.help.CrashHandler;
@@ -93,6 +94,8 @@ public class MApplication extends Application {
 
         Configuration.defaultConfiguration().addOptions(Option.DEFAULT_PATH_LEAF_TO_NULL);
 
+        HostRateLimiter.getInstance().setRate(AppConfigHelper.get().getInt(getString(R.string.pk_host_rate_limit), 5));
+
         boolean nightTheme = AppConfigHelper.get().getPreferences().getBoolean("nightTheme", false);
         AppCompatDelegate.setDefaultNightMode(nightTheme ? AppCompatDelegate.MODE_NIGHT_YES : AppCompatDelegate.MODE_NIGHT_NO);
     }
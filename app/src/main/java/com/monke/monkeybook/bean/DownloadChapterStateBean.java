@@ -0,0 +1,95 @@
+package com.monke.monkeybook.bean;
+
+import org.greenrobot.greendao.annotation.Entity;
+import org.greenrobot.greendao.annotation.Id;
+import org.greenrobot.greendao.annotation.Keep;
+
+/**
+ * 下载任务中尚未完成的章节，下载成功后删除
+ */
+@Entity
+public class DownloadChapterStateBean {
+
+    public static final int STATE_PENDING = 0;
+    public static final int STATE_FAILED = 1;
+
+    @Id
+    private String id;
+    private String noteUrl;
+    private int chapterIndex;
+    private int state;
+    //已尝试下载的次数
+    private int attempts;
+    private String lastError;
+
+    @Keep
+    public DownloadChapterStateBean(String id, String noteUrl, int chapterIndex, int state,
+                                    int attempts, String lastError) {
+        this.id = id;
+        this.noteUrl = noteUrl;
+        this.chapterIndex = chapterIndex;
+        this.state = state;
+        this.attempts = attempts;
+        this.lastError = lastError;
+    }
+
+    @Keep
+    public DownloadChapterStateBean() {
+    }
+
+    public DownloadChapterStateBean(String noteUrl, int chapterIndex) {
+        this(buildId(noteUrl, chapterIndex), noteUrl, chapterIndex, STATE_PENDING, 0, null);
+    }
+
+    public static String buildId(String noteUrl, int chapterIndex) {
+        return noteUrl + "#" + chapterIndex;
+    }
+
+    public String getId() {
+        return this.id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public String getNoteUrl() {
+        return this.noteUrl;
+    }
+
+    public void setNoteUrl(String noteUrl) {
+        this.noteUrl = noteUrl;
+    }
+
+    public int getChapterIndex() {
+        return this.chapterIndex;
+    }
+
+    public void setChapterIndex(int chapterIndex) {
+        this.chapterIndex = chapterIndex;
+    }
+
+    public int getState() {
+        return this.state;
+    }
+
+    public void setState(int state) {
+        this.state = state;
+    }
+
+    public int getAttempts() {
+        return this.attempts;
+    }
+
+    public void setAttempts(int attempts) {
+        this.attempts = attempts;
+    }
+
+    public String getLastError() {
+        return this.lastError;
+    }
+
+    public void setLastError(String lastError) {
+        this.lastError = lastError;
+    }
+}
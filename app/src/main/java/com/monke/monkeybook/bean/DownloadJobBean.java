@@ -0,0 +1,115 @@
+package com.monke.monkeybook.bean;
+
+import org.greenrobot.greendao.annotation.Entity;
+import org.greenrobot.greendao.annotation.Id;
+import org.greenrobot.greendao.annotation.Keep;
+
+/**
+ * 持久化的下载任务，服务被杀死后据此恢复
+ */
+@Entity
+public class DownloadJobBean {
+
+    @Id
+    private String noteUrl;
+    private String name;
+    private String author;
+    private String tag;
+    private String coverUrl;
+    private int start;
+    private int end;
+    private long createTime;
+
+    @Keep
+    public DownloadJobBean(String noteUrl, String name, String author, String tag, String coverUrl,
+                           int start, int end, long createTime) {
+        this.noteUrl = noteUrl;
+        this.name = name;
+        this.author = author;
+        this.tag = tag;
+        this.coverUrl = coverUrl;
+        this.start = start;
+        this.end = end;
+        this.createTime = createTime;
+    }
+
+    @Keep
+    public DownloadJobBean() {
+    }
+
+    public static DownloadJobBean from(DownloadBookBean downloadBook) {
+        return new DownloadJobBean(downloadBook.getNoteUrl(), downloadBook.getName(), downloadBook.getAuthor(),
+                downloadBook.getTag(), downloadBook.getCoverUrl(), downloadBook.getStart(), downloadBook.getEnd(),
+                System.currentTimeMillis());
+    }
+
+    public DownloadBookBean toDownloadBook() {
+        DownloadBookBean downloadBook = new DownloadBookBean(name, author, tag, noteUrl, coverUrl, start, end);
+        downloadBook.setFinalDate(createTime);
+        return downloadBook;
+    }
+
+    public String getNoteUrl() {
+        return this.noteUrl;
+    }
+
+    public void setNoteUrl(String noteUrl) {
+        this.noteUrl = noteUrl;
+    }
+
+    public String getName() {
+        return this.name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+
+    public String getAuthor() {
+        return this.author;
+    }
+
+    public void setAuthor(String author) {
+        this.author = author;
+    }
+
+    public String getTag() {
+        return this.tag;
+    }
+
+    public void setTag(String tag) {
+        this.tag = tag;
+    }
+
+    public String getCoverUrl() {
+        return this.coverUrl;
+    }
+
+    public void setCoverUrl(String coverUrl) {
+        this.coverUrl = coverUrl;
+    }
+
+    public int getStart() {
+        return this.start;
+    }
+
+    public void setStart(int start) {
+        this.start = start;
+    }
+
+    public int getEnd() {
+        return this.end;
+    }
+
+    public void setEnd(int end) {
+        this.end = end;
+    }
+
+    public long getCreateTime() {
+        return this.createTime;
+    }
+
+    public void setCreateTime(long createTime) {
+        this.createTime = createTime;
+    }
+}
@@ -0,0 +1,39 @@
+package com.monke.monkeybook.bean;
+
+import java.util.List;
+
+/**
+ * 批量导入的进度，全部完成时带有新导入的书籍
+ */
+public class ImportProgressBean {
+    private int finished;
+    private int total;
+    private List<BookShelfBean> books;
+
+    public ImportProgressBean(int finished, int total) {
+        this.finished = finished;
+        this.total = total;
+    }
+
+    public ImportProgressBean(int total, List<BookShelfBean> books) {
+        this.finished = total;
+        this.total = total;
+        this.books = books;
+    }
+
+    public int getFinished() {
+        return finished;
+    }
+
+    public int getTotal() {
+        return total;
+    }
+
+    public boolean isComplete() {
+        return books != null;
+    }
+
+    public List<BookShelfBean> getBooks() {
+        return books;
+    }
+}
@@ -5,11 +5,14 @@ import android.text.TextUtils;
 import androidx.annotation.Nullable;
 
 import com.monke.monkeybook.help.Constant;
+import com.monke.monkeybook.help.FileCatalog;
 import com.monke.monkeybook.help.FileHelp;
 import com.monke.monkeybook.utils.StringUtils;
 
 import java.io.File;
 import java.io.Serializable;
+import java.text.CollationKey;
+import java.text.Collator;
 
 public class RipeFile implements Serializable {
 
@@ -22,6 +25,10 @@ public class RipeFile implements Serializable {
     private String path;
     private Boolean isDirectory;
     private Integer childCount;
+    private Long length;
+    private Long lastModified;
+    //按名称排序用的比较键
+    private transient CollationKey nameKey;
 
     public boolean isSelected() {
         return isSelected;
@@ -42,6 +49,19 @@ public class RipeFile implements Serializable {
         this.path = file.getAbsolutePath();
     }
 
+    /**
+     * 使用目录索引中的信息，避免再次读取文件属性
+     */
+    public void setEntry(FileCatalog.Entry entry) {
+        this.file = new File(entry.path);
+        this.path = entry.path;
+        this.name = entry.name;
+        this.isDirectory = entry.directory;
+        this.length = entry.length;
+        this.lastModified = entry.lastModified;
+        this.childCount = entry.childCount;
+    }
+
     public void setPath(String path) {
         this.path = path;
     }
@@ -55,7 +75,7 @@ public class RipeFile implements Serializable {
 
     public String getSize() {
         if (size == null && file != null) {
-            size = FileHelp.getFileSize(file.length());
+            size = FileHelp.getFileSize(getLength());
         }
         return size;
     }
@@ -63,11 +83,33 @@ public class RipeFile implements Serializable {
 
     public String getDate() {
         if (date == null && file != null) {
-            date = StringUtils.dateConvert(file.lastModified(), Constant.FORMAT_FILE_DATE);
+            date = StringUtils.dateConvert(getLastModified(), Constant.FORMAT_FILE_DATE);
         }
         return date;
     }
 
+    public long getLength() {
+        if (length == null && file != null) {
+            length = file.length();
+        }
+        return length == null ? 0 : length;
+    }
+
+    public long getLastModified() {
+        if (lastModified == null && file != null) {
+            lastModified = file.lastModified();
+        }
+        return lastModified == null ? 0 : lastModified;
+    }
+
+    public CollationKey getNameKey(Collator collator) {
+        if (nameKey == null) {
+            String name = getName();
+            nameKey = collator.getCollationKey(name == null ? "" : name);
+        }
+        return nameKey;
+    }
+
     public boolean isDirectory() {
         if (isDirectory == null && file != null) {
             isDirectory = file.isDirectory();
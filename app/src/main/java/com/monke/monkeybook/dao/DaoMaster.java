@@ -14,10 +14,10 @@ import org.greenrobot.greendao.identityscope.IdentityScopeType;
 
 // THIS CODE IS GENERATED BY greenDAO, DO NOT EDIT.
 /**
- * Master of DAO (schema version 92): knows all DAOs.
+ * Master of DAO (schema version 93): knows all DAOs.
  */
 public class DaoMaster extends AbstractDaoMaster {
-    public static final int SCHEMA_VERSION = 92;
+    public static final int SCHEMA_VERSION = 93;
 
     /** Creates underlying database table using DAOs. */
     public static void createAllTables(Database db, boolean ifNotExists) {
@@ -27,6 +27,8 @@ public class DaoMaster extends AbstractDaoMaster {
         BookSourceBeanDao.createTable(db, ifNotExists);
         ChapterBeanDao.createTable(db, ifNotExists);
         CookieBeanDao.createTable(db, ifNotExists);
+        DownloadChapterStateBeanDao.createTable(db, ifNotExists);
+        DownloadJobBeanDao.createTable(db, ifNotExists);
         ReplaceRuleBeanDao.createTable(db, ifNotExists);
         SearchBookBeanDao.createTable(db, ifNotExists);
         SearchHistoryBeanDao.createTable(db, ifNotExists);
@@ -40,6 +42,8 @@ public class DaoMaster extends AbstractDaoMaster {
         BookSourceBeanDao.dropTable(db, ifExists);
         ChapterBeanDao.dropTable(db, ifExists);
         CookieBeanDao.dropTable(db, ifExists);
+        DownloadChapterStateBeanDao.dropTable(db, ifExists);
+        DownloadJobBeanDao.dropTable(db, ifExists);
         ReplaceRuleBeanDao.dropTable(db, ifExists);
         SearchBookBeanDao.dropTable(db, ifExists);
         SearchHistoryBeanDao.dropTable(db, ifExists);
@@ -67,6 +71,8 @@ public class DaoMaster extends AbstractDaoMaster {
         registerDaoClass(BookSourceBeanDao.class);
         registerDaoClass(ChapterBeanDao.class);
         registerDaoClass(CookieBeanDao.class);
+        registerDaoClass(DownloadChapterStateBeanDao.class);
+        registerDaoClass(DownloadJobBeanDao.class);
         registerDaoClass(ReplaceRuleBeanDao.class);
         registerDaoClass(SearchBookBeanDao.class);
         registerDaoClass(SearchHistoryBeanDao.class);
@@ -14,6 +14,8 @@ import com.monke.monkeybook.bean.BookShelfBean;
 import com.monke.monkeybook.bean.BookSourceBean;
 import com.monke.monkeybook.bean.ChapterBean;
 import com.monke.monkeybook.bean.CookieBean;
+import com.monke.monkeybook.bean.DownloadChapterStateBean;
+import com.monke.monkeybook.bean.DownloadJobBean;
 import com.monke.monkeybook.bean.ReplaceRuleBean;
 import com.monke.monkeybook.bean.SearchBookBean;
 import com.monke.monkeybook.bean.SearchHistoryBean;
@@ -24,6 +26,8 @@ import com.monke.monkeybook.dao.BookShelfBeanDao;
 import com.monke.monkeybook.dao.BookSourceBeanDao;
 import com.monke.monkeybook.dao.ChapterBeanDao;
 import com.monke.monkeybook.dao.CookieBeanDao;
+import com.monke.monkeybook.dao.DownloadChapterStateBeanDao;
+import com.monke.monkeybook.dao.DownloadJobBeanDao;
 import com.monke.monkeybook.dao.ReplaceRuleBeanDao;
 import com.monke.monkeybook.dao.SearchBookBeanDao;
 import com.monke.monkeybook.dao.SearchHistoryBeanDao;
@@ -43,6 +47,8 @@ public class DaoSession extends AbstractDaoSession {
     private final DaoConfig bookSourceBeanDaoConfig;
     private final DaoConfig chapterBeanDaoConfig;
     private final DaoConfig cookieBeanDaoConfig;
+    private final DaoConfig downloadChapterStateBeanDaoConfig;
+    private final DaoConfig downloadJobBeanDaoConfig;
     private final DaoConfig replaceRuleBeanDaoConfig;
     private final DaoConfig searchBookBeanDaoConfig;
     private final DaoConfig searchHistoryBeanDaoConfig;
@@ -53,6 +59,8 @@ public class DaoSession extends AbstractDaoSession {
     private final BookSourceBeanDao bookSourceBeanDao;
     private final ChapterBeanDao chapterBeanDao;
     private final CookieBeanDao cookieBeanDao;
+    private final DownloadChapterStateBeanDao downloadChapterStateBeanDao;
+    private final DownloadJobBeanDao downloadJobBeanDao;
     private final ReplaceRuleBeanDao replaceRuleBeanDao;
     private final SearchBookBeanDao searchBookBeanDao;
     private final SearchHistoryBeanDao searchHistoryBeanDao;
@@ -79,6 +87,12 @@ public class DaoSession extends AbstractDaoSession {
         cookieBeanDaoConfig = daoConfigMap.get(CookieBeanDao.class).clone();
         cookieBeanDaoConfig.initIdentityScope(type);
 
+        downloadChapterStateBeanDaoConfig = daoConfigMap.get(DownloadChapterStateBeanDao.class).clone();
+        downloadChapterStateBeanDaoConfig.initIdentityScope(type);
+
+        downloadJobBeanDaoConfig = daoConfigMap.get(DownloadJobBeanDao.class).clone();
+        downloadJobBeanDaoConfig.initIdentityScope(type);
+
         replaceRuleBeanDaoConfig = daoConfigMap.get(ReplaceRuleBeanDao.class).clone();
         replaceRuleBeanDaoConfig.initIdentityScope(type);
 
@@ -94,6 +108,8 @@ public class DaoSession extends AbstractDaoSession {
         bookSourceBeanDao = new BookSourceBeanDao(bookSourceBeanDaoConfig, this);
         chapterBeanDao = new ChapterBeanDao(chapterBeanDaoConfig, this);
         cookieBeanDao = new CookieBeanDao(cookieBeanDaoConfig, this);
+        downloadChapterStateBeanDao = new DownloadChapterStateBeanDao(downloadChapterStateBeanDaoConfig, this);
+        downloadJobBeanDao = new DownloadJobBeanDao(downloadJobBeanDaoConfig, this);
         replaceRuleBeanDao = new ReplaceRuleBeanDao(replaceRuleBeanDaoConfig, this);
         searchBookBeanDao = new SearchBookBeanDao(searchBookBeanDaoConfig, this);
         searchHistoryBeanDao = new SearchHistoryBeanDao(searchHistoryBeanDaoConfig, this);
@@ -104,6 +120,8 @@ public class DaoSession extends AbstractDaoSession {
         registerDao(BookSourceBean.class, bookSourceBeanDao);
         registerDao(ChapterBean.class, chapterBeanDao);
         registerDao(CookieBean.class, cookieBeanDao);
+        registerDao(DownloadChapterStateBean.class, downloadChapterStateBeanDao);
+        registerDao(DownloadJobBean.class, downloadJobBeanDao);
         registerDao(ReplaceRuleBean.class, replaceRuleBeanDao);
         registerDao(SearchBookBean.class, searchBookBeanDao);
         registerDao(SearchHistoryBean.class, searchHistoryBeanDao);
@@ -116,6 +134,8 @@ public class DaoSession extends AbstractDaoSession {
         bookSourceBeanDaoConfig.clearIdentityScope();
         chapterBeanDaoConfig.clearIdentityScope();
         cookieBeanDaoConfig.clearIdentityScope();
+        downloadChapterStateBeanDaoConfig.clearIdentityScope();
+        downloadJobBeanDaoConfig.clearIdentityScope();
         replaceRuleBeanDaoConfig.clearIdentityScope();
         searchBookBeanDaoConfig.clearIdentityScope();
         searchHistoryBeanDaoConfig.clearIdentityScope();
@@ -145,6 +165,14 @@ public class DaoSession extends AbstractDaoSession {
         return cookieBeanDao;
     }
 
+    public DownloadChapterStateBeanDao getDownloadChapterStateBeanDao() {
+        return downloadChapterStateBeanDao;
+    }
+
+    public DownloadJobBeanDao getDownloadJobBeanDao() {
+        return downloadJobBeanDao;
+    }
+
     public ReplaceRuleBeanDao getReplaceRuleBeanDao() {
         return replaceRuleBeanDao;
     }
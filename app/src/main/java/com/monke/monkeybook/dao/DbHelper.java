@@ -36,7 +36,8 @@ public class DbHelper {
                     },
                     BookShelfBeanDao.class, BookInfoBeanDao.class, ChapterBeanDao.class,
                     SearchHistoryBeanDao.class, BookSourceBeanDao.class,
-                    ReplaceRuleBeanDao.class, BookmarkBeanDao.class, CookieBeanDao.class
+                    ReplaceRuleBeanDao.class, BookmarkBeanDao.class, CookieBeanDao.class,
+                    DownloadJobBeanDao.class, DownloadChapterStateBeanDao.class
             );
         }
     }
@@ -0,0 +1,160 @@
+package com.monke.monkeybook.dao;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteStatement;
+
+import org.greenrobot.greendao.AbstractDao;
+import org.greenrobot.greendao.Property;
+import org.greenrobot.greendao.internal.DaoConfig;
+import org.greenrobot.greendao.database.Database;
+import org.greenrobot.greendao.database.DatabaseStatement;
+
+import com.monke.monkeybook.bean.DownloadChapterStateBean;
+
+// THIS CODE IS GENERATED BY greenDAO, DO NOT EDIT.
+/** 
+ * DAO for table "DOWNLOAD_CHAPTER_STATE_BEAN".
+*/
+public class DownloadChapterStateBeanDao extends AbstractDao<DownloadChapterStateBean, String> {
+
+    public static final String TABLENAME = "DOWNLOAD_CHAPTER_STATE_BEAN";
+
+    /**
+     * Properties of entity DownloadChapterStateBean.<br/>
+     * Can be used for QueryBuilder and for referencing column names.
+     */
+    public static class Properties {
+        public final static Property Id = new Property(0, String.class, "id", true, "ID");
+        public final static Property NoteUrl = new Property(1, String.class, "noteUrl", false, "NOTE_URL");
+        public final static Property ChapterIndex = new Property(2, int.class, "chapterIndex", false, "CHAPTER_INDEX");
+        public final static Property State = new Property(3, int.class, "state", false, "STATE");
+        public final static Property Attempts = new Property(4, int.class, "attempts", false, "ATTEMPTS");
+        public final static Property LastError = new Property(5, String.class, "lastError", false, "LAST_ERROR");
+    }
+
+
+    public DownloadChapterStateBeanDao(DaoConfig config) {
+        super(config);
+    }
+    
+    public DownloadChapterStateBeanDao(DaoConfig config, DaoSession daoSession) {
+        super(config, daoSession);
+    }
+
+    /** Creates the underlying database table. */
+    public static void createTable(Database db, boolean ifNotExists) {
+        String constraint = ifNotExists? "IF NOT EXISTS ": "";
+        db.execSQL("CREATE TABLE " + constraint + "\"DOWNLOAD_CHAPTER_STATE_BEAN\" (" + //
+                "\"ID\" TEXT PRIMARY KEY NOT NULL ," + // 0: id
+                "\"NOTE_URL\" TEXT," + // 1: noteUrl
+                "\"CHAPTER_INDEX\" INTEGER NOT NULL ," + // 2: chapterIndex
+                "\"STATE\" INTEGER NOT NULL ," + // 3: state
+                "\"ATTEMPTS\" INTEGER NOT NULL ," + // 4: attempts
+                "\"LAST_ERROR\" TEXT);"); // 5: lastError
+    }
+
+    /** Drops the underlying database table. */
+    public static void dropTable(Database db, boolean ifExists) {
+        String sql = "DROP TABLE " + (ifExists ? "IF EXISTS " : "") + "\"DOWNLOAD_CHAPTER_STATE_BEAN\"";
+        db.execSQL(sql);
+    }
+
+    @Override
+    protected final void bindValues(DatabaseStatement stmt, DownloadChapterStateBean entity) {
+        stmt.clearBindings();
+ 
+        String id = entity.getId();
+        if (id != null) {
+            stmt.bindString(1, id);
+        }
+ 
+        String noteUrl = entity.getNoteUrl();
+        if (noteUrl != null) {
+            stmt.bindString(2, noteUrl);
+        }
+        stmt.bindLong(3, entity.getChapterIndex());
+        stmt.bindLong(4, entity.getState());
+        stmt.bindLong(5, entity.getAttempts());
+ 
+        String lastError = entity.getLastError();
+        if (lastError != null) {
+            stmt.bindString(6, lastError);
+        }
+    }
+
+    @Override
+    protected final void bindValues(SQLiteStatement stmt, DownloadChapterStateBean entity) {
+        stmt.clearBindings();
+ 
+        String id = entity.getId();
+        if (id != null) {
+            stmt.bindString(1, id);
+        }
+ 
+        String noteUrl = entity.getNoteUrl();
+        if (noteUrl != null) {
+            stmt.bindString(2, noteUrl);
+        }
+        stmt.bindLong(3, entity.getChapterIndex());
+        stmt.bindLong(4, entity.getState());
+        stmt.bindLong(5, entity.getAttempts());
+ 
+        String lastError = entity.getLastError();
+        if (lastError != null) {
+            stmt.bindString(6, lastError);
+        }
+    }
+
+    @Override
+    public String readKey(Cursor cursor, int offset) {
+        return cursor.isNull(offset + 0) ? null : cursor.getString(offset + 0);
+    }    
+
+    @Override
+    public DownloadChapterStateBean readEntity(Cursor cursor, int offset) {
+        DownloadChapterStateBean entity = new DownloadChapterStateBean( //
+            cursor.isNull(offset + 0) ? null : cursor.getString(offset + 0), // id
+            cursor.isNull(offset + 1) ? null : cursor.getString(offset + 1), // noteUrl
+            cursor.getInt(offset + 2), // chapterIndex
+            cursor.getInt(offset + 3), // state
+            cursor.getInt(offset + 4), // attempts
+            cursor.isNull(offset + 5) ? null : cursor.getString(offset + 5) // lastError
+        );
+        return entity;
+    }
+     
+    @Override
+    public void readEntity(Cursor cursor, DownloadChapterStateBean entity, int offset) {
+        entity.setId(cursor.isNull(offset + 0) ? null : cursor.getString(offset + 0));
+        entity.setNoteUrl(cursor.isNull(offset + 1) ? null : cursor.getString(offset + 1));
+        entity.setChapterIndex(cursor.getInt(offset + 2));
+        entity.setState(cursor.getInt(offset + 3));
+        entity.setAttempts(cursor.getInt(offset + 4));
+        entity.setLastError(cursor.isNull(offset + 5) ? null : cursor.getString(offset + 5));
+     }
+    
+    @Override
+    protected final String updateKeyAfterInsert(DownloadChapterStateBean entity, long rowId) {
+        return entity.getId();
+    }
+    
+    @Override
+    public String getKey(DownloadChapterStateBean entity) {
+        if(entity != null) {
+            return entity.getId();
+        } else {
+            return null;
+        }
+    }
+
+    @Override
+    public boolean hasKey(DownloadChapterStateBean entity) {
+        return entity.getId() != null;
+    }
+
+    @Override
+    protected final boolean isEntityUpdateable() {
+        return true;
+    }
+    
+}
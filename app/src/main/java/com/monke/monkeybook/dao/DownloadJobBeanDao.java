@@ -0,0 +1,188 @@
+package com.monke.monkeybook.dao;
+
+import android.database.Cursor;
+import android.database.sqlite.SQLiteStatement;
+
+import org.greenrobot.greendao.AbstractDao;
+import org.greenrobot.greendao.Property;
+import org.greenrobot.greendao.internal.DaoConfig;
+import org.greenrobot.greendao.database.Database;
+import org.greenrobot.greendao.database.DatabaseStatement;
+
+import com.monke.monkeybook.bean.DownloadJobBean;
+
+// THIS CODE IS GENERATED BY greenDAO, DO NOT EDIT.
+/** 
+ * DAO for table "DOWNLOAD_JOB_BEAN".
+*/
+public class DownloadJobBeanDao extends AbstractDao<DownloadJobBean, String> {
+
+    public static final String TABLENAME = "DOWNLOAD_JOB_BEAN";
+
+    /**
+     * Properties of entity DownloadJobBean.<br/>
+     * Can be used for QueryBuilder and for referencing column names.
+     */
+    public static class Properties {
+        public final static Property NoteUrl = new Property(0, String.class, "noteUrl", true, "NOTE_URL");
+        public final static Property Name = new Property(1, String.class, "name", false, "NAME");
+        public final static Property Author = new Property(2, String.class, "author", false, "AUTHOR");
+        public final static Property Tag = new Property(3, String.class, "tag", false, "TAG");
+        public final static Property CoverUrl = new Property(4, String.class, "coverUrl", false, "COVER_URL");
+        public final static Property Start = new Property(5, int.class, "start", false, "START");
+        public final static Property End = new Property(6, int.class, "end", false, "END");
+        public final static Property CreateTime = new Property(7, long.class, "createTime", false, "CREATE_TIME");
+    }
+
+
+    public DownloadJobBeanDao(DaoConfig config) {
+        super(config);
+    }
+    
+    public DownloadJobBeanDao(DaoConfig config, DaoSession daoSession) {
+        super(config, daoSession);
+    }
+
+    /** Creates the underlying database table. */
+    public static void createTable(Database db, boolean ifNotExists) {
+        String constraint = ifNotExists? "IF NOT EXISTS ": "";
+        db.execSQL("CREATE TABLE " + constraint + "\"DOWNLOAD_JOB_BEAN\" (" + //
+                "\"NOTE_URL\" TEXT PRIMARY KEY NOT NULL ," + // 0: noteUrl
+                "\"NAME\" TEXT," + // 1: name
+                "\"AUTHOR\" TEXT," + // 2: author
+                "\"TAG\" TEXT," + // 3: tag
+                "\"COVER_URL\" TEXT," + // 4: coverUrl
+                "\"START\" INTEGER NOT NULL ," + // 5: start
+                "\"END\" INTEGER NOT NULL ," + // 6: end
+                "\"CREATE_TIME\" INTEGER NOT NULL);"); // 7: createTime
+    }
+
+    /** Drops the underlying database table. */
+    public static void dropTable(Database db, boolean ifExists) {
+        String sql = "DROP TABLE " + (ifExists ? "IF EXISTS " : "") + "\"DOWNLOAD_JOB_BEAN\"";
+        db.execSQL(sql);
+    }
+
+    @Override
+    protected final void bindValues(DatabaseStatement stmt, DownloadJobBean entity) {
+        stmt.clearBindings();
+ 
+        String noteUrl = entity.getNoteUrl();
+        if (noteUrl != null) {
+            stmt.bindString(1, noteUrl);
+        }
+ 
+        String name = entity.getName();
+        if (name != null) {
+            stmt.bindString(2, name);
+        }
+ 
+        String author = entity.getAuthor();
+        if (author != null) {
+            stmt.bindString(3, author);
+        }
+ 
+        String tag = entity.getTag();
+        if (tag != null) {
+            stmt.bindString(4, tag);
+        }
+ 
+        String coverUrl = entity.getCoverUrl();
+        if (coverUrl != null) {
+            stmt.bindString(5, coverUrl);
+        }
+        stmt.bindLong(6, entity.getStart());
+        stmt.bindLong(7, entity.getEnd());
+        stmt.bindLong(8, entity.getCreateTime());
+    }
+
+    @Override
+    protected final void bindValues(SQLiteStatement stmt, DownloadJobBean entity) {
+        stmt.clearBindings();
+ 
+        String noteUrl = entity.getNoteUrl();
+        if (noteUrl != null) {
+            stmt.bindString(1, noteUrl);
+        }
+ 
+        String name = entity.getName();
+        if (name != null) {
+            stmt.bindString(2, name);
+        }
+ 
+        String author = entity.getAuthor();
+        if (author != null) {
+            stmt.bindString(3, author);
+        }
+ 
+        String tag = entity.getTag();
+        if (tag != null) {
+            stmt.bindString(4, tag);
+        }
+ 
+        String coverUrl = entity.getCoverUrl();
+        if (coverUrl != null) {
+            stmt.bindString(5, coverUrl);
+        }
+        stmt.bindLong(6, entity.getStart());
+        stmt.bindLong(7, entity.getEnd());
+        stmt.bindLong(8, entity.getCreateTime());
+    }
+
+    @Override
+    public String readKey(Cursor cursor, int offset) {
+        return cursor.isNull(offset + 0) ? null : cursor.getString(offset + 0);
+    }    
+
+    @Override
+    public DownloadJobBean readEntity(Cursor cursor, int offset) {
+        DownloadJobBean entity = new DownloadJobBean( //
+            cursor.isNull(offset + 0) ? null : cursor.getString(offset + 0), // noteUrl
+            cursor.isNull(offset + 1) ? null : cursor.getString(offset + 1), // name
+            cursor.isNull(offset + 2) ? null : cursor.getString(offset + 2), // author
+            cursor.isNull(offset + 3) ? null : cursor.getString(offset + 3), // tag
+            cursor.isNull(offset + 4) ? null : cursor.getString(offset + 4), // coverUrl
+            cursor.getInt(offset + 5), // start
+            cursor.getInt(offset + 6), // end
+            cursor.getLong(offset + 7) // createTime
+        );
+        return entity;
+    }
+     
+    @Override
+    public void readEntity(Cursor cursor, DownloadJobBean entity, int offset) {
+        entity.setNoteUrl(cursor.isNull(offset + 0) ? null : cursor.getString(offset + 0));
+        entity.setName(cursor.isNull(offset + 1) ? null : cursor.getString(offset + 1));
+        entity.setAuthor(cursor.isNull(offset + 2) ? null : cursor.getString(offset + 2));
+        entity.setTag(cursor.isNull(offset + 3) ? null : cursor.getString(offset + 3));
+        entity.setCoverUrl(cursor.isNull(offset + 4) ? null : cursor.getString(offset + 4));
+        entity.setStart(cursor.getInt(offset + 5));
+        entity.setEnd(cursor.getInt(offset + 6));
+        entity.setCreateTime(cursor.getLong(offset + 7));
+     }
+    
+    @Override
+    protected final String updateKeyAfterInsert(DownloadJobBean entity, long rowId) {
+        return entity.getNoteUrl();
+    }
+    
+    @Override
+    public String getKey(DownloadJobBean entity) {
+        if(entity != null) {
+            return entity.getNoteUrl();
+        } else {
+            return null;
+        }
+    }
+
+    @Override
+    public boolean hasKey(DownloadJobBean entity) {
+        return entity.getNoteUrl() != null;
+    }
+
+    @Override
+    protected final boolean isEntityUpdateable() {
+        return true;
+    }
+    
+}
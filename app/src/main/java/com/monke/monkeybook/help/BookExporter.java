@@ -0,0 +1,345 @@
+package com.monke.monkeybook.help;
+
+import android.text.TextUtils;
+
+import com.monke.monkeybook.bean.BookInfoBean;
+import com.monke.monkeybook.bean.BookShelfBean;
+import com.monke.monkeybook.bean.ChapterBean;
+import com.monke.monkeybook.utils.IOUtils;
+import com.monke.monkeybook.utils.MD5Utils;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * 将已缓存的章节导出为 TXT 或 EPUB
+ * 章节在后台线程中并行读取和替换净化，按章节顺序依次写入；同时处理的章节数有上限，内存占用与章节总数无关
+ */
+public class BookExporter {
+
+    public static final String TYPE_TXT = "txt";
+    public static final String TYPE_EPUB = "epub";
+
+    //同时预处理的章节数
+    private static final int WINDOW_SIZE = 16;
+    //读取或净化出错的章节写入该内容，不中断整本书的导出
+    private static final String FAILED_CONTENT = "本章导出失败";
+
+    public interface OnProgressListener {
+        void onProgress(int finished, int total);
+    }
+
+    private final BookShelfBean mBook;
+    private final String mType;
+
+    public BookExporter(BookShelfBean book, String type) {
+        this.mBook = book;
+        this.mType = TYPE_EPUB.equals(type) ? TYPE_EPUB : TYPE_TXT;
+    }
+
+    public File getExportFile() {
+        BookInfoBean bookInfo = mBook.getBookInfoBean();
+        return new File(Constant.BOOK_EXPORT_PATH,
+                ChapterContentHelp.getChapterFolderName(bookInfo.getName(), bookInfo.getAuthor()) + "." + mType);
+    }
+
+    /**
+     * 导出全部已缓存的章节，未缓存的章节跳过，出错的章节标记为导出失败
+     * 本地书籍没有章节缓存，不支持导出
+     */
+    public File export(OnProgressListener listener) throws Exception {
+        if (mBook.isLocalBook()) {
+            throw new IllegalArgumentException("本地书籍不支持导出");
+        }
+        final List<ChapterBean> chapters = mBook.getChapterList();
+        final int total = chapters.size();
+        final File target = getExportFile();
+        FileHelp.getFolder(target.getParent());
+        //同一本书可能同时导出，临时文件名按线程和时间区分
+        final File temp = new File(target.getParent(),
+                target.getName() + "." + Thread.currentThread().getId() + "." + System.nanoTime() + ".tmp");
+
+        final Executor executor = ReaderExecutors.executor(ReaderExecutors.Lane.CPU, ReaderExecutors.Priority.BACKGROUND);
+        final ArrayDeque<FutureTask<String>> window = new ArrayDeque<>(WINDOW_SIZE);
+        final ChapterWriter writer = TYPE_EPUB.equals(mType)
+                ? new EpubWriter(temp, mBook.getBookInfoBean())
+                : new TxtWriter(temp, mBook.getBookInfoBean());
+        boolean success = false;
+        try {
+            int next = 0;
+            for (int i = 0; i < total; i++) {
+                //补满预处理窗口
+                while (next < total && window.size() < WINDOW_SIZE) {
+                    final ChapterBean chapter = chapters.get(next++);
+                    FutureTask<String> task = new FutureTask<>(() -> loadChapter(chapter));
+                    window.add(task);
+                    executor.execute(task);
+                }
+                String content;
+                try {
+                    content = window.poll().get();
+                } catch (ExecutionException e) {
+                    content = FAILED_CONTENT;
+                }
+                if (content != null) {
+                    writer.write(getTitle(chapters.get(i), i), content);
+                }
+                if (listener != null) {
+                    listener.onProgress(i + 1, total);
+                }
+            }
+            writer.finish();
+            success = true;
+        } finally {
+            for (FutureTask<String> task : window) {
+                task.cancel(false);
+            }
+            IOUtils.close(writer);
+            if (!success) {
+                temp.delete();
+            }
+        }
+        if (target.exists()) {
+            target.delete();
+        }
+        if (!temp.renameTo(target)) {
+            throw new IOException("无法写入 " + target.getAbsolutePath());
+        }
+        return target;
+    }
+
+    private static String getTitle(ChapterBean chapter, int index) {
+        String title = chapter.getDisplayDurChapterName();
+        if (TextUtils.isEmpty(title)) {
+            return String.format(Locale.getDefault(), "第%d章", index + 1);
+        }
+        return title;
+    }
+
+    private String loadChapter(ChapterBean chapter) {
+        String content = ChapterContentHelp.getChapterCache(mBook, chapter);
+        if (TextUtils.isEmpty(content)) {
+            return null;
+        }
+        BookInfoBean bookInfo = mBook.getBookInfoBean();
+        return ChapterContentHelp.replaceChapterContent(bookInfo.getName(), bookInfo.getTag(), content);
+    }
+
+    private interface ChapterWriter extends Closeable {
+        void write(String title, String content) throws IOException;
+
+        void finish() throws IOException;
+    }
+
+    private static class TxtWriter implements ChapterWriter {
+        private final Writer mWriter;
+
+        TxtWriter(File file, BookInfoBean bookInfo) throws IOException {
+            mWriter = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8));
+            mWriter.write(nullToEmpty(bookInfo.getName()));
+            mWriter.write("\n作者：");
+            mWriter.write(nullToEmpty(bookInfo.getAuthor()));
+            mWriter.write("\n\n");
+            if (!TextUtils.isEmpty(bookInfo.getIntroduce())) {
+                mWriter.write(bookInfo.getIntroduce().trim());
+                mWriter.write("\n\n");
+            }
+        }
+
+        @Override
+        public void write(String title, String content) throws IOException {
+            mWriter.write(title);
+            mWriter.write("\n\n");
+            mWriter.write(content.trim());
+            mWriter.write("\n\n");
+        }
+
+        @Override
+        public void finish() throws IOException {
+            mWriter.flush();
+        }
+
+        private static String nullToEmpty(String text) {
+            return text == null ? "" : text;
+        }
+
+        @Override
+        public void close() throws IOException {
+            mWriter.close();
+        }
+    }
+
+    /**
+     * EPUB 2：章节逐个写入 zip，目录和 opf 在最后写入
+     */
+    private static class EpubWriter implements ChapterWriter {
+        private static final String MIMETYPE = "application/epub+zip";
+
+        private final ZipOutputStream mZip;
+        private final Writer mWriter;
+        private final BookInfoBean mBookInfo;
+        private final List<String> mTitles = new ArrayList<>();
+
+        EpubWriter(File file, BookInfoBean bookInfo) throws IOException {
+            mBookInfo = bookInfo;
+            mZip = new ZipOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+            mWriter = new OutputStreamWriter(mZip, StandardCharsets.UTF_8);
+
+            //mimetype 必须是第一个且不压缩
+            byte[] mimetype = MIMETYPE.getBytes(StandardCharsets.US_ASCII);
+            CRC32 crc = new CRC32();
+            crc.update(mimetype);
+            ZipEntry entry = new ZipEntry("mimetype");
+            entry.setMethod(ZipEntry.STORED);
+            entry.setSize(mimetype.length);
+            entry.setCompressedSize(mimetype.length);
+            entry.setCrc(crc.getValue());
+            mZip.putNextEntry(entry);
+            mZip.write(mimetype);
+            mZip.closeEntry();
+
+            putEntry("META-INF/container.xml",
+                    "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+                            + "<container version=\"1.0\" xmlns=\"urn:oasis:names:tc:opendocument:xmlns:container\">\n"
+                            + "<rootfiles><rootfile full-path=\"OEBPS/content.opf\" media-type=\"application/oebps-package+xml\"/></rootfiles>\n"
+                            + "</container>");
+        }
+
+        @Override
+        public void write(String title, String content) throws IOException {
+            mTitles.add(title);
+            mZip.putNextEntry(new ZipEntry("OEBPS/" + chapterFile(mTitles.size())));
+            mWriter.write("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+                    + "<html xmlns=\"http://www.w3.org/1999/xhtml\"><head><title>");
+            mWriter.write(escape(title));
+            mWriter.write("</title></head><body><h2>");
+            mWriter.write(escape(title));
+            mWriter.write("</h2>\n");
+            //逐段写入，不拼接整章的 xhtml
+            int start = 0;
+            final int length = content.length();
+            while (start < length) {
+                int end = content.indexOf('\n', start);
+                if (end < 0) {
+                    end = length;
+                }
+                String paragraph = content.substring(start, end).trim();
+                if (!paragraph.isEmpty()) {
+                    mWriter.write("<p>");
+                    mWriter.write(escape(paragraph));
+                    mWriter.write("</p>\n");
+                }
+                start = end + 1;
+            }
+            mWriter.write("</body></html>");
+            mWriter.flush();
+            mZip.closeEntry();
+        }
+
+        @Override
+        public void finish() throws IOException {
+            final String uid = "urn:md5:" + MD5Utils.strToMd5By32(mBookInfo.getNoteUrl());
+            StringBuilder manifest = new StringBuilder();
+            StringBuilder spine = new StringBuilder();
+            StringBuilder navPoints = new StringBuilder();
+            for (int i = 1; i <= mTitles.size(); i++) {
+                manifest.append(String.format(Locale.ROOT,
+                        "<item id=\"c%d\" href=\"%s\" media-type=\"application/xhtml+xml\"/>\n", i, chapterFile(i)));
+                spine.append(String.format(Locale.ROOT, "<itemref idref=\"c%d\"/>\n", i));
+                navPoints.append(String.format(Locale.ROOT,
+                        "<navPoint id=\"n%d\" playOrder=\"%d\"><navLabel><text>%s</text></navLabel><content src=\"%s\"/></navPoint>\n",
+                        i, i, escape(mTitles.get(i - 1)), chapterFile(i)));
+            }
+            putEntry("OEBPS/content.opf", "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+                    + "<package xmlns=\"http://www.idpf.org/2007/opf\" version=\"2.0\" unique-identifier=\"uid\">\n"
+                    + "<metadata xmlns:dc=\"http://purl.org/dc/elements/1.1/\">\n"
+                    + "<dc:identifier id=\"uid\">" + escape(uid) + "</dc:identifier>\n"
+                    + "<dc:title>" + escape(mBookInfo.getName()) + "</dc:title>\n"
+                    + "<dc:creator>" + escape(mBookInfo.getAuthor()) + "</dc:creator>\n"
+                    + "<dc:language>zh</dc:language>\n"
+                    + "</metadata>\n"
+                    + "<manifest>\n<item id=\"ncx\" href=\"toc.ncx\" media-type=\"application/x-dtbncx+xml\"/>\n"
+                    + manifest + "</manifest>\n"
+                    + "<spine toc=\"ncx\">\n" + spine + "</spine>\n"
+                    + "</package>");
+            putEntry("OEBPS/toc.ncx", "<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n"
+                    + "<ncx xmlns=\"http://www.daisy.org/z3986/2005/ncx/\" version=\"2005-1\">\n"
+                    + "<head><meta name=\"dtb:uid\" content=\"" + escape(uid) + "\"/></head>\n"
+                    + "<docTitle><text>" + escape(mBookInfo.getName()) + "</text></docTitle>\n"
+                    + "<navMap>\n" + navPoints + "</navMap>\n"
+                    + "</ncx>");
+            mZip.finish();
+        }
+
+        @Override
+        public void close() throws IOException {
+            mWriter.close();
+        }
+
+        private void putEntry(String name, String content) throws IOException {
+            mZip.putNextEntry(new ZipEntry(name));
+            mWriter.write(content);
+            mWriter.flush();
+            mZip.closeEntry();
+        }
+
+        private static String chapterFile(int index) {
+            return String.format(Locale.ROOT, "chapter%05d.xhtml", index);
+        }
+
+        private static String escape(String text) {
+            if (text == null) {
+                return "";
+            }
+            StringBuilder builder = null;
+            for (int i = 0, length = text.length(); i < length; i++) {
+                final char c = text.charAt(i);
+                String replacement;
+                switch (c) {
+                    case '&':
+                        replacement = "&amp;";
+                        break;
+                    case '<':
+                        replacement = "&lt;";
+                        break;
+                    case '>':
+                        replacement = "&gt;";
+                        break;
+                    case '"':
+                        replacement = "&quot;";
+                        break;
+                    default:
+                        //xml 中不允许出现的控制字符直接去掉
+                        replacement = c < 0x20 && c != '\t' && c != '\n' && c != '\r' ? "" : null;
+                        break;
+                }
+                if (replacement != null) {
+                    if (builder == null) {
+                        builder = new StringBuilder(length + 16).append(text, 0, i);
+                    }
+                    builder.append(replacement);
+                } else if (builder != null) {
+                    builder.append(c);
+                }
+            }
+            return builder == null ? text : builder.toString();
+        }
+    }
+}
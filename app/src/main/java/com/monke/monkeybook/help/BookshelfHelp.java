@@ -20,6 +20,8 @@ import com.monke.monkeybook.model.annotation.BookType;
 import com.monke.monkeybook.service.DownloadService;
 import com.monke.monkeybook.utils.MD5Utils;
 import com.monke.monkeybook.utils.StringUtils;
+import com.monke.monkeybook.widget.page.PaginationCache;
+import com.monke.monkeybook.widget.page.TxtIndexCache;
 
 import java.io.BufferedWriter;
 import java.io.File;
@@ -28,7 +30,9 @@ import java.io.FileWriter;
 import java.lang.reflect.Type;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 import static com.monke.monkeybook.help.ChapterContentHelp.getCacheFolderPath;
 import static com.monke.monkeybook.help.ChapterContentHelp.getChapterFolderName;
@@ -157,6 +161,10 @@ public class BookshelfHelp {
         //如果正在下载，则移除任务
         DownloadService.removeDownload(ContextHolder.getContext(), bookShelfBean.getNoteUrl());
         cleanBookCache(bookShelfBean);
+        PaginationCache.INSTANCE.clear(bookShelfBean.getNoteUrl());
+        if (bookShelfBean.isLocalBook()) {
+            TxtIndexCache.INSTANCE.clear(bookShelfBean.getNoteUrl());
+        }
     }
 
     public static void cleanBookCache(BookShelfBean bookShelfBean) {
@@ -205,6 +213,34 @@ public class BookshelfHelp {
         }
     }
 
+    /**
+     * 在同一事务中保存多本书
+     */
+    public static void saveBooksToShelf(List<BookShelfBean> bookShelfBeans) {
+        DbHelper.getInstance().getDaoSession().runInTx(() -> {
+            for (BookShelfBean bookShelfBean : bookShelfBeans) {
+                saveBookToShelf(bookShelfBean);
+            }
+        });
+    }
+
+    /**
+     * 返回已在书架中的书籍地址，分批查询以免超出 SQLite 的参数个数限制
+     */
+    public static Set<String> queryExistingNoteUrls(List<String> noteUrls) {
+        final int batch = 500;
+        Set<String> existing = new HashSet<>();
+        for (int i = 0; i < noteUrls.size(); i += batch) {
+            List<BookShelfBean> books = DbHelper.getInstance().getDaoSession().getBookShelfBeanDao().queryBuilder()
+                    .where(BookShelfBeanDao.Properties.NoteUrl.in(noteUrls.subList(i, Math.min(noteUrls.size(), i + batch))))
+                    .list();
+            for (BookShelfBean book : books) {
+                existing.add(book.getNoteUrl());
+            }
+        }
+        return existing;
+    }
+
     public static boolean isInBookShelf(String bookUrl) {
         if (bookUrl == null) {
             return false;
@@ -1,14 +1,11 @@
 package com.monke.monkeybook.help;
 
-import android.text.TextUtils;
-
 import com.luhuiguo.chinese.ChineseUtils;
 import com.monke.monkeybook.bean.BookContentBean;
 import com.monke.monkeybook.bean.BookInfoBean;
 import com.monke.monkeybook.bean.BookShelfBean;
 import com.monke.monkeybook.bean.ChapterBean;
 import com.monke.monkeybook.bean.DownloadBookBean;
-import com.monke.monkeybook.bean.ReplaceRuleBean;
 import com.monke.monkeybook.model.ReplaceRuleManager;
 
 import java.io.BufferedWriter;
@@ -85,14 +82,21 @@ public class ChapterContentHelp {
         if (content == null) {
             return false;
         }
-        File file = getBookFile(folderName, formatFileName(fileName));
-        //获取流并存储
-        try (BufferedWriter writer = new BufferedWriter(new FileWriter(file))) {
+        //先写入临时文件再重命名，进程被杀死时不会留下空的或不完整的章节文件，重复写入结果相同
+        File file = new File(Constant.BOOK_CHAPTER_PATH + folderName, formatFileName(fileName) + FileHelp.SUFFIX_NB);
+        FileHelp.getFolder(file.getParent());
+        File temp = new File(file.getParent(), file.getName() + ".tmp");
+        try (BufferedWriter writer = new BufferedWriter(new FileWriter(temp))) {
             writer.write(content);
             writer.flush();
-            return true;
         } catch (IOException ignore) {
+            temp.delete();
+            return false;
+        }
+        if (temp.renameTo(file)) {
+            return true;
         }
+        temp.delete();
         return false;
     }
 
@@ -126,25 +130,22 @@ public class ChapterContentHelp {
      * 替换净化
      */
     public static String replaceContent(String bookName, String bookTag, String content) {
-        if (ReplaceRuleManager.getEnabledCount() == 0) {
-            return toTraditional(content);
-        }
-        //替换
-        for (ReplaceRuleBean replaceRule : ReplaceRuleManager.getEnabled()) {
-            if (isUseTo(replaceRule.getUseTo(), bookName, bookTag)) {
-                try {
-                    content = content.replaceAll(replaceRule.getFixedRegex(), replaceRule.getReplacement()).trim();
-                } catch (Exception ignored) {
-                }
-            }
+        ReplacePipeline pipeline = ReplaceRuleManager.getPipeline();
+        if (!pipeline.isEmpty()) {
+            content = pipeline.forBook(bookName, bookTag).apply(content);
         }
         return toTraditional(content);
     }
 
-    private static boolean isUseTo(String useTo, String bookName, String bookTag) {
-        return TextUtils.isEmpty(useTo)
-                || useTo.contains(bookTag)
-                || useTo.contains(bookName);
+    /**
+     * 整章正文按段落替换净化
+     */
+    public static String replaceChapterContent(String bookName, String bookTag, String content) {
+        ReplacePipeline pipeline = ReplaceRuleManager.getPipeline();
+        if (!pipeline.isEmpty()) {
+            content = pipeline.forBook(bookName, bookTag).applyByLine(content);
+        }
+        return toTraditional(content);
     }
 
 }
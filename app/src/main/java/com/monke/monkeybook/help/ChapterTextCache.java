@@ -0,0 +1,152 @@
+package com.monke.monkeybook.help;
+
+import android.util.LruCache;
+
+import com.monke.monkeybook.model.ReplaceRuleManager;
+import com.monke.monkeybook.utils.IOUtils;
+import com.monke.monkeybook.utils.MD5Utils;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * 章节处理结果缓存(替换净化 + 繁简转换)
+ * 内存 LruCache + 磁盘缓存，key 由章节来源、规则版本和繁简设置组成
+ */
+public enum ChapterTextCache {
+
+    INSTANCE;
+
+    //内存缓存按字符数计算，约 2M 字符
+    private static final int MAX_MEMORY_CHARS = 2 * 1024 * 1024;
+    //磁盘缓存的总大小，超出后删除最久未使用的章节
+    private static final long MAX_DISK_SIZE = 50 * 1024 * 1024;
+    private static final int TRIM_INTERVAL = 30;
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    private final LruCache<String, String> mMemoryCache = new LruCache<String, String>(MAX_MEMORY_CHARS) {
+        @Override
+        protected int sizeOf(String key, String value) {
+            return value.length();
+        }
+    };
+
+    private int mPutCount;
+
+    /**
+     * @param sourceKey 章节原始内容的标识(文件路径、修改时间等)，为空时不缓存
+     */
+    public static String buildKey(String bookName, String bookTag, String sourceKey) {
+        if (sourceKey == null) {
+            return null;
+        }
+        return MD5Utils.strToMd5By32(sourceKey
+                + "\u0000" + bookName
+                + "\u0000" + bookTag
+                + "\u0000" + ReplaceRuleManager.getPipeline().getVersion()
+                + "\u0000" + ReadBookControl.getInstance().getTextConvert());
+    }
+
+    public String get(String key) {
+        if (key == null) {
+            return null;
+        }
+        String content = mMemoryCache.get(key);
+        if (content == null) {
+            File file = getDiskFile(key);
+            if (file.exists()) {
+                byte[] bytes = DocumentHelper.getBytes(file);
+                if (bytes != null) {
+                    content = new String(bytes, StandardCharsets.UTF_8);
+                    mMemoryCache.put(key, content);
+                    //按修改时间淘汰，读取时更新
+                    file.setLastModified(System.currentTimeMillis());
+                }
+            }
+        }
+        return content;
+    }
+
+    public void put(String key, String content) {
+        if (key == null || content == null) {
+            return;
+        }
+        mMemoryCache.put(key, content);
+        writeToDisk(key, content);
+    }
+
+    /**
+     * 规则或繁简设置变化后，旧的 key 已不会再命中，清空内存缓存即可，磁盘缓存由 trim 回收
+     */
+    public void invalidate() {
+        mMemoryCache.evictAll();
+    }
+
+    /**
+     * 先写入临时文件再重命名，避免进程被杀时留下不完整的章节
+     * 临时文件名按线程和时间区分，同一章节同时写入时不会写进同一个文件
+     */
+    private void writeToDisk(String key, String content) {
+        final File file = getDiskFile(key);
+        final File temp = new File(file.getParent(),
+                key + "." + Thread.currentThread().getId() + "." + System.nanoTime() + TEMP_SUFFIX);
+        BufferedWriter writer = null;
+        boolean success = false;
+        try {
+            writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(temp), StandardCharsets.UTF_8));
+            writer.write(content);
+            writer.flush();
+            writer.close();
+            writer = null;
+            success = temp.renameTo(file);
+        } catch (Exception ignored) {
+        } finally {
+            IOUtils.close(writer);
+            if (!success) {
+                temp.delete();
+            }
+        }
+        synchronized (this) {
+            if (++mPutCount % TRIM_INTERVAL == 0) {
+                trimDisk();
+            }
+        }
+    }
+
+    private void trimDisk() {
+        File[] files = getDiskDir().listFiles();
+        if (files == null) {
+            return;
+        }
+        long size = 0;
+        for (File file : files) {
+            size += file.length();
+        }
+        if (size <= MAX_DISK_SIZE) {
+            return;
+        }
+        Arrays.sort(files, (o1, o2) -> Long.compare(o1.lastModified(), o2.lastModified()));
+        for (int i = 0; i < files.length && size > MAX_DISK_SIZE; i++) {
+            //正在写入的临时文件不删除
+            if (files[i].getName().endsWith(TEMP_SUFFIX)) {
+                continue;
+            }
+            final long length = files[i].length();
+            if (files[i].delete()) {
+                size -= length;
+            }
+        }
+    }
+
+    private File getDiskDir() {
+        return FileHelp.getFolder(FileHelp.getCachePath(), "chapterText");
+    }
+
+    private File getDiskFile(String key) {
+        return new File(getDiskDir(), key);
+    }
+}
@@ -28,6 +28,8 @@ public class Constant {
             + "HaoYue" + File.separator + "fonts" + File.separator;
     public static String READ_CRASH_PATH = FileUtil.getSdCardPath() + File.separator
             + "HaoYue" + File.separator + "crashes" + File.separator;
+    public static String BOOK_EXPORT_PATH = FileUtil.getSdCardPath() + File.separator
+            + "HaoYue" + File.separator + "exports" + File.separator;
 
 
     public static final String[] BOOK_TYPES = {
@@ -0,0 +1,474 @@
+package com.monke.monkeybook.help;
+
+import android.content.Context;
+
+import com.monke.monkeybook.model.analyzeRule.assit.Assistant;
+import com.monke.monkeybook.utils.IOUtils;
+import com.monke.monkeybook.utils.MD5Utils;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.FileReader;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.io.Writer;
+import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 本地缓存
+ * 每个值保存为一个文件，journal 记录写入和删除，启动时重放 journal 得到内存索引；
+ * 过期时间和大小都在索引中，读取时不必解析文件内容，总大小超过上限时按最近最少使用淘汰
+ */
+public class DiskCache {
+    public static final int TIME_HOUR = 60 * 60;
+    public static final int TIME_DAY = TIME_HOUR * 24;
+
+    private static final long MAX_SIZE = 1000 * 1000 * 50; // 50 mb
+
+    private static final String JOURNAL = "journal";
+    private static final String JOURNAL_TMP = "journal.tmp";
+    private static final String HEADER = "DiskCache 1";
+    private static final String PUT = "PUT";
+    private static final String DEL = "DEL";
+    //journal 中的冗余行数超过该值且多于有效记录数时重写 journal
+    private static final int REDUNDANT_OP_COMPACT_THRESHOLD = 2000;
+
+    private volatile static DiskCache mInstance;
+
+    /**
+     * 值的编码方式
+     */
+    public interface Codec<T> {
+        byte[] encode(T value) throws Exception;
+
+        T decode(byte[] data) throws Exception;
+    }
+
+    public static final Codec<byte[]> BYTES = new Codec<byte[]>() {
+        @Override
+        public byte[] encode(byte[] value) {
+            return value;
+        }
+
+        @Override
+        public byte[] decode(byte[] data) {
+            return data;
+        }
+    };
+
+    public static final Codec<String> STRING = new Codec<String>() {
+        @Override
+        public byte[] encode(String value) {
+            return value.getBytes(StandardCharsets.UTF_8);
+        }
+
+        @Override
+        public String decode(byte[] data) {
+            return new String(data, StandardCharsets.UTF_8);
+        }
+    };
+
+    /**
+     * 以 JSON 保存对象
+     */
+    public static <T> Codec<T> json(final Type type) {
+        return new Codec<T>() {
+            @Override
+            public byte[] encode(T value) {
+                return Assistant.toJson(value).getBytes(StandardCharsets.UTF_8);
+            }
+
+            @Override
+            public T decode(byte[] data) {
+                return Assistant.fromJson(new String(data, StandardCharsets.UTF_8), type);
+            }
+        };
+    }
+
+    private static class Entry {
+        long size;
+        //过期时间，0 表示不过期
+        long expireAt;
+    }
+
+    private final File mDirectory;
+    private final long mMaxSize;
+    //按访问顺序排列，最前面的最久未使用
+    private final LinkedHashMap<String, Entry> mEntries = new LinkedHashMap<>(0, 0.75f, true);
+    private long mSize;
+    private int mRedundantOpCount;
+    private Writer mJournalWriter;
+
+    DiskCache(File directory, long maxSize) {
+        this.mDirectory = directory;
+        this.mMaxSize = maxSize;
+    }
+
+    public static DiskCache get(Context context) {
+        if (mInstance == null) {
+            synchronized (DiskCache.class) {
+                if (mInstance == null) {
+                    File directory = new File(context.getApplicationContext().getCacheDir(), "DiskCache");
+                    //旧版本的缓存使用 Java 序列化，直接删除
+                    FileHelp.deleteFile(new File(context.getApplicationContext().getCacheDir(), "ACache").getAbsolutePath());
+                    mInstance = new DiskCache(directory, MAX_SIZE);
+                }
+            }
+        }
+        return mInstance;
+    }
+
+    public void put(String key, String value) {
+        put(key, value, STRING, 0);
+    }
+
+    /**
+     * @param saveTime 保存的时间，单位：秒
+     */
+    public void put(String key, String value, int saveTime) {
+        put(key, value, STRING, saveTime);
+    }
+
+    public String getAsString(String key) {
+        return get(key, STRING);
+    }
+
+    public void put(String key, byte[] value) {
+        put(key, value, BYTES, 0);
+    }
+
+    public byte[] getAsBinary(String key) {
+        return get(key, BYTES);
+    }
+
+    /**
+     * 保存一个值
+     *
+     * @param saveTime 保存的时间，单位：秒，0 表示不过期
+     */
+    public <T> void put(String key, T value, Codec<T> codec, int saveTime) {
+        if (value == null) {
+            remove(key);
+            return;
+        }
+        final byte[] data;
+        try {
+            data = codec.encode(value);
+        } catch (Exception e) {
+            return;
+        }
+        final String name = toFileName(key);
+        synchronized (this) {
+            if (!ensureOpen()) {
+                return;
+            }
+            final File file = new File(mDirectory, name);
+            final File temp = new File(mDirectory, name + ".tmp");
+            OutputStream out = null;
+            try {
+                out = new FileOutputStream(temp);
+                out.write(data);
+                out.close();
+                out = null;
+                if (!temp.renameTo(file)) {
+                    throw new IOException("rename failed");
+                }
+            } catch (IOException e) {
+                IOUtils.close(out);
+                temp.delete();
+                return;
+            }
+
+            Entry entry = mEntries.remove(name);
+            if (entry != null) {
+                mSize -= entry.size;
+                mRedundantOpCount++;
+            } else {
+                entry = new Entry();
+            }
+            entry.size = data.length;
+            entry.expireAt = saveTime > 0 ? System.currentTimeMillis() + saveTime * 1000L : 0;
+            mEntries.put(name, entry);
+            mSize += entry.size;
+            writeJournal(PUT + ' ' + name + ' ' + entry.size + ' ' + entry.expireAt);
+            trimToSize();
+        }
+    }
+
+    /**
+     * 读取一个值，不存在、已过期或无法解码时返回 null
+     */
+    public <T> T get(String key, Codec<T> codec) {
+        final String name = toFileName(key);
+        final byte[] data;
+        synchronized (this) {
+            if (!ensureOpen()) {
+                return null;
+            }
+            Entry entry = mEntries.get(name);
+            if (entry == null) {
+                return null;
+            }
+            if (entry.expireAt > 0 && entry.expireAt < System.currentTimeMillis()) {
+                removeEntry(name);
+                return null;
+            }
+            data = readFile(new File(mDirectory, name), entry.size);
+            if (data == null) {
+                removeEntry(name);
+                return null;
+            }
+        }
+        try {
+            return codec.decode(data);
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    public synchronized boolean remove(String key) {
+        return ensureOpen() && removeEntry(toFileName(key));
+    }
+
+    public synchronized void clear() {
+        IOUtils.close(mJournalWriter);
+        mJournalWriter = null;
+        mEntries.clear();
+        mSize = 0;
+        mRedundantOpCount = 0;
+        FileHelp.deleteFile(mDirectory.getAbsolutePath());
+    }
+
+    public synchronized long size() {
+        ensureOpen();
+        return mSize;
+    }
+
+    private boolean removeEntry(String name) {
+        Entry entry = mEntries.remove(name);
+        if (entry == null) {
+            return false;
+        }
+        new File(mDirectory, name).delete();
+        mSize -= entry.size;
+        mRedundantOpCount += 2;
+        writeJournal(DEL + ' ' + name);
+        return true;
+    }
+
+    private void trimToSize() {
+        final long now = System.currentTimeMillis();
+        //先删除过期的，再按最近最少使用删除
+        if (mSize > mMaxSize) {
+            Iterator<Map.Entry<String, Entry>> iterator = mEntries.entrySet().iterator();
+            while (iterator.hasNext()) {
+                Map.Entry<String, Entry> item = iterator.next();
+                if (item.getValue().expireAt > 0 && item.getValue().expireAt < now) {
+                    iterator.remove();
+                    deleteEvicted(item.getKey(), item.getValue());
+                }
+            }
+        }
+        while (mSize > mMaxSize && !mEntries.isEmpty()) {
+            Map.Entry<String, Entry> eldest = mEntries.entrySet().iterator().next();
+            mEntries.remove(eldest.getKey());
+            deleteEvicted(eldest.getKey(), eldest.getValue());
+        }
+    }
+
+    private void deleteEvicted(String name, Entry entry) {
+        new File(mDirectory, name).delete();
+        mSize -= entry.size;
+        mRedundantOpCount += 2;
+        writeJournal(DEL + ' ' + name);
+    }
+
+    /**
+     * 首次使用时重放 journal 建立索引
+     */
+    private boolean ensureOpen() {
+        if (mJournalWriter != null) {
+            return true;
+        }
+        if (!mDirectory.exists() && !mDirectory.mkdirs()) {
+            return false;
+        }
+        final File journal = new File(mDirectory, JOURNAL);
+        //journal 有损坏的行时先重写，否则之后追加的记录会接在不完整的行后面
+        final boolean intact = journal.exists() && readJournal(journal);
+        try {
+            if (intact && mRedundantOpCount < REDUNDANT_OP_COMPACT_THRESHOLD) {
+                mJournalWriter = new BufferedWriter(new FileWriter(journal, true));
+            } else {
+                rebuildJournal();
+            }
+            return true;
+        } catch (IOException e) {
+            mJournalWriter = null;
+            return false;
+        }
+    }
+
+    /**
+     * 重放 journal，无法识别的行跳过
+     *
+     * @return journal 是否完好：文件头正确、每行都能解析且以换行结束
+     */
+    private boolean readJournal(File journal) {
+        mEntries.clear();
+        mSize = 0;
+        mRedundantOpCount = 0;
+        BufferedReader reader = null;
+        int lineCount = 0;
+        boolean intact = true;
+        try {
+            reader = new BufferedReader(new FileReader(journal));
+            if (!HEADER.equals(reader.readLine())) {
+                //无法识别的 journal，重新建立
+                return false;
+            }
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lineCount++;
+                String[] parts = line.split(" ");
+                try {
+                    if (parts.length == 4 && PUT.equals(parts[0])) {
+                        final long size = Long.parseLong(parts[2]);
+                        final long expireAt = Long.parseLong(parts[3]);
+                        Entry entry = mEntries.remove(parts[1]);
+                        if (entry != null) {
+                            mSize -= entry.size;
+                        } else {
+                            entry = new Entry();
+                        }
+                        entry.size = size;
+                        entry.expireAt = expireAt;
+                        mEntries.put(parts[1], entry);
+                        mSize += entry.size;
+                    } else if (parts.length == 2 && DEL.equals(parts[0])) {
+                        Entry entry = mEntries.remove(parts[1]);
+                        if (entry != null) {
+                            mSize -= entry.size;
+                        }
+                    } else {
+                        intact = false;
+                    }
+                } catch (NumberFormatException e) {
+                    intact = false;
+                }
+            }
+        } catch (IOException e) {
+            intact = false;
+        } finally {
+            IOUtils.close(reader);
+        }
+        mRedundantOpCount = lineCount - mEntries.size();
+        //写入中断时最后一行没有换行符
+        return intact && endsWithNewline(journal);
+    }
+
+    private static boolean endsWithNewline(File file) {
+        RandomAccessFile raf = null;
+        try {
+            raf = new RandomAccessFile(file, "r");
+            final long length = raf.length();
+            if (length == 0) {
+                return false;
+            }
+            raf.seek(length - 1);
+            return raf.read() == '\n';
+        } catch (IOException e) {
+            return false;
+        } finally {
+            IOUtils.close(raf);
+        }
+    }
+
+    /**
+     * 只保留有效记录重写 journal，并删除不在索引中的文件
+     */
+    private void rebuildJournal() throws IOException {
+        IOUtils.close(mJournalWriter);
+        final File temp = new File(mDirectory, JOURNAL_TMP);
+        Writer writer = new BufferedWriter(new FileWriter(temp));
+        try {
+            writer.write(HEADER);
+            writer.write('\n');
+            for (Map.Entry<String, Entry> item : mEntries.entrySet()) {
+                writer.write(PUT + ' ' + item.getKey() + ' ' + item.getValue().size + ' ' + item.getValue().expireAt);
+                writer.write('\n');
+            }
+        } finally {
+            writer.close();
+        }
+        final File journal = new File(mDirectory, JOURNAL);
+        if (!temp.renameTo(journal)) {
+            throw new IOException("rename failed");
+        }
+        mRedundantOpCount = 0;
+
+        File[] files = mDirectory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                String name = file.getName();
+                if (!JOURNAL.equals(name) && !mEntries.containsKey(name)) {
+                    file.delete();
+                }
+            }
+        }
+        mJournalWriter = new BufferedWriter(new FileWriter(journal, true));
+    }
+
+    private void writeJournal(String line) {
+        try {
+            mJournalWriter.write(line);
+            mJournalWriter.write('\n');
+            mJournalWriter.flush();
+            if (mRedundantOpCount >= REDUNDANT_OP_COMPACT_THRESHOLD && mRedundantOpCount >= mEntries.size()) {
+                rebuildJournal();
+            }
+        } catch (IOException e) {
+            //journal 无法写入时下次使用重新建立
+            IOUtils.close(mJournalWriter);
+            mJournalWriter = null;
+        }
+    }
+
+    private static byte[] readFile(File file, long size) {
+        if (size > Integer.MAX_VALUE || file.length() != size) {
+            return null;
+        }
+        final byte[] data = new byte[(int) size];
+        InputStream in = null;
+        try {
+            in = new FileInputStream(file);
+            int offset = 0;
+            while (offset < data.length) {
+                int read = in.read(data, offset, data.length - offset);
+                if (read < 0) {
+                    return null;
+                }
+                offset += read;
+            }
+            return data;
+        } catch (IOException e) {
+            return null;
+        } finally {
+            IOUtils.close(in);
+        }
+    }
+
+    private static String toFileName(String key) {
+        return MD5Utils.strToMd5By32(key);
+    }
+}
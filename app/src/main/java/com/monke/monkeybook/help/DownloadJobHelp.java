@@ -0,0 +1,117 @@
+package com.monke.monkeybook.help;
+
+import com.monke.basemvplib.rxjava.RxExecutors;
+import com.monke.monkeybook.bean.DownloadBookBean;
+import com.monke.monkeybook.bean.DownloadChapterStateBean;
+import com.monke.monkeybook.bean.DownloadJobBean;
+import com.monke.monkeybook.dao.DbHelper;
+import com.monke.monkeybook.dao.DownloadChapterStateBeanDao;
+import com.monke.monkeybook.dao.DownloadJobBeanDao;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import io.reactivex.Scheduler;
+
+/**
+ * 下载队列的持久化
+ * 每个下载任务保存一条记录，未完成的章节各保存一条状态，章节下载成功后删除其状态
+ */
+public class DownloadJobHelp {
+
+    //章节失败超过该次数后不再自动重试
+    public static final int MAX_ATTEMPTS = 3;
+
+    //任务记录的读写都在同一个线程中按提交顺序执行，避免删除任务与重新添加、章节状态更新交错
+    private static final Scheduler SCHEDULER = RxExecutors.newScheduler(1);
+
+    public static Scheduler getScheduler() {
+        return SCHEDULER;
+    }
+
+    private static DownloadJobBeanDao getJobDao() {
+        return DbHelper.getInstance().getDaoSession().getDownloadJobBeanDao();
+    }
+
+    private static DownloadChapterStateBeanDao getStateDao() {
+        return DbHelper.getInstance().getDaoSession().getDownloadChapterStateBeanDao();
+    }
+
+    public static List<DownloadJobBean> queryAllJobs() {
+        return getJobDao().queryBuilder()
+                .orderAsc(DownloadJobBeanDao.Properties.CreateTime)
+                .list();
+    }
+
+    public static DownloadJobBean getJob(String noteUrl) {
+        return getJobDao().load(noteUrl);
+    }
+
+    /**
+     * 需要下载的章节序号，超过重试次数的章节不返回
+     */
+    public static List<Integer> queryPendingChapters(String noteUrl) {
+        List<DownloadChapterStateBean> states = getStateDao().queryBuilder()
+                .where(DownloadChapterStateBeanDao.Properties.NoteUrl.eq(noteUrl),
+                        DownloadChapterStateBeanDao.Properties.Attempts.lt(MAX_ATTEMPTS))
+                .orderAsc(DownloadChapterStateBeanDao.Properties.ChapterIndex)
+                .list();
+        List<Integer> indexes = new ArrayList<>(states.size());
+        for (DownloadChapterStateBean state : states) {
+            indexes.add(state.getChapterIndex());
+        }
+        return indexes;
+    }
+
+    /**
+     * 保存任务及其需要下载的章节，在同一事务中完成
+     */
+    public static void saveJob(DownloadBookBean downloadBook, List<Integer> chapterIndexes) {
+        final String noteUrl = downloadBook.getNoteUrl();
+        final List<DownloadChapterStateBean> states = new ArrayList<>(chapterIndexes.size());
+        for (Integer index : chapterIndexes) {
+            states.add(new DownloadChapterStateBean(noteUrl, index));
+        }
+        DbHelper.getInstance().getDaoSession().runInTx(() -> {
+            deleteStates(noteUrl);
+            getJobDao().insertOrReplace(DownloadJobBean.from(downloadBook));
+            getStateDao().insertInTx(states);
+        });
+    }
+
+    public static void chapterDone(String noteUrl, int chapterIndex) {
+        SCHEDULER.scheduleDirect(() ->
+                getStateDao().deleteByKey(DownloadChapterStateBean.buildId(noteUrl, chapterIndex)));
+    }
+
+    public static void chapterFailed(String noteUrl, int chapterIndex, String error) {
+        SCHEDULER.scheduleDirect(() -> {
+            DownloadChapterStateBean state = getStateDao().load(DownloadChapterStateBean.buildId(noteUrl, chapterIndex));
+            if (state == null) {
+                return;
+            }
+            state.setState(DownloadChapterStateBean.STATE_FAILED);
+            state.setAttempts(state.getAttempts() + 1);
+            state.setLastError(error);
+            getStateDao().update(state);
+        });
+    }
+
+    public static void deleteJob(String noteUrl) {
+        if (noteUrl == null) {
+            return;
+        }
+        SCHEDULER.scheduleDirect(() ->
+                DbHelper.getInstance().getDaoSession().runInTx(() -> {
+                    deleteStates(noteUrl);
+                    getJobDao().deleteByKey(noteUrl);
+                }));
+    }
+
+    private static void deleteStates(String noteUrl) {
+        getStateDao().queryBuilder()
+                .where(DownloadChapterStateBeanDao.Properties.NoteUrl.eq(noteUrl))
+                .buildDelete()
+                .executeDeleteWithoutDetachingEntities();
+    }
+}
@@ -0,0 +1,285 @@
+package com.monke.monkeybook.help;
+
+import com.monke.monkeybook.utils.IOUtils;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 文件目录索引：记录每个文件夹的修改时间和其中文件的大小、修改时间、类型
+ * 文件夹的修改时间未变化时直接使用索引，不再列出文件夹；索引保存在缓存目录中，下次启动继续使用
+ */
+public enum FileCatalog {
+
+    INSTANCE;
+
+    private static final int VERSION = 1;
+
+    public static class Entry {
+        public final String path;
+        public final String name;
+        public final boolean directory;
+        public final long length;
+        public final long lastModified;
+        //文件夹中的文件数，文件为 0
+        public final int childCount;
+
+        Entry(String path, String name, boolean directory, long length, long lastModified, int childCount) {
+            this.path = path;
+            this.name = name;
+            this.directory = directory;
+            this.length = length;
+            this.lastModified = lastModified;
+            this.childCount = childCount;
+        }
+    }
+
+    private static class Folder {
+        long lastModified;
+        List<Entry> children;
+    }
+
+    private final Map<String, Folder> mFolders = new HashMap<>();
+    private boolean mLoaded;
+    private boolean mChanged;
+
+    /**
+     * 列出文件夹中的文件，不包含隐藏文件；文件夹未修改时使用索引，只重新读取有变化的文件属性
+     */
+    public List<Entry> list(File dir) {
+        final String path = dir.getAbsolutePath();
+        final long lastModified = dir.lastModified();
+        Folder cached;
+        synchronized (this) {
+            ensureLoaded();
+            cached = mFolders.get(path);
+        }
+
+        List<Entry> children;
+        if (cached != null && cached.lastModified == lastModified) {
+            //修改文件内容和子文件夹的内容都不会改变本文件夹的修改时间，按各自的修改时间更新
+            List<Entry> refreshed = null;
+            for (int i = 0, size = cached.children.size(); i < size; i++) {
+                Entry entry = cached.children.get(i);
+                File child = new File(entry.path);
+                if (child.lastModified() != entry.lastModified) {
+                    if (refreshed == null) {
+                        refreshed = new ArrayList<>(cached.children);
+                    }
+                    refreshed.set(i, newEntry(child));
+                }
+            }
+            if (refreshed == null) {
+                return cached.children;
+            }
+            children = Collections.unmodifiableList(refreshed);
+        } else {
+            File[] files = dir.listFiles();
+            if (files == null && !dir.exists()) {
+                synchronized (this) {
+                    removeFolders(path);
+                }
+                return Collections.emptyList();
+            }
+            List<Entry> list = new ArrayList<>(files == null ? 0 : files.length);
+            if (files != null) {
+                for (File file : files) {
+                    if (!file.getName().startsWith(".")) {
+                        list.add(newEntry(file));
+                    }
+                }
+            }
+            children = Collections.unmodifiableList(list);
+        }
+
+        synchronized (this) {
+            if (cached != null) {
+                pruneRemovedFolders(cached.children, children);
+            }
+            Folder folder = new Folder();
+            folder.lastModified = lastModified;
+            folder.children = children;
+            mFolders.put(path, folder);
+            mChanged = true;
+        }
+        return children;
+    }
+
+    /**
+     * 删除已不存在的子文件夹及其下所有文件夹的索引
+     */
+    private void pruneRemovedFolders(List<Entry> oldChildren, List<Entry> newChildren) {
+        Set<String> folders = null;
+        for (Entry entry : oldChildren) {
+            if (!entry.directory) {
+                continue;
+            }
+            if (folders == null) {
+                folders = new HashSet<>();
+                for (Entry child : newChildren) {
+                    if (child.directory) {
+                        folders.add(child.path);
+                    }
+                }
+            }
+            if (!folders.contains(entry.path)) {
+                removeFolders(entry.path);
+            }
+        }
+    }
+
+    private void removeFolders(String path) {
+        final String prefix = path + File.separator;
+        Iterator<String> iterator = mFolders.keySet().iterator();
+        while (iterator.hasNext()) {
+            String key = iterator.next();
+            if (key.equals(path) || key.startsWith(prefix)) {
+                iterator.remove();
+                mChanged = true;
+            }
+        }
+    }
+
+    private static Entry newEntry(File file) {
+        if (file.isDirectory()) {
+            String[] names = file.list();
+            return new Entry(file.getAbsolutePath(), file.getName(), true, 0,
+                    file.lastModified(), names == null ? 0 : names.length);
+        }
+        return new Entry(file.getAbsolutePath(), file.getName(), false, file.length(), file.lastModified(), 0);
+    }
+
+    /**
+     * 在各个根目录下查找指定后缀的文件，只重新列出修改过的文件夹
+     *
+     * @param suffixes 不带点的后缀，不区分大小写
+     */
+    public List<Entry> search(List<String> roots, String[] suffixes) {
+        final String[] endings = new String[suffixes.length];
+        for (int i = 0; i < suffixes.length; i++) {
+            endings[i] = "." + suffixes[i].toLowerCase();
+        }
+        List<Entry> result = new ArrayList<>();
+        ArrayDeque<File> folders = new ArrayDeque<>();
+        for (String root : roots) {
+            folders.push(new File(root));
+        }
+        while (!folders.isEmpty()) {
+            if (Thread.currentThread().isInterrupted()) {
+                break;
+            }
+            for (Entry entry : list(folders.pop())) {
+                if (entry.directory) {
+                    if (entry.childCount > 0) {
+                        folders.push(new File(entry.path));
+                    }
+                } else {
+                    final String name = entry.name.toLowerCase();
+                    for (String ending : endings) {
+                        if (name.endsWith(ending)) {
+                            result.add(entry);
+                            break;
+                        }
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * 将修改过的索引写入磁盘
+     */
+    public synchronized void save() {
+        if (!mChanged) {
+            return;
+        }
+        final File file = getCatalogFile();
+        final File temp = new File(file.getParent(), file.getName() + ".tmp");
+        DataOutputStream out = null;
+        try {
+            FileHelp.getFolder(file.getParent());
+            out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)));
+            out.writeInt(VERSION);
+            out.writeInt(mFolders.size());
+            for (Map.Entry<String, Folder> item : mFolders.entrySet()) {
+                out.writeUTF(item.getKey());
+                out.writeLong(item.getValue().lastModified);
+                out.writeInt(item.getValue().children.size());
+                for (Entry entry : item.getValue().children) {
+                    out.writeUTF(entry.name);
+                    out.writeBoolean(entry.directory);
+                    out.writeLong(entry.length);
+                    out.writeLong(entry.lastModified);
+                    out.writeInt(entry.childCount);
+                }
+            }
+            out.flush();
+            out.close();
+            out = null;
+            if (temp.renameTo(file)) {
+                mChanged = false;
+            }
+        } catch (Exception e) {
+            temp.delete();
+        } finally {
+            IOUtils.close(out);
+        }
+    }
+
+    private void ensureLoaded() {
+        if (mLoaded) {
+            return;
+        }
+        mLoaded = true;
+        final File file = getCatalogFile();
+        if (!file.exists()) {
+            return;
+        }
+        DataInputStream in = null;
+        try {
+            in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+            if (in.readInt() != VERSION) {
+                return;
+            }
+            int folderCount = in.readInt();
+            for (int i = 0; i < folderCount; i++) {
+                final String path = in.readUTF();
+                Folder folder = new Folder();
+                folder.lastModified = in.readLong();
+                int count = in.readInt();
+                List<Entry> children = new ArrayList<>(count);
+                for (int j = 0; j < count; j++) {
+                    final String name = in.readUTF();
+                    children.add(new Entry(path + File.separator + name, name, in.readBoolean(),
+                            in.readLong(), in.readLong(), in.readInt()));
+                }
+                folder.children = Collections.unmodifiableList(children);
+                mFolders.put(path, folder);
+            }
+        } catch (Exception e) {
+            mFolders.clear();
+            file.delete();
+        } finally {
+            IOUtils.close(in);
+        }
+    }
+
+    private static File getCatalogFile() {
+        return new File(FileHelp.getCachePath(), "fileCatalog");
+    }
+}
@@ -0,0 +1,152 @@
+package com.monke.monkeybook.help;
+
+import android.content.Context;
+
+import com.monke.monkeybook.bean.SearchBookBean;
+import com.monke.monkeybook.utils.MD5Utils;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 发现页缓存：过期后仍然返回旧的结果，由调用者在后台刷新
+ * 每个书源的有效期按刷新结果自动调整：结果未变化时延长，变化时缩短
+ */
+public class FindBookCache {
+
+    private static final long DEFAULT_TTL = TimeUnit.HOURS.toMillis(12);
+    private static final long MIN_TTL = TimeUnit.HOURS.toMillis(1);
+    private static final long MAX_TTL = TimeUnit.DAYS.toMillis(3);
+    //超过该时间的旧结果不再使用
+    private static final int MAX_STALE_SECONDS = 7 * DiskCache.TIME_DAY;
+
+    private static final DiskCache.Codec<Books> BOOKS_CODEC = DiskCache.json(Books.class);
+    private static final DiskCache.Codec<FindRule> RULE_CODEC = DiskCache.json(FindRule.class);
+    //有效期和结果摘要单独保存，调整有效期时不必解析整个结果列表
+    private static final String TTL_KEY_SUFFIX = "#ttl";
+
+    public static class Books {
+        private List<SearchBookBean> books;
+        private long updateTime;
+        private long ttl;
+
+        public List<SearchBookBean> getBooks() {
+            return books;
+        }
+
+        public boolean isStale() {
+            return System.currentTimeMillis() - updateTime > ttl;
+        }
+    }
+
+    public static class FindRule {
+        private String rule;
+        private long updateTime;
+
+        public String getRule() {
+            return rule;
+        }
+
+        public boolean isStale() {
+            return System.currentTimeMillis() - updateTime > DEFAULT_TTL;
+        }
+    }
+
+    private FindBookCache() {
+
+    }
+
+    /**
+     * 获取书源的发现结果，包括已过期的
+     */
+    public static Books getBooks(Context context, String sourceUrl) {
+        Books cache = DiskCache.get(context).get(sourceUrl, BOOKS_CODEC);
+        if (cache == null || cache.books == null || cache.books.isEmpty()) {
+            return null;
+        }
+        return cache;
+    }
+
+    /**
+     * 保存刷新结果，并根据与上次结果的差异调整有效期
+     */
+    public static void putBooks(Context context, String sourceUrl, List<SearchBookBean> books) {
+        if (books == null || books.isEmpty()) {
+            return;
+        }
+        DiskCache cache = DiskCache.get(context);
+        final int urlsHash = urlsHash(books);
+        long oldTtl = 0;
+        int oldHash = 0;
+        //格式为 "有效期 摘要"
+        String meta = cache.getAsString(sourceUrl + TTL_KEY_SUFFIX);
+        if (meta != null) {
+            String[] parts = meta.split(" ");
+            try {
+                oldTtl = Long.parseLong(parts[0]);
+                oldHash = Integer.parseInt(parts[1]);
+            } catch (Exception ignored) {
+                oldTtl = 0;
+            }
+        }
+        Books value = new Books();
+        value.books = books;
+        value.updateTime = System.currentTimeMillis();
+        value.ttl = adaptTtl(oldTtl, oldTtl > 0 && oldHash == urlsHash);
+        cache.put(sourceUrl, value, BOOKS_CODEC, MAX_STALE_SECONDS);
+        cache.put(sourceUrl + TTL_KEY_SUFFIX, value.ttl + " " + urlsHash, MAX_STALE_SECONDS);
+    }
+
+    /**
+     * 删除书源的所有缓存，书源修改后调用
+     */
+    public static void remove(Context context, String sourceUrl) {
+        DiskCache cache = DiskCache.get(context);
+        cache.remove(sourceUrl);
+        cache.remove(sourceUrl + TTL_KEY_SUFFIX);
+        cache.remove(MD5Utils.strToMd5By16(sourceUrl));
+    }
+
+    /**
+     * 结果未变化时有效期加倍，变化时减半，没有上次的有效期时使用默认值
+     */
+    static long adaptTtl(long oldTtl, boolean unchanged) {
+        if (oldTtl <= 0) {
+            return DEFAULT_TTL;
+        }
+        if (unchanged) {
+            return Math.min(MAX_TTL, oldTtl * 2);
+        }
+        return Math.max(MIN_TTL, oldTtl / 2);
+    }
+
+    /**
+     * 获取 js 发现规则的计算结果，包括已过期的
+     */
+    public static FindRule getFindRule(Context context, String sourceUrl) {
+        FindRule cache = DiskCache.get(context).get(MD5Utils.strToMd5By16(sourceUrl), RULE_CODEC);
+        if (cache == null || cache.rule == null) {
+            return null;
+        }
+        return cache;
+    }
+
+    public static void putFindRule(Context context, String sourceUrl, String rule) {
+        FindRule value = new FindRule();
+        value.rule = rule;
+        value.updateTime = System.currentTimeMillis();
+        DiskCache.get(context).put(MD5Utils.strToMd5By16(sourceUrl), value, RULE_CODEC, 0);
+    }
+
+    /**
+     * 按顺序计算所有书籍地址的摘要，用于判断结果是否变化
+     */
+    private static int urlsHash(List<SearchBookBean> books) {
+        int hash = books.size();
+        for (SearchBookBean book : books) {
+            String noteUrl = book.getNoteUrl();
+            hash = 31 * hash + (noteUrl == null ? 0 : noteUrl.hashCode());
+        }
+        return hash;
+    }
+}
@@ -38,6 +38,8 @@ public class ReadBookControl {
     private int pageMode;
     private String bgPath;
     private Bitmap bgBitmap;
+    //按页面尺寸缩放好的背景图
+    private Bitmap scaledBgBitmap;
 
     private int textDrawableIndex = DEFAULT_BG;
 
@@ -210,6 +212,7 @@ public class ReadBookControl {
                 bgIsColor = false;
                 bgPath = getBgPath(textDrawableIndex);
                 bgBitmap = resetBgBitmap();
+                scaledBgBitmap = null;
             } else if (getBgCustom(textDrawableIndex) == 1) {
                 bgIsColor = true;
                 bgColor = getBgColor(textDrawableIndex);
@@ -444,10 +447,29 @@ public class ReadBookControl {
     public Bitmap getBgBitmap() {
         if (bgBitmap == null || bgBitmap.isRecycled()) {
             bgBitmap = resetBgBitmap();
+            scaledBgBitmap = null;
         }
         return bgBitmap;
     }
 
+    /**
+     * 获取缩放到指定尺寸的背景图，只在尺寸或背景变化时重新缩放
+     */
+    public Bitmap getBgBitmap(int width, int height) {
+        Bitmap source = getBgBitmap();
+        if (source == null || width <= 0 || height <= 0) {
+            return null;
+        }
+        if (source.getWidth() == width && source.getHeight() == height) {
+            return source;
+        }
+        if (scaledBgBitmap == null || scaledBgBitmap.isRecycled()
+                || scaledBgBitmap.getWidth() != width || scaledBgBitmap.getHeight() != height) {
+            scaledBgBitmap = Bitmap.createScaledBitmap(source, width, height, true);
+        }
+        return scaledBgBitmap;
+    }
+
     private Bitmap resetBgBitmap() {
         if (!TextUtils.isEmpty(bgPath)) {
             return BitmapUtil.getBitmap(bgPath, 1080, 1920);
@@ -472,6 +494,9 @@ public class ReadBookControl {
     }
 
     public void setTextConvert(int textConvert) {
+        if (this.textConvert != textConvert) {
+            ChapterTextCache.INSTANCE.invalidate();
+        }
         this.textConvert = textConvert;
         SharedPreferences.Editor editor = readPreference.edit();
         editor.putInt("textConvertInt", textConvert);
@@ -496,6 +521,13 @@ public class ReadBookControl {
         return fontPath;
     }
 
+    /**
+     * 用户自定义的本地 TXT 章节名正则，每行一个，在设置中编辑(pk_txt_chapter_patterns)
+     */
+    public String getTxtChapterPatterns() {
+        return readPreference.getString("txtChapterPatterns", "");
+    }
+
     public int getTextConvert() {
         return textConvert == -1 ? 2 : textConvert;
     }
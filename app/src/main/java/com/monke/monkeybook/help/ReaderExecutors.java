@@ -0,0 +1,138 @@
+package com.monke.monkeybook.help;
+
+import androidx.annotation.NonNull;
+
+import java.util.concurrent.Executor;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import io.reactivex.Scheduler;
+import io.reactivex.schedulers.Schedulers;
+
+/**
+ * 阅读器共享的线程池，按任务类型分为排版、磁盘、网络三个有界通道
+ * 同一通道内前台任务优先于预加载任务执行，空闲线程会自动回收
+ */
+public final class ReaderExecutors {
+
+    public enum Lane {
+        //分页排版
+        CPU(Math.max(2, Math.min(4, Runtime.getRuntime().availableProcessors() - 1))),
+        //本地文件读取、分章
+        DISK(2),
+        //章节内容下载
+        NETWORK(6);
+
+        private final int threads;
+
+        Lane(int threads) {
+            this.threads = threads;
+        }
+    }
+
+    public enum Priority {
+        //当前显示的页面
+        FOREGROUND,
+        //相邻章节预加载
+        PREFETCH,
+        //其他后台任务
+        BACKGROUND
+    }
+
+    private static final long KEEP_ALIVE_SECONDS = 30;
+
+    private static final AtomicLong SEQUENCE = new AtomicLong();
+
+    private static final ThreadPoolExecutor[] EXECUTORS = new ThreadPoolExecutor[Lane.values().length];
+    private static final Scheduler[][] SCHEDULERS = new Scheduler[Lane.values().length][Priority.values().length];
+
+    private ReaderExecutors() {
+
+    }
+
+    public static synchronized Scheduler get(Lane lane, Priority priority) {
+        Scheduler scheduler = SCHEDULERS[lane.ordinal()][priority.ordinal()];
+        if (scheduler == null) {
+            scheduler = Schedulers.from(executor(lane, priority));
+            SCHEDULERS[lane.ordinal()][priority.ordinal()] = scheduler;
+        }
+        return scheduler;
+    }
+
+    /**
+     * 直接提交任务用的 Executor，需要等待结果时配合 FutureTask 使用
+     */
+    public static synchronized Executor executor(Lane lane, Priority priority) {
+        final ThreadPoolExecutor executor = getExecutor(lane);
+        return command -> executor.execute(new PriorityTask(command, priority));
+    }
+
+    /**
+     * 当前线程是否属于指定通道，用于防止在通道内同步等待同一通道的任务
+     */
+    public static boolean isOnLane(Lane lane) {
+        return Thread.currentThread().getName().startsWith(threadPrefix(lane));
+    }
+
+    private static String threadPrefix(Lane lane) {
+        return "Reader-" + lane.name().toLowerCase() + "-";
+    }
+
+    private static ThreadPoolExecutor getExecutor(Lane lane) {
+        ThreadPoolExecutor executor = EXECUTORS[lane.ordinal()];
+        if (executor == null) {
+            executor = new ThreadPoolExecutor(lane.threads, lane.threads,
+                    KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                    new PriorityBlockingQueue<>(),
+                    new LaneThreadFactory(lane));
+            executor.allowCoreThreadTimeOut(true);
+            EXECUTORS[lane.ordinal()] = executor;
+        }
+        return executor;
+    }
+
+    private static class PriorityTask implements Runnable, Comparable<PriorityTask> {
+        private final Runnable runnable;
+        private final int priority;
+        private final long sequence;
+
+        PriorityTask(Runnable runnable, Priority priority) {
+            this.runnable = runnable;
+            this.priority = priority.ordinal();
+            this.sequence = SEQUENCE.getAndIncrement();
+        }
+
+        @Override
+        public void run() {
+            runnable.run();
+        }
+
+        @Override
+        public int compareTo(@NonNull PriorityTask o) {
+            if (priority != o.priority) {
+                return priority < o.priority ? -1 : 1;
+            }
+            return Long.compare(sequence, o.sequence);
+        }
+    }
+
+    private static class LaneThreadFactory implements ThreadFactory {
+        private final String prefix;
+        private final AtomicInteger count = new AtomicInteger();
+
+        LaneThreadFactory(Lane lane) {
+            this.prefix = threadPrefix(lane);
+        }
+
+        @Override
+        public Thread newThread(@NonNull Runnable r) {
+            Thread thread = new Thread(r, prefix + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
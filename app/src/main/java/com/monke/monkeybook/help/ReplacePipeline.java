@@ -0,0 +1,350 @@
+package com.monke.monkeybook.help;
+
+import com.monke.monkeybook.bean.ReplaceRuleBean;
+import com.monke.monkeybook.utils.MD5Utils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * 预编译的替换净化流程
+ * 1. 正则规则只编译一次
+ * 2. 相邻的纯文本规则合并为一次多模式匹配(Aho–Corasick)
+ * 3. useTo 过滤按书缓存，每本书只解析一次
+ */
+public class ReplacePipeline {
+
+    public static final ReplacePipeline EMPTY = new ReplacePipeline(Collections.emptyList());
+
+    //替换方式变化时修改，使按旧方式缓存的章节失效
+    private static final int FORMAT_VERSION = 2;
+
+    private final List<Rule> mRules;
+
+    private final String mVersion;
+
+    private final Map<String, Processor> mProcessors = new HashMap<>();
+
+    public ReplacePipeline(List<ReplaceRuleBean> ruleBeans) {
+        mRules = new ArrayList<>(ruleBeans.size());
+        StringBuilder signature = new StringBuilder().append(FORMAT_VERSION).append('\u0001');
+        for (ReplaceRuleBean bean : ruleBeans) {
+            Rule rule = Rule.compile(bean);
+            if (rule != null) {
+                mRules.add(rule);
+                signature.append(bean.getIsRegex()).append('\u0000')
+                        .append(bean.getRegex()).append('\u0000')
+                        .append(bean.getReplacement()).append('\u0000')
+                        .append(bean.getUseTo()).append('\u0001');
+            }
+        }
+        mVersion = mRules.isEmpty() ? "0" : MD5Utils.strToMd5By16(signature.toString());
+    }
+
+    public boolean isEmpty() {
+        return mRules.isEmpty();
+    }
+
+    /**
+     * 规则集的版本，由规则内容计算，进程重启后保持不变
+     */
+    public String getVersion() {
+        return mVersion;
+    }
+
+    public Processor forBook(String bookName, String bookTag) {
+        final String key = bookName + "\u0000" + bookTag;
+        synchronized (mProcessors) {
+            Processor processor = mProcessors.get(key);
+            if (processor == null) {
+                processor = new Processor(mRules, bookName, bookTag);
+                mProcessors.put(key, processor);
+            }
+            return processor;
+        }
+    }
+
+    public static class Processor {
+
+        private final List<Step> mSteps = new ArrayList<>();
+
+        private Processor(List<Rule> rules, String bookName, String bookTag) {
+            LiteralStep literals = null;
+            for (Rule rule : rules) {
+                if (!rule.isUseTo(bookName, bookTag)) {
+                    continue;
+                }
+                if (rule.pattern != null) {
+                    literals = null;
+                    mSteps.add(new RegexStep(rule.pattern, rule.replacement));
+                } else if (literals == null || !literals.accept(rule.target, rule.replacement)) {
+                    literals = new LiteralStep(rule.target, rule.replacement);
+                    mSteps.add(literals);
+                }
+            }
+            for (Step step : mSteps) {
+                if (step instanceof LiteralStep) {
+                    ((LiteralStep) step).build();
+                }
+            }
+        }
+
+        public boolean isEmpty() {
+            return mSteps.isEmpty();
+        }
+
+        public String apply(String content) {
+            if (content == null) {
+                return null;
+            }
+            for (Step step : mSteps) {
+                try {
+                    content = step.apply(content).trim();
+                } catch (Exception ignored) {
+                }
+            }
+            return content;
+        }
+
+        /**
+         * 按段落逐行替换，与原先每段单独替换的结果一致
+         */
+        public String applyByLine(String content) {
+            if (content == null) {
+                return null;
+            }
+            final StringBuilder builder = new StringBuilder(content.length());
+            int start = 0;
+            final int length = content.length();
+            while (start < length) {
+                int end = content.indexOf('\n', start);
+                if (end < 0) {
+                    end = length;
+                }
+                builder.append(apply(content.substring(start, end))).append('\n');
+                start = end + 1;
+            }
+            return builder.toString();
+        }
+    }
+
+    private static class Rule {
+        private final String useTo;
+        private final Pattern pattern;
+        private final String target;
+        private final String replacement;
+
+        private Rule(String useTo, Pattern pattern, String target, String replacement) {
+            this.useTo = useTo;
+            this.pattern = pattern;
+            this.target = target;
+            this.replacement = replacement;
+        }
+
+        private static Rule compile(ReplaceRuleBean bean) {
+            final String regex = bean.getRegex();
+            if (regex == null || regex.isEmpty()) {
+                return null;
+            }
+            final String replacement = bean.getReplacement() == null ? "" : bean.getReplacement();
+            try {
+                //替换内容中含有$或\时仍按正则替换处理，保持原有语义
+                if (bean.getIsRegex() || replacement.indexOf('$') >= 0 || replacement.indexOf('\\') >= 0) {
+                    Pattern pattern = Pattern.compile(bean.getFixedRegex());
+                    return new Rule(bean.getUseTo(), pattern, null, replacement);
+                }
+                return new Rule(bean.getUseTo(), null, regex, replacement);
+            } catch (Exception ignored) {
+                return null;
+            }
+        }
+
+        private boolean isUseTo(String bookName, String bookTag) {
+            return useTo == null || useTo.isEmpty()
+                    || useTo.contains(bookTag)
+                    || useTo.contains(bookName);
+        }
+    }
+
+    private interface Step {
+        String apply(String content);
+    }
+
+    private static class RegexStep implements Step {
+        private final Pattern pattern;
+        private final String replacement;
+
+        private RegexStep(Pattern pattern, String replacement) {
+            this.pattern = pattern;
+            this.replacement = replacement;
+        }
+
+        @Override
+        public String apply(String content) {
+            return pattern.matcher(content).replaceAll(replacement);
+        }
+    }
+
+    /**
+     * 多个纯文本规则一次扫描完成替换，同一位置优先取最长匹配
+     */
+    private static class LiteralStep implements Step {
+        private final List<String> targets = new ArrayList<>();
+        private final List<String> replacements = new ArrayList<>();
+
+        private final List<Node> nodes = new ArrayList<>();
+
+        private LiteralStep(String target, String replacement) {
+            targets.add(target);
+            replacements.add(replacement);
+        }
+
+        /**
+         * 只有一次扫描与逐条替换结果相同时才合并：
+         * 替换为空会让两侧文字拼成新的匹配，目标互相重叠时匹配位置会变，
+         * 前面规则的替换结果可能被后面的规则再次匹配，首尾空白会受每条规则后的 trim 影响
+         */
+        private boolean accept(String target, String replacement) {
+            if (!isMergeable(target, replacement)) {
+                return false;
+            }
+            for (int i = 0, size = targets.size(); i < size; i++) {
+                if (!isMergeable(targets.get(i), replacements.get(i))
+                        || overlaps(targets.get(i), target)
+                        || overlaps(replacements.get(i), target)) {
+                    return false;
+                }
+            }
+            targets.add(target);
+            replacements.add(replacement);
+            return true;
+        }
+
+        private static boolean isMergeable(String target, String replacement) {
+            return !replacement.isEmpty() && isTrimmed(target) && isTrimmed(replacement);
+        }
+
+        private static boolean isTrimmed(String text) {
+            return text.charAt(0) > ' ' && text.charAt(text.length() - 1) > ' ';
+        }
+
+        /**
+         * 两个字符串在文本中出现时是否可能有重叠部分
+         */
+        private static boolean overlaps(String first, String second) {
+            if (first.contains(second) || second.contains(first)) {
+                return true;
+            }
+            int max = Math.min(first.length(), second.length());
+            for (int len = 1; len < max; len++) {
+                if (first.regionMatches(first.length() - len, second, 0, len)
+                        || second.regionMatches(second.length() - len, first, 0, len)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private void build() {
+            nodes.clear();
+            nodes.add(new Node());
+            for (int i = 0, size = targets.size(); i < size; i++) {
+                String target = targets.get(i);
+                int cur = 0;
+                for (int j = 0, len = target.length(); j < len; j++) {
+                    char c = target.charAt(j);
+                    Integer next = nodes.get(cur).next.get(c);
+                    if (next == null) {
+                        next = nodes.size();
+                        nodes.add(new Node());
+                        nodes.get(cur).next.put(c, next);
+                    }
+                    cur = next;
+                }
+                Node end = nodes.get(cur);
+                //相同目标只保留第一条规则
+                if (end.rule < 0) {
+                    end.rule = i;
+                    end.depth = target.length();
+                }
+            }
+            //BFS 构建失败指针与输出链接
+            List<Integer> queue = new ArrayList<>();
+            for (Integer child : nodes.get(0).next.values()) {
+                queue.add(child);
+            }
+            for (int head = 0; head < queue.size(); head++) {
+                int index = queue.get(head);
+                Node node = nodes.get(index);
+                node.output = nodes.get(node.fail).rule >= 0 ? node.fail : nodes.get(node.fail).output;
+                for (Map.Entry<Character, Integer> entry : node.next.entrySet()) {
+                    int child = entry.getValue();
+                    int fail = node.fail;
+                    Integer target = nodes.get(fail).next.get(entry.getKey());
+                    while (target == null && fail != 0) {
+                        fail = nodes.get(fail).fail;
+                        target = nodes.get(fail).next.get(entry.getKey());
+                    }
+                    nodes.get(child).fail = target == null || target == child ? 0 : target;
+                    queue.add(child);
+                }
+            }
+        }
+
+        @Override
+        public String apply(String content) {
+            final int length = content.length();
+            //每个起点上最长匹配的结束位置和规则
+            int[] matchEnd = null;
+            int[] matchRule = null;
+            int cur = 0;
+            for (int i = 0; i < length; i++) {
+                char c = content.charAt(i);
+                Integer next = nodes.get(cur).next.get(c);
+                while (next == null && cur != 0) {
+                    cur = nodes.get(cur).fail;
+                    next = nodes.get(cur).next.get(c);
+                }
+                cur = next == null ? 0 : next;
+                for (int out = nodes.get(cur).rule >= 0 ? cur : nodes.get(cur).output; out > 0; out = nodes.get(out).output) {
+                    Node node = nodes.get(out);
+                    int start = i + 1 - node.depth;
+                    if (matchEnd == null) {
+                        matchEnd = new int[length];
+                        matchRule = new int[length];
+                    }
+                    if (matchEnd[start] < i + 1) {
+                        matchEnd[start] = i + 1;
+                        matchRule[start] = node.rule;
+                    }
+                }
+            }
+            if (matchEnd == null) {
+                return content;
+            }
+            StringBuilder builder = new StringBuilder(length);
+            int i = 0;
+            while (i < length) {
+                if (matchEnd[i] > i) {
+                    builder.append(replacements.get(matchRule[i]));
+                    i = matchEnd[i];
+                } else {
+                    builder.append(content.charAt(i++));
+                }
+            }
+            return builder.toString();
+        }
+    }
+
+    private static class Node {
+        private final Map<Character, Integer> next = new HashMap<>();
+        private int fail;
+        private int output;
+        private int rule = -1;
+        private int depth;
+    }
+}
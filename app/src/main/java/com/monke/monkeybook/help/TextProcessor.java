@@ -2,6 +2,7 @@ package com.monke.monkeybook.help;
 
 import android.text.TextUtils;
 
+import com.monke.monkeybook.utils.PatternCache;
 import com.monke.monkeybook.utils.StringUtils;
 
 import java.util.regex.Matcher;
@@ -25,17 +26,19 @@ public class TextProcessor {
 
     private static final String SPECIAL_PATTERN = "^.{0,20}[卷篇集].*?[\\d零〇一二两三四五六七八九十百千万]+[章节回场][\\s、,，。　：:._]?";
 
+    private static final String BLANK_PATTERN = "\\s+";
+
     private TextProcessor() {
 
     }
 
     public static int guessChapterNum(String chapterName) {
-        if (TextUtils.isEmpty(chapterName)) {
+        if (StringUtils.isBlank(chapterName)) {
             return -1;
         }
 
-        chapterName = StringUtils.trim(StringUtils.fullToHalf(chapterName)
-                .replaceAll("\\s+", " "));
+        chapterName = StringUtils.trim(PatternCache.replaceAll(StringUtils.fullToHalf(chapterName),
+                BLANK_PATTERN, " "));
 
 
         if (isMatches(chapterName, SPECIAL_PATTERN)) {
@@ -43,8 +46,7 @@ public class TextProcessor {
         }
 
         for (int i = 0; i < CHAPTER_PATTERNS.length; i++) {
-            String chapterPattern = CHAPTER_PATTERNS[i];
-            Pattern pattern = Pattern.compile(chapterPattern, Pattern.MULTILINE);
+            Pattern pattern = PatternCache.get(CHAPTER_PATTERNS[i], Pattern.MULTILINE);
             Matcher matcher = pattern.matcher(chapterName);
             if (matcher.find()) {
                 int num = StringUtils.stringToInt(matcher.group(i == 2 || i == 3 ? 1 : 2));
@@ -57,26 +59,24 @@ public class TextProcessor {
     }
 
     private static boolean isMatches(String str, String regex) {
-        Pattern pattern = Pattern.compile(regex);
-        Matcher matcher = pattern.matcher(str);
+        Matcher matcher = PatternCache.get(regex).matcher(str);
         return matcher.find();
     }
 
     public static String formatChapterName(String chapterName) {
-        if (TextUtils.isEmpty(chapterName)) {
+        if (StringUtils.isBlank(chapterName)) {
             return "";
         }
 
-        chapterName = StringUtils.trim(StringUtils.fullToHalf(chapterName)
-                .replaceAll("\\s+", " "));
+        chapterName = StringUtils.trim(PatternCache.replaceAll(StringUtils.fullToHalf(chapterName),
+                BLANK_PATTERN, " "));
 
         if (isMatches(chapterName, SPECIAL_PATTERN)) {
             return chapterName;
         }
 
         for (int i = 0; i < CHAPTER_PATTERNS.length; i++) {
-            String chapterPattern = CHAPTER_PATTERNS[i];
-            Pattern pattern = Pattern.compile(chapterPattern, Pattern.MULTILINE);
+            Pattern pattern = PatternCache.get(CHAPTER_PATTERNS[i], Pattern.MULTILINE);
             Matcher matcher = pattern.matcher(chapterName);
             if (matcher.find()) {
                 String group = matcher.group(i == 2 || i == 3 ? 1 : 2);
@@ -98,7 +98,7 @@ public class TextProcessor {
 
         str = StringUtils.fullToHalf(str);
 
-        return StringUtils.trim(str.replaceAll("\\s+", " "));
+        return StringUtils.trim(PatternCache.replaceAll(str, BLANK_PATTERN, " "));
     }
 
     public static String formatAuthorName(String str) {
@@ -3,16 +3,28 @@ package com.monke.monkeybook.model;
 
 import com.monke.basemvplib.BaseModelImpl;
 import com.monke.monkeybook.bean.BookShelfBean;
+import com.monke.monkeybook.bean.ImportProgressBean;
 import com.monke.monkeybook.bean.LocBookShelfBean;
 import com.monke.monkeybook.help.BookshelfHelp;
 import com.monke.monkeybook.help.FileHelp;
+import com.monke.monkeybook.help.ReaderExecutors;
 import com.monke.monkeybook.model.impl.IImportBookModel;
+import com.monke.monkeybook.widget.page.LocalBookParser;
 
 import java.io.File;
+import java.nio.MappedByteBuffer;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import io.reactivex.Observable;
 
 public class ImportBookModelImpl extends BaseModelImpl implements IImportBookModel {
+    //同时分章的书籍数，DISK 只有两个线程且不会抢占正在执行的任务，留一个给阅读页读取章节
+    private static final int MAX_PARSE_CONCURRENCY = 1;
 
     private ImportBookModelImpl() {
 
@@ -46,36 +58,109 @@ public class ImportBookModelImpl extends BaseModelImpl implements IImportBookMod
     }
 
 
+    /**
+     * 批量导入：展开文件夹，跳过已在书架中的书，并行分章后在一个事务中保存
+     * 分章结果只写入分章缓存，首次打开时直接使用，不在内存中保留章节列表
+     */
+    @Override
+    public Observable<ImportProgressBean> importBooks(final List<File> files) {
+        return Observable.<List<File>>create(e -> {
+            Map<String, File> txtFiles = new LinkedHashMap<>();
+            for (File file : files) {
+                collectTxtFiles(file, txtFiles);
+            }
+            Set<String> existing = BookshelfHelp.queryExistingNoteUrls(new ArrayList<>(txtFiles.keySet()));
+            List<File> newFiles = new ArrayList<>();
+            for (Map.Entry<String, File> entry : txtFiles.entrySet()) {
+                if (!existing.contains(entry.getKey())) {
+                    newFiles.add(entry.getValue());
+                }
+            }
+            e.onNext(newFiles);
+            e.onComplete();
+        }).flatMap(newFiles -> {
+            final int total = newFiles.size();
+            final AtomicInteger finished = new AtomicInteger();
+            final List<BookShelfBean> books = new ArrayList<>();
+            return Observable.fromIterable(newFiles)
+                    .flatMap(file -> Observable.fromCallable(() -> parseTxtFile(file, books))
+                            .subscribeOn(ReaderExecutors.get(ReaderExecutors.Lane.DISK, ReaderExecutors.Priority.BACKGROUND)),
+                            MAX_PARSE_CONCURRENCY)
+                    .map(file -> new ImportProgressBean(finished.incrementAndGet(), total))
+                    .concatWith(Observable.fromCallable(() -> {
+                        BookshelfHelp.saveBooksToShelf(books);
+                        return new ImportProgressBean(total, books);
+                    }));
+        });
+    }
+
+    private static void collectTxtFiles(File file, Map<String, File> txtFiles) {
+        if (file.isDirectory()) {
+            File[] children = file.listFiles();
+            if (children != null) {
+                for (File child : children) {
+                    collectTxtFiles(child, txtFiles);
+                }
+            }
+        } else if (file.getName().toLowerCase().endsWith(FileHelp.SUFFIX_TXT)) {
+            txtFiles.put(file.getAbsolutePath(), file);
+        }
+    }
+
+    /**
+     * 检测编码并分章，结果写入分章缓存，书籍只记录章节数
+     * 分章在后台优先级下进行，不影响正在阅读的书；分章失败的书仍然导入，与单本导入一样在首次打开时再分章
+     */
+    private static File parseTxtFile(File file, List<BookShelfBean> books) {
+        BookShelfBean bookShelfBean = newBookForTxtFile(file);
+        try {
+            MappedByteBuffer book = LocalBookParser.map(file);
+            int chapterSize = new LocalBookParser(file, LocalBookParser.detectCharset(file, bookShelfBean.getBookInfoBean()),
+                    bookShelfBean.getBookInfoBean(), ReaderExecutors.Priority.BACKGROUND).parse(book, null).size();
+            bookShelfBean.setChapterListSize(chapterSize);
+        } catch (Exception ignored) {
+        }
+        synchronized (books) {
+            books.add(bookShelfBean);
+        }
+        return file;
+    }
+
     private LocBookShelfBean getBookForTxtFile(File file) {
         //判断文件是否存在
         boolean isNew = false;
         BookShelfBean bookShelfBean = BookshelfHelp.querySimpleBookByUrl(file.getAbsolutePath());
         if (bookShelfBean == null) {
             isNew = true;
-            bookShelfBean = new BookShelfBean();
-            bookShelfBean.setGroup(3);
-            bookShelfBean.setHasUpdate(true);
-            bookShelfBean.setFinalDate(System.currentTimeMillis());
-            bookShelfBean.setDurChapter(0);
-            bookShelfBean.setDurChapterPage(0);
-            bookShelfBean.setTag(BookShelfBean.LOCAL_TAG);
-            bookShelfBean.setNoteUrl(file.getAbsolutePath());
-
-            String fileName = file.getName().replace(".txt", "").replace(".TXT", "");
-            int authorIndex = fileName.indexOf("作者");
-            if (authorIndex != -1) {
-                bookShelfBean.getBookInfoBean().setAuthor(fileName.substring(authorIndex));
-                bookShelfBean.getBookInfoBean().setName(fileName.substring(0, authorIndex));
-            } else {
-                bookShelfBean.getBookInfoBean().setAuthor("");
-                bookShelfBean.getBookInfoBean().setName(fileName);
-            }
-
-            bookShelfBean.getBookInfoBean().setFinalRefreshData(file.lastModified());
-            bookShelfBean.getBookInfoBean().setCoverUrl("");
-            bookShelfBean.getBookInfoBean().setNoteUrl(file.getAbsolutePath());
-            bookShelfBean.getBookInfoBean().setTag(BookShelfBean.LOCAL_TAG);
+            bookShelfBean = newBookForTxtFile(file);
         }
         return new LocBookShelfBean(isNew, bookShelfBean);
     }
+
+    private static BookShelfBean newBookForTxtFile(File file) {
+        BookShelfBean bookShelfBean = new BookShelfBean();
+        bookShelfBean.setGroup(3);
+        bookShelfBean.setHasUpdate(true);
+        bookShelfBean.setFinalDate(System.currentTimeMillis());
+        bookShelfBean.setDurChapter(0);
+        bookShelfBean.setDurChapterPage(0);
+        bookShelfBean.setTag(BookShelfBean.LOCAL_TAG);
+        bookShelfBean.setNoteUrl(file.getAbsolutePath());
+
+        String fileName = file.getName().replace(".txt", "").replace(".TXT", "");
+        int authorIndex = fileName.indexOf("作者");
+        if (authorIndex != -1) {
+            bookShelfBean.getBookInfoBean().setAuthor(fileName.substring(authorIndex));
+            bookShelfBean.getBookInfoBean().setName(fileName.substring(0, authorIndex));
+        } else {
+            bookShelfBean.getBookInfoBean().setAuthor("");
+            bookShelfBean.getBookInfoBean().setName(fileName);
+        }
+
+        bookShelfBean.getBookInfoBean().setFinalRefreshData(file.lastModified());
+        bookShelfBean.getBookInfoBean().setCoverUrl("");
+        bookShelfBean.getBookInfoBean().setNoteUrl(file.getAbsolutePath());
+        bookShelfBean.getBookInfoBean().setTag(BookShelfBean.LOCAL_TAG);
+        return bookShelfBean;
+    }
 }
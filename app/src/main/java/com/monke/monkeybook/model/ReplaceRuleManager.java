@@ -5,6 +5,8 @@ import com.monke.basemvplib.BaseModelImpl;
 import com.monke.monkeybook.bean.ReplaceRuleBean;
 import com.monke.monkeybook.dao.DbHelper;
 import com.monke.monkeybook.dao.ReplaceRuleBeanDao;
+import com.monke.monkeybook.help.ChapterTextCache;
+import com.monke.monkeybook.help.ReplacePipeline;
 import com.monke.monkeybook.model.analyzeRule.AnalyzeUrl;
 import com.monke.monkeybook.model.analyzeRule.assit.Assistant;
 import com.monke.monkeybook.utils.StringUtils;
@@ -26,7 +28,9 @@ public class ReplaceRuleManager extends BaseModelImpl {
 
     private static List<ReplaceRuleBean> sReplaceRuleBeansEnabled;
 
-    public static List<ReplaceRuleBean> getEnabled() {
+    private static ReplacePipeline sReplacePipeline;
+
+    public static synchronized List<ReplaceRuleBean> getEnabled() {
         if (sReplaceRuleBeansEnabled == null) {
             sReplaceRuleBeansEnabled = DbHelper.getInstance().getDaoSession()
                     .getReplaceRuleBeanDao().queryBuilder()
@@ -37,16 +41,29 @@ public class ReplaceRuleManager extends BaseModelImpl {
         return sReplaceRuleBeansEnabled;
     }
 
+    /**
+     * 获取预编译的替换流程，规则变化后重新构建
+     */
+    public static synchronized ReplacePipeline getPipeline() {
+        if (sReplacePipeline == null) {
+            List<ReplaceRuleBean> enabled = getEnabled();
+            sReplacePipeline = enabled.isEmpty() ? ReplacePipeline.EMPTY : new ReplacePipeline(enabled);
+        }
+        return sReplacePipeline;
+    }
+
+    private static synchronized void invalidate() {
+        sReplaceRuleBeansEnabled = null;
+        sReplacePipeline = null;
+        ChapterTextCache.INSTANCE.invalidate();
+    }
+
     public static long getEnabledCount() {
         return getEnabled().size();
     }
 
     public static List<ReplaceRuleBean> getAll() {
-        sReplaceRuleBeansEnabled = DbHelper.getInstance().getDaoSession()
-                .getReplaceRuleBeanDao().queryBuilder()
-                .where(ReplaceRuleBeanDao.Properties.Enable.eq(true))
-                .orderAsc(ReplaceRuleBeanDao.Properties.SerialNumber)
-                .list();
+        invalidate();
 
         return DbHelper.getInstance().getDaoSession()
                 .getReplaceRuleBeanDao().queryBuilder()
@@ -60,16 +77,19 @@ public class ReplaceRuleManager extends BaseModelImpl {
             replaceRuleBean.setSerialNumber((int) count + 1);
         }
         DbHelper.getInstance().getDaoSession().getReplaceRuleBeanDao().insertOrReplace(replaceRuleBean);
+        invalidate();
     }
 
     public static void delete(ReplaceRuleBean replaceRuleBean) {
         if (replaceRuleBean == null) return;
         DbHelper.getInstance().getDaoSession().getReplaceRuleBeanDao().delete(replaceRuleBean);
+        invalidate();
     }
 
     public static void saveAll(List<ReplaceRuleBean> replaceRuleBeans) {
         if (replaceRuleBeans != null && replaceRuleBeans.size() > 0) {
             DbHelper.getInstance().getDaoSession().getReplaceRuleBeanDao().insertOrReplaceInTx(replaceRuleBeans);
+            invalidate();
         }
     }
 
@@ -77,6 +97,7 @@ public class ReplaceRuleManager extends BaseModelImpl {
         for (ReplaceRuleBean replaceRuleBean : replaceRuleBeans) {
             DbHelper.getInstance().getDaoSession().getReplaceRuleBeanDao().delete(replaceRuleBean);
         }
+        invalidate();
     }
 
     public static Observable<Boolean> importFromNet(String url) {
@@ -0,0 +1,146 @@
+package com.monke.monkeybook.model;
+
+import com.monke.basemvplib.HostMetrics;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.SocketTimeoutException;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import io.reactivex.Observable;
+import io.reactivex.ObservableSource;
+import io.reactivex.functions.Function;
+import io.reactivex.schedulers.Schedulers;
+
+/**
+ * 网络请求的重试策略
+ * 只重试超时、网络错误、408、429 和 5xx，解析错误不重试；重试间隔按指数增长并加入随机抖动，
+ * 429/503 优先使用服务器给出的 Retry-After；每个请求的重试次数和累计等待时间都有上限
+ */
+public class RetryPolicy {
+
+    public static final RetryPolicy DEFAULT = new RetryPolicy(2, 500, 8000, 15000);
+    public static final RetryPolicy NONE = new RetryPolicy(0, 0, 0, 0);
+
+    private static final Random RANDOM = new Random();
+
+    private final int maxRetries;
+    private final long baseDelayMillis;
+    private final long maxDelayMillis;
+    //单个请求累计等待时间的上限
+    private final long budgetMillis;
+
+    public RetryPolicy(int maxRetries, long baseDelayMillis, long maxDelayMillis, long budgetMillis) {
+        this.maxRetries = maxRetries;
+        this.baseDelayMillis = baseDelayMillis;
+        this.maxDelayMillis = maxDelayMillis;
+        this.budgetMillis = budgetMillis;
+    }
+
+    /**
+     * 是否需要重试的 HTTP 状态码
+     */
+    public static boolean isRetryableStatus(int code) {
+        return code == 408 || code == 429 || code >= 500;
+    }
+
+    /**
+     * 包括所有重试在内，一个请求最长的耗时
+     *
+     * @param attemptMillis 单次请求最长的耗时
+     */
+    public long maxTotalMillis(long attemptMillis) {
+        return (maxRetries + 1) * attemptMillis + budgetMillis;
+    }
+
+    /**
+     * 用于 retryWhen，每次订阅单独计算重试次数和等待时间
+     *
+     * @param host 记录重试次数的域名
+     */
+    public Function<Observable<Throwable>, ObservableSource<?>> toRetryHandler(String host) {
+        return errors -> {
+            final int[] attempts = {0};
+            final long[] waited = {0};
+            return errors.flatMap(error -> {
+                long delay = nextDelay(error, attempts[0] + 1);
+                if (delay < 0 || waited[0] + delay > budgetMillis) {
+                    return Observable.error(error);
+                }
+                attempts[0]++;
+                waited[0] += delay;
+                HostMetrics.getInstance().recordRetry(host);
+                return Observable.timer(delay, TimeUnit.MILLISECONDS, Schedulers.io());
+            });
+        };
+    }
+
+    /**
+     * 第 attempt 次重试前的等待时间，不应重试时返回 -1
+     */
+    long nextDelay(Throwable error, int attempt) {
+        if (attempt > maxRetries || !isRetryable(error)) {
+            return -1;
+        }
+        if (error instanceof HttpStatusException) {
+            long retryAfter = ((HttpStatusException) error).getRetryAfterMillis();
+            if (retryAfter >= 0) {
+                return retryAfter;
+            }
+        }
+        //指数退避，在 [delay/2, delay] 之间随机
+        long delay = Math.min(maxDelayMillis, baseDelayMillis << Math.min(attempt - 1, 16));
+        return delay / 2 + (long) (RANDOM.nextDouble() * (delay / 2));
+    }
+
+    private static boolean isRetryable(Throwable error) {
+        if (error instanceof HttpStatusException) {
+            return isRetryableStatus(((HttpStatusException) error).getCode());
+        }
+        if (error instanceof SocketTimeoutException) {
+            return true;
+        }
+        //其它 InterruptedIOException 来自取消的请求，不重试
+        return error instanceof IOException && !(error instanceof InterruptedIOException);
+    }
+
+    /**
+     * 需要重试的 HTTP 状态，重试用尽后由调用者决定如何处理响应
+     */
+    public static class HttpStatusException extends IOException {
+        private final int code;
+        private final long retryAfterMillis;
+        private final Object response;
+
+        public HttpStatusException(int code, String retryAfter, Object response) {
+            super("HTTP " + code);
+            this.code = code;
+            this.retryAfterMillis = parseRetryAfter(retryAfter);
+            this.response = response;
+        }
+
+        public int getCode() {
+            return code;
+        }
+
+        long getRetryAfterMillis() {
+            return retryAfterMillis;
+        }
+
+        @SuppressWarnings("unchecked")
+        public <T> T getResponse() {
+            return (T) response;
+        }
+
+        private static long parseRetryAfter(String value) {
+            if (value != null) {
+                try {
+                    return Math.max(0, Long.parseLong(value.trim()) * 1000);
+                } catch (NumberFormatException ignored) {
+                }
+            }
+            return -1;
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package com.monke.monkeybook.model;
 
 
+import com.monke.basemvplib.HostMetrics;
 import com.monke.basemvplib.OkHttpHelper;
 import com.monke.monkeybook.model.analyzeRule.AnalyzeUrl;
 import com.monke.monkeybook.model.impl.IHttpGetApi;
@@ -13,6 +14,28 @@ public class SimpleModel {
 
 
     public static Observable<Response<String>> getResponse(AnalyzeUrl analyzeUrl) {
+        return getResponse(analyzeUrl, RetryPolicy.DEFAULT);
+    }
+
+    /**
+     * 按重试策略请求，重试用尽后仍返回最后一次的响应，由调用者处理错误码
+     */
+    public static Observable<Response<String>> getResponse(AnalyzeUrl analyzeUrl, RetryPolicy retryPolicy) {
+        return request(analyzeUrl)
+                .flatMap(response -> RetryPolicy.isRetryableStatus(response.code())
+                        ? Observable.<Response<String>>error(new RetryPolicy.HttpStatusException(response.code(),
+                        response.headers().get("Retry-After"), response))
+                        : Observable.just(response))
+                .retryWhen(retryPolicy.toRetryHandler(HostMetrics.hostOf(analyzeUrl.getHost())))
+                .onErrorResumeNext(throwable -> {
+                    if (throwable instanceof RetryPolicy.HttpStatusException) {
+                        return Observable.just(((RetryPolicy.HttpStatusException) throwable).<Response<String>>getResponse());
+                    }
+                    return Observable.error(throwable);
+                });
+    }
+
+    private static Observable<Response<String>> request(AnalyzeUrl analyzeUrl) {
         try {
             switch (analyzeUrl.getRequestMethod()) {
                 case POST:
@@ -0,0 +1,81 @@
+package com.monke.monkeybook.model;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 书源熔断：连续失败达到次数后一段时间内跳过该书源，搜索和发现共用
+ * 冷却结束后放行一次请求，成功则恢复，失败则冷却时间加倍
+ */
+public enum SourceCircuitBreaker {
+
+    INSTANCE;
+
+    //连续失败多少次后熔断
+    private static final int FAILURE_THRESHOLD = 3;
+    private static final long BASE_COOL_DOWN = TimeUnit.MINUTES.toMillis(2);
+    private static final long MAX_COOL_DOWN = TimeUnit.MINUTES.toMillis(30);
+
+    private static class State {
+        int failures;
+        long coolDown;
+        //熔断结束的时间，0 表示未熔断
+        long openUntil;
+        //冷却结束后是否已经放行了一次试探请求
+        boolean probing;
+    }
+
+    private final Map<String, State> mStates = new HashMap<>();
+
+    /**
+     * 是否允许请求该书源
+     */
+    public boolean allowRequest(String sourceUrl) {
+        return allowRequest(sourceUrl, System.currentTimeMillis());
+    }
+
+    synchronized boolean allowRequest(String sourceUrl, long now) {
+        State state = mStates.get(sourceUrl);
+        if (state == null || state.openUntil == 0) {
+            return true;
+        }
+        if (now < state.openUntil || state.probing) {
+            return false;
+        }
+        state.probing = true;
+        return true;
+    }
+
+    public synchronized void recordSuccess(String sourceUrl) {
+        mStates.remove(sourceUrl);
+    }
+
+    public void recordFailure(String sourceUrl) {
+        recordFailure(sourceUrl, System.currentTimeMillis());
+    }
+
+    synchronized void recordFailure(String sourceUrl, long now) {
+        State state = mStates.get(sourceUrl);
+        if (state == null) {
+            state = new State();
+            mStates.put(sourceUrl, state);
+        }
+        state.failures++;
+        if (state.probing || state.failures >= FAILURE_THRESHOLD) {
+            state.coolDown = state.coolDown == 0 ? BASE_COOL_DOWN : Math.min(MAX_COOL_DOWN, state.coolDown * 2);
+            state.openUntil = now + state.coolDown;
+            state.probing = false;
+        }
+    }
+
+    /**
+     * 试探请求被取消时放回，下次可以再次试探
+     */
+    public synchronized void recordCancel(String sourceUrl) {
+        State state = mStates.get(sourceUrl);
+        if (state != null) {
+            state.probing = false;
+        }
+    }
+}
@@ -12,6 +12,7 @@ import com.monke.monkeybook.model.analyzeRule.assit.JavaExecutor;
 import com.monke.monkeybook.model.analyzeRule.assit.SimpleJavaExecutor;
 import com.monke.monkeybook.model.analyzeRule.assit.SimpleJavaExecutorImpl;
 import com.monke.monkeybook.utils.ListUtils;
+import com.monke.monkeybook.utils.PatternCache;
 import com.monke.monkeybook.utils.StringUtils;
 import com.monke.monkeybook.utils.URLUtils;
 
@@ -84,10 +85,11 @@ abstract class BaseAnalyzerPresenter<S> implements IAnalyzerPresenter, JavaExecu
 
     final void processContentList(@NonNull List<String> list, @NonNull RulePattern rulePattern) {
         if (!isEmpty(rulePattern.replaceRegex)) {
+            Pattern pattern = PatternCache.get(rulePattern.replaceRegex);
             ListIterator<String> iterator = list.listIterator();
             while (iterator.hasNext()) {
                 String string = iterator.next();
-                iterator.set(string.replaceAll(rulePattern.replaceRegex, rulePattern.replacement));
+                iterator.set(pattern.matcher(string).replaceAll(rulePattern.replacement));
             }
         }
     }
@@ -104,15 +106,15 @@ abstract class BaseAnalyzerPresenter<S> implements IAnalyzerPresenter, JavaExecu
     final String processContent(@NonNull String result, @NonNull RulePattern rulePattern) {
         if (!isEmpty(rulePattern.replaceRegex)) {
             if (rulePattern.replaceGroup > -1) {
-                Pattern pattern = Pattern.compile(rulePattern.replaceRegex);
+                Pattern pattern = PatternCache.get(rulePattern.replaceRegex);
                 Matcher matcher = pattern.matcher(result);
                 if (matcher.find()) {
-                    result = matcher.group(rulePattern.replaceGroup).replaceFirst(rulePattern.replaceRegex, rulePattern.replacement);
+                    result = pattern.matcher(matcher.group(rulePattern.replaceGroup)).replaceFirst(rulePattern.replacement);
                 } else {
                     result = AnalyzeGlobal.EMPTY;
                 }
             } else {
-                result = result.replaceAll(rulePattern.replaceRegex, rulePattern.replacement);
+                result = PatternCache.replaceAll(result, rulePattern.replaceRegex, rulePattern.replacement);
             }
         }
         return result;
@@ -14,6 +14,7 @@ import com.monke.monkeybook.help.Logger;
 import com.monke.monkeybook.help.TextProcessor;
 import com.monke.monkeybook.model.SimpleModel;
 import com.monke.monkeybook.model.analyzeRule.assit.AnalyzeGlobal;
+import com.monke.monkeybook.utils.PatternCache;
 import com.monke.monkeybook.utils.StringUtils;
 
 import java.util.ArrayList;
@@ -22,7 +23,6 @@ import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 import io.reactivex.Observable;
 import io.reactivex.ObservableEmitter;
@@ -112,7 +112,7 @@ class DefaultContentDelegate implements ContentDelegate {
     }
 
     private void matchSearchListRegex(List<SearchBookBean> searchBooks, String res, String[] regs, int index) {
-        Matcher resM = Pattern.compile(regs[index]).matcher(res);
+        Matcher resM = PatternCache.get(regs[index]).matcher(res);
         // 判断索引的规则是最后一个规则
         if (index + 1 == regs.length) {
             // 获取规则列表
@@ -323,7 +323,6 @@ class DefaultContentDelegate implements ContentDelegate {
                             emitter.onNext(result);
                             emitter.onComplete();
                         }).observeOn(Schedulers.io())))
-                .retry(2)
                 .onErrorReturnItem(new WebChapterResult(index));
     }
 
@@ -415,17 +414,17 @@ class DefaultContentDelegate implements ContentDelegate {
      * 匹配正则表达式
      */
     private void matchChaptersRegex(String string, String noteUrl, String[] regex, int index, String nameRule, String urlRule, List<ChapterBean> chapterBeans) {
-        Matcher matcher = Pattern.compile(regex[index]).matcher(string);
+        Matcher matcher = PatternCache.get(regex[index]).matcher(string);
         if (index + 1 == regex.length) {
             String baseUrl = AnalyzeGlobal.EMPTY;
             int nameGroup = 0, urlGroup = 0;
             // 分离标题正则参数
-            Matcher nameMatcher = Pattern.compile("\\$(\\d$)").matcher(nameRule);
+            Matcher nameMatcher = PatternCache.get("\\$(\\d$)").matcher(nameRule);
             if (nameMatcher.find()) {
                 nameGroup = StringUtils.parseInt(nameMatcher.group(1));
             }
             // 分离网址正则参数
-            Matcher urlMatcher = Pattern.compile("(.*?)\\$(\\d$)").matcher(urlRule);
+            Matcher urlMatcher = PatternCache.get("(.*?)\\$(\\d$)").matcher(urlRule);
             while (urlMatcher.find()) {
                 baseUrl = VariablesPattern.fromGetterRule(urlMatcher.group(1), getConfig().getVariableStore()).rule;
                 urlGroup = StringUtils.parseInt(urlMatcher.group(2));
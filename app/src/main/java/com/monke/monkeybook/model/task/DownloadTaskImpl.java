@@ -3,17 +3,22 @@ package com.monke.monkeybook.model.task;
 import android.text.TextUtils;
 
 import com.hwangjr.rxbus.RxBus;
-import com.monke.basemvplib.rxjava.RxExecutors;
+import com.monke.basemvplib.HostMetrics;
+import com.monke.basemvplib.HostRateLimiter;
+import com.monke.basemvplib.OkHttpHelper;
 import com.monke.monkeybook.base.observer.SimpleObserver;
 import com.monke.monkeybook.bean.BookContentBean;
 import com.monke.monkeybook.bean.BookInfoBean;
 import com.monke.monkeybook.bean.BookShelfBean;
 import com.monke.monkeybook.bean.ChapterBean;
 import com.monke.monkeybook.bean.DownloadBookBean;
+import com.monke.monkeybook.bean.DownloadJobBean;
 import com.monke.monkeybook.dao.BookShelfBeanDao;
 import com.monke.monkeybook.dao.DbHelper;
 import com.monke.monkeybook.help.ChapterContentHelp;
+import com.monke.monkeybook.help.DownloadJobHelp;
 import com.monke.monkeybook.help.RxBusTag;
+import com.monke.monkeybook.model.RetryPolicy;
 import com.monke.monkeybook.model.WebBookModel;
 import com.monke.monkeybook.model.impl.IDownloadTask;
 
@@ -32,16 +37,29 @@ public abstract class DownloadTaskImpl implements IDownloadTask {
 
     private final long when;
 
+    //同一书源同时下载的章节数上限
+    private static final int MAX_CHAPTERS_PER_HOST = 8;
+    private static final HostLimiter HOST_LIMITER = new HostLimiter(MAX_CHAPTERS_PER_HOST);
+    //SimpleModel 按 RetryPolicy.DEFAULT 重试，每次请求可能先在限速中等待，再依次经历连接、写入、读取超时
+    private static final long CHAPTER_TIMEOUT_MILLIS = RetryPolicy.DEFAULT.maxTotalMillis(
+            HostRateLimiter.MAX_PAUSE_MILLIS + 3 * TimeUnit.SECONDS.toMillis(OkHttpHelper.TIMEOUT_SECONDS));
+
     private boolean isDownloading = false;
+    //同时下载的章节数
+    private final int windowSize;
+    private int errorCount;
 
     private DownloadBookBean downloadBook;
     private BookInfoBean bookInfo;
     private List<ChapterBean> downloadChapters;
+    //正在下载的章节，按章节顺序排列
+    private final List<ChapterBean> inFlightChapters = new ArrayList<>();
 
     private CompositeDisposable disposables;
 
-    protected DownloadTaskImpl(DownloadBookBean downloadBook) {
+    protected DownloadTaskImpl(DownloadBookBean downloadBook, int windowSize) {
         this.when = System.currentTimeMillis();
+        this.windowSize = Math.max(1, windowSize);
         this.downloadBook = downloadBook;
         downloadChapters = new ArrayList<>();
         disposables = new CompositeDisposable();
@@ -52,19 +70,14 @@ public abstract class DownloadTaskImpl implements IDownloadTask {
             if (book != null) {
                 bookInfo = book.getBookInfoBean();
                 if (!book.realChapterListEmpty()) {
-                    for (int i = downloadBook.getStart(); i <= downloadBook.getEnd(); i++) {
-                        ChapterBean chapter = book.getChapter(i);
-                        if (!chapter.getHasCache(bookInfo)) {
-                            downloadChapters.add(chapter);
-                        }
-                    }
+                    loadDownloadChapters(book);
                 }
                 downloadBook.setDownloadCount(downloadChapters.size());
             } else {
                 downloadBook.setValid(false);
             }
             emitter.onNext(downloadBook);
-        }).subscribeOn(RxExecutors.getDefault())
+        }).subscribeOn(DownloadJobHelp.getScheduler())
                 .observeOn(AndroidSchedulers.mainThread())
                 .subscribe(new SimpleObserver<DownloadBookBean>() {
                     @Override
@@ -74,10 +87,12 @@ public abstract class DownloadTaskImpl implements IDownloadTask {
 
                     @Override
                     public void onNext(DownloadBookBean downloadBook) {
-                        if (downloadBook.isValid()) {
+                        if (downloadBook.isValid() && !downloadChapters.isEmpty()) {
                             onDownloadPrepared(downloadBook);
                             whenProgress(downloadBook.getName(), downloadChapters.get(0));
                         } else {
+                            //没有待下载的章节(如恢复的任务已全部完成)，直接结束，由服务删除任务记录
+                            downloadBook.setValid(false);
                             onDownloadComplete(downloadBook);
                         }
                     }
@@ -90,6 +105,32 @@ public abstract class DownloadTaskImpl implements IDownloadTask {
                 });
     }
 
+    /**
+     * 优先使用持久化的未完成章节，避免重复扫描章节缓存；没有记录时扫描一次并保存
+     */
+    private void loadDownloadChapters(BookShelfBean book) {
+        final int chapterCount = book.getChapterList().size();
+        final DownloadJobBean job = DownloadJobHelp.getJob(downloadBook.getNoteUrl());
+        if (job != null && job.getStart() == downloadBook.getStart() && job.getEnd() == downloadBook.getEnd()) {
+            for (Integer index : DownloadJobHelp.queryPendingChapters(downloadBook.getNoteUrl())) {
+                if (index < chapterCount) {
+                    downloadChapters.add(book.getChapter(index));
+                }
+            }
+            return;
+        }
+
+        final List<Integer> indexes = new ArrayList<>();
+        for (int i = downloadBook.getStart(); i <= downloadBook.getEnd() && i < chapterCount; i++) {
+            ChapterBean chapter = book.getChapter(i);
+            if (!chapter.getHasCache(bookInfo)) {
+                downloadChapters.add(chapter);
+                indexes.add(i);
+            }
+        }
+        DownloadJobHelp.saveJob(downloadBook, indexes);
+    }
+
     @Override
     public int getId() {
         return (int) when;
@@ -117,6 +158,10 @@ public abstract class DownloadTaskImpl implements IDownloadTask {
     public void stopDownload(boolean callEvent) {
         isDownloading = false;
         downloadChapters.clear();
+        for (int i = 0, size = inFlightChapters.size(); i < size; i++) {
+            HOST_LIMITER.release(getHost());
+        }
+        inFlightChapters.clear();
 
         if (!disposables.isDisposed()) {
             disposables.dispose();
@@ -146,57 +191,87 @@ public abstract class DownloadTaskImpl implements IDownloadTask {
         return downloadBook;
     }
 
+    /**
+     * 补满下载窗口：同一本书最多同时下载 windowSize 章，同一书源的并发受 HOST_LIMITER 限制
+     */
     private void toDownload(Scheduler scheduler) {
-        if (isFinishing()) {
+        if (!isDownloading || isFinishing()) {
             return;
         }
 
-        getDownloadingChapter()
-                .subscribe(new SimpleObserver<ChapterBean>() {
+        while (inFlightChapters.size() < windowSize) {
+            ChapterBean next = getDownloadingChapter();
+            if (next == null) {
+                break;
+            }
+            if (!HOST_LIMITER.tryAcquire(getHost())) {
+                //书源并发已满，没有正在下载的章节时稍后重试
+                if (inFlightChapters.isEmpty()) {
+                    retryLater(scheduler);
+                }
+                break;
+            }
+            inFlightChapters.add(next);
+            downloading(next, scheduler);
+        }
+
+        if (inFlightChapters.isEmpty() && isFinishing()) {
+            whenFinish();
+        }
+    }
+
+    /**
+     * 下一个需要下载的章节，已缓存的章节直接移除
+     */
+    private ChapterBean getDownloadingChapter() {
+        List<ChapterBean> temp = new ArrayList<>(downloadChapters);
+        for (ChapterBean data : temp) {
+            if (inFlightChapters.contains(data)) {
+                continue;
+            }
+            if (data.getHasCache(bookInfo) || TextUtils.isEmpty(data.getDurChapterUrl())) {
+                DownloadJobHelp.chapterDone(downloadBook.getNoteUrl(), data.getDurChapterIndex());
+                removeFromDownloadList(data);
+            } else {
+                return data;
+            }
+        }
+        return null;
+    }
+
+    private void retryLater(Scheduler scheduler) {
+        Observable.timer(1, TimeUnit.SECONDS)
+                .observeOn(AndroidSchedulers.mainThread())
+                .subscribe(new SimpleObserver<Long>() {
                     @Override
-                    public void onNext(ChapterBean chapterBean) {
-                        if (!TextUtils.isEmpty(chapterBean.getDurChapterUrl())) {
-                            downloading(chapterBean, scheduler);
-                        }
+                    public void onSubscribe(Disposable d) {
+                        disposables.add(d);
+                    }
+
+                    @Override
+                    public void onNext(Long aLong) {
+                        toDownload(scheduler);
                     }
 
                     @Override
                     public void onError(Throwable e) {
-                        onDownloadError(downloadBook);
                     }
                 });
     }
 
-    private Observable<ChapterBean> getDownloadingChapter() {
-        return Observable.create(emitter -> {
-            ChapterBean next = null;
-            List<ChapterBean> temp = new ArrayList<>(downloadChapters);
-            for (ChapterBean data : temp) {
-                if (data.getHasCache(bookInfo)) {
-                    removeFromDownloadList(data);
-                } else {
-                    next = data;
-                    break;
-                }
-            }
-            emitter.onNext(next == null ? new ChapterBean() : next);
-            emitter.onComplete();
-        });
-    }
-
     private void downloading(ChapterBean chapter, Scheduler scheduler) {
-        whenProgress(downloadBook.getName(), chapter);
+        reportProgress();
         Observable.create((ObservableOnSubscribe<ChapterBean>) e -> {
             if (!ChapterContentHelp.isChapterCached(downloadBook, chapter)) {
                 e.onNext(chapter);
             } else {
-                e.onError(new Exception("chapter already cached"));
+                e.onError(new Exception("cached"));
             }
             e.onComplete();
         })
                 .subscribeOn(scheduler)
                 .flatMap(result -> WebBookModel.getInstance().getBookContent(bookInfo, chapter))
-                .timeout(25, TimeUnit.SECONDS)
+                .timeout(CHAPTER_TIMEOUT_MILLIS, TimeUnit.MILLISECONDS)
                 .observeOn(AndroidSchedulers.mainThread())
                 .subscribe(new SimpleObserver<BookContentBean>() {
 
@@ -208,18 +283,20 @@ public abstract class DownloadTaskImpl implements IDownloadTask {
                     @Override
                     public void onNext(BookContentBean bookContentBean) {
                         RxBus.get().post(RxBusTag.CHAPTER_CHANGE, bookContentBean);
-                        removeFromDownloadList(chapter);
-                        whenNext(scheduler, true);
+                        HostMetrics.getInstance().recordChapter(HostMetrics.hostOf(chapter.getDurChapterUrl()));
+                        DownloadJobHelp.chapterDone(downloadBook.getNoteUrl(), chapter.getDurChapterIndex());
+                        whenChapterDone(chapter, true, scheduler);
                     }
 
                     @Override
                     public void onError(Throwable e) {
-                        removeFromDownloadList(chapter);
                         if (TextUtils.equals(e.getMessage(), "cached")) {
-                            whenNext(scheduler, false);
+                            DownloadJobHelp.chapterDone(downloadBook.getNoteUrl(), chapter.getDurChapterIndex());
                         } else {
-                            whenError(scheduler);
+                            errorCount++;
+                            DownloadJobHelp.chapterFailed(downloadBook.getNoteUrl(), chapter.getDurChapterIndex(), e.getMessage());
                         }
+                        whenChapterDone(chapter, false, scheduler);
                     }
                 });
     }
@@ -228,40 +305,51 @@ public abstract class DownloadTaskImpl implements IDownloadTask {
         downloadChapters.remove(chapterBean);
     }
 
-    private void whenNext(Scheduler scheduler, boolean success) {
+    /**
+     * 章节可能乱序完成，完成后立即补充窗口
+     */
+    private void whenChapterDone(ChapterBean chapter, boolean success, Scheduler scheduler) {
+        if (inFlightChapters.remove(chapter)) {
+            HOST_LIMITER.release(getHost());
+        }
+        removeFromDownloadList(chapter);
         if (!isDownloading) {
             return;
         }
 
         if (success) {
             downloadBook.successCountAdd();
+            onDownloadChange(downloadBook);
         }
-        if (isFinishing()) {
-            stopDownload(false);
-            onDownloadComplete(downloadBook);
+        if (isFinishing() && inFlightChapters.isEmpty()) {
+            whenFinish();
         } else {
-            onDownloadChange(downloadBook);
             toDownload(scheduler);
         }
     }
 
-    private void whenError(Scheduler scheduler) {
-        if (!isDownloading) {
-            return;
+    private void whenFinish() {
+        stopDownload(false);
+        if (downloadBook.getSuccessCount() == 0 && errorCount > 0) {
+            onDownloadError(downloadBook);
+        } else {
+            onDownloadComplete(downloadBook);
         }
+    }
 
-        if (isFinishing()) {
-            stopDownload(false);
-            if (downloadBook.getSuccessCount() == 0) {
-                onDownloadError(downloadBook);
-            } else {
-                onDownloadComplete(downloadBook);
-            }
-        } else {
-            toDownload(scheduler);
+    /**
+     * 按章节顺序报告进度：显示正在下载的最靠前的章节
+     */
+    private void reportProgress() {
+        if (!inFlightChapters.isEmpty()) {
+            whenProgress(downloadBook.getName(), inFlightChapters.get(0));
         }
     }
 
+    private String getHost() {
+        return bookInfo == null ? "" : bookInfo.getTag();
+    }
+
     private void whenProgress(String bookName, ChapterBean chapterBean) {
         if (!isDownloading) {
             return;
@@ -0,0 +1,35 @@
+package com.monke.monkeybook.model.task;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 限制同一书源同时进行的请求数，多本书共用
+ */
+class HostLimiter {
+    private final int maxPerHost;
+    private final Map<String, Integer> inFlight = new HashMap<>();
+
+    HostLimiter(int maxPerHost) {
+        this.maxPerHost = maxPerHost;
+    }
+
+    synchronized boolean tryAcquire(String host) {
+        Integer count = inFlight.get(host);
+        int value = count == null ? 0 : count;
+        if (value >= maxPerHost) {
+            return false;
+        }
+        inFlight.put(host, value + 1);
+        return true;
+    }
+
+    synchronized void release(String host) {
+        Integer count = inFlight.get(host);
+        if (count == null || count <= 1) {
+            inFlight.remove(host);
+        } else {
+            inFlight.put(host, count - 1);
+        }
+    }
+}
@@ -8,6 +8,7 @@ import com.monke.monkeybook.bean.SearchBookBean;
 import com.monke.monkeybook.bean.SearchEngine;
 import com.monke.monkeybook.dao.DbHelper;
 import com.monke.monkeybook.model.BookSourceManager;
+import com.monke.monkeybook.model.SourceCircuitBreaker;
 import com.monke.monkeybook.model.WebBookModel;
 import com.monke.monkeybook.model.impl.ISearchTask;
 
@@ -71,7 +72,8 @@ public class SearchTaskImpl implements ISearchTask {
             return;
         }
 
-        if (!searchEngine.getHasMore()) {
+        //熔断中的书源本次不再搜索
+        if (!searchEngine.getHasMore() || !SourceCircuitBreaker.INSTANCE.allowRequest(searchEngine.getTag())) {
             if (listener.hasNextSearchEngine()) {
                 toSearch(query, scheduler);
             } else if (loadingCount.get() == 0) {
@@ -88,8 +90,13 @@ public class SearchTaskImpl implements ISearchTask {
                         System.out.println(Arrays.toString(result.toArray()));
                         saveData(result);
                         incrementSourceWeight(searchEngine.getTag(), searchEngine.getElapsedTime());
+                        SourceCircuitBreaker.INSTANCE.recordSuccess(searchEngine.getTag());
                     })
-                    .doOnError(throwable -> decrementSourceWeight(searchEngine.getTag()))
+                    .doOnError(throwable -> {
+                        decrementSourceWeight(searchEngine.getTag());
+                        SourceCircuitBreaker.INSTANCE.recordFailure(searchEngine.getTag());
+                    })
+                    .doOnDispose(() -> SourceCircuitBreaker.INSTANCE.recordCancel(searchEngine.getTag()))
                     .flatMap(searchBookBeans -> {
                         boolean hasMore = true;
                         if (!isDisposed() && !searchBookBeans.isEmpty()) {
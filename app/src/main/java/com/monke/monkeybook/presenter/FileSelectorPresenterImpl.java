@@ -7,20 +7,22 @@ import androidx.fragment.app.Fragment;
 
 import com.monke.basemvplib.BasePresenterImpl;
 import com.monke.basemvplib.rxjava.RxExecutors;
+import com.monke.monkeybook.R;
 import com.monke.monkeybook.bean.FileSnapshot;
 import com.monke.monkeybook.bean.RipeFile;
-import com.monke.monkeybook.help.ACache;
+import com.monke.monkeybook.help.DiskCache;
+import com.monke.monkeybook.help.FileCatalog;
 import com.monke.monkeybook.presenter.contract.FileSelectorContract;
 import com.monke.monkeybook.utils.FileUtil;
 import com.monke.monkeybook.utils.StringUtils;
 
 import java.io.File;
-import java.io.FileFilter;
 import java.text.Collator;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
+import java.util.Locale;
 import java.util.Stack;
 
 import io.reactivex.Single;
@@ -30,7 +32,11 @@ import io.reactivex.android.schedulers.AndroidSchedulers;
 import io.reactivex.disposables.CompositeDisposable;
 import io.reactivex.disposables.Disposable;
 
-public class FileSelectorPresenterImpl extends BasePresenterImpl<FileSelectorContract.View> implements FileSelectorContract.Presenter, FileFilter {
+public class FileSelectorPresenterImpl extends BasePresenterImpl<FileSelectorContract.View> implements FileSelectorContract.Presenter {
+
+    private static final String ROOT_PATH = "/";
+    //路径中不会出现的字符，用来分隔保存的每一层记录
+    private static final char SNAPSHOT_SEPARATOR = '\u0000';
 
     private int orderIndex = 0;
     private String[] suffixes;
@@ -43,6 +49,8 @@ public class FileSelectorPresenterImpl extends BasePresenterImpl<FileSelectorCon
 
     private boolean sortChanged;
     private FileSnapshot current;
+    //全盘搜索的结果，不保存到磁盘
+    private FileSnapshot searchResult;
 
     private final Stack<FileSnapshot> snapshots = new Stack<>();
 
@@ -52,6 +60,7 @@ public class FileSelectorPresenterImpl extends BasePresenterImpl<FileSelectorCon
 
     private Disposable pushDisposable;
     private Disposable refreshDisposable;
+    private Disposable searchDisposable;
 
     @Override
     public void init(Fragment fragment) {
@@ -84,22 +93,12 @@ public class FileSelectorPresenterImpl extends BasePresenterImpl<FileSelectorCon
         mView.showLoading();
 
         Single.create((SingleOnSubscribe<FileSnapshot>) emitter -> {
-            List<FileSnapshot> snapshotList = null;
-            try {
-                snapshotList = (List<FileSnapshot>) ACache.get(mView.getContext()).getAsObject(key);
-            } catch (Exception ignore) {
-            }
-
-            if (snapshotList != null && !snapshotList.isEmpty()) {
+            List<FileSnapshot> snapshotList = restoreSnapshots();
+            if (!snapshotList.isEmpty()) {
                 snapshots.addAll(snapshotList);
-                FileSnapshot old = snapshots.pop();
-                current = loadFolder(old.getParent());
-                if (current != null) {
-                    current.setScrollOffset(old.getScrollOffset());
-                } else {
-                    current = snapshots.pop();
-                }
-            } else {
+                current = popSnapshot();
+            }
+            if (current == null) {
                 current = loadRoot();
             }
 
@@ -132,8 +131,12 @@ public class FileSelectorPresenterImpl extends BasePresenterImpl<FileSelectorCon
     public void pop() {
         Single.create((SingleOnSubscribe<FileSnapshot>) emitter -> {
             if (!snapshots.empty()) {
-                current = snapshots.pop();
-                if (current != null) {
+                FileSnapshot snapshot = popSnapshot();
+                if (snapshot == null) {
+                    snapshot = loadRoot();
+                }
+                if (snapshot != null) {
+                    current = snapshot;
                     if (sortChanged) {
                         sortFiles(current.getFiles(), orderIndex);
                     }
@@ -202,19 +205,20 @@ public class FileSelectorPresenterImpl extends BasePresenterImpl<FileSelectorCon
             disposables.remove(refreshDisposable);
         }
         Single.create((SingleOnSubscribe<FileSnapshot>) emitter -> {
-            if (current != null) {
+            if (current != null && current == searchResult) {
+                current = searchResult = search();
+            } else if (current != null) {
                 FileSnapshot old = current;
                 current = loadFolder(old.getParent());
                 if (current != null) {
                     current.setScrollOffset(old.getScrollOffset());
                 } else if (!snapshots.empty()) {
-                    current = snapshots.pop();
-                } else {
-                    current = loadRoot();
+                    current = popSnapshot();
                 }
             } else if (!snapshots.empty()) {
-                current = snapshots.pop();
-            } else {
+                current = popSnapshot();
+            }
+            if (current == null) {
                 current = loadRoot();
             }
             if (current != null) {
@@ -243,6 +247,45 @@ public class FileSelectorPresenterImpl extends BasePresenterImpl<FileSelectorCon
 
     }
 
+    @Override
+    public void searchFiles() {
+        if (searchDisposable != null) {
+            disposables.remove(searchDisposable);
+        }
+        mView.showLoading();
+        final int offset = mView.getScrollOffset();
+        Single.create((SingleOnSubscribe<FileSnapshot>) emitter -> {
+            FileSnapshot result = search();
+            if (result != null) {
+                emitter.onSuccess(result);
+            } else {
+                emitter.onError(new Exception("file search failed!"));
+            }
+        }).subscribeOn(RxExecutors.getDefault())
+                .observeOn(AndroidSchedulers.mainThread())
+                .subscribe(new SingleObserver<FileSnapshot>() {
+                    @Override
+                    public void onSubscribe(Disposable d) {
+                        disposables.add(searchDisposable = d);
+                    }
+
+                    @Override
+                    public void onSuccess(FileSnapshot fileSnapshot) {
+                        if (current != null && current != searchResult) {
+                            current.setScrollOffset(offset);
+                            snapshots.push(current);
+                        }
+                        current = searchResult = fileSnapshot;
+                        mView.onShow(fileSnapshot, false);
+                    }
+
+                    @Override
+                    public void onError(Throwable e) {
+                        mView.hideLoading();
+                    }
+                });
+    }
+
     @Override
     public boolean canGoBack() {
         return !snapshots.empty();
@@ -268,23 +311,14 @@ public class FileSelectorPresenterImpl extends BasePresenterImpl<FileSelectorCon
         return title;
     }
 
-    @Override
-    public boolean accept(File pathname) {
-        String fileName = pathname.getName();
-        if (fileName.startsWith(".")) {
-            return false;
-        }
+    private boolean accept(FileCatalog.Entry entry) {
         //文件夹内部数量为0
-        if (pathname.isDirectory() && (pathname.list() == null || pathname.list().length == 0)) {
-            return false;
-        }
-
-        if (pathname.isDirectory()) {
-            return true;
+        if (entry.directory) {
+            return entry.childCount > 0;
         }
 
         for (String suffix : suffixes) {
-            if (fileName.toUpperCase().endsWith("." + suffix.toUpperCase())) {
+            if (entry.name.toUpperCase().endsWith("." + suffix.toUpperCase())) {
                 return true;
             }
         }
@@ -301,7 +335,98 @@ public class FileSelectorPresenterImpl extends BasePresenterImpl<FileSelectorCon
             }
         }
         disposables.dispose();
-        ACache.get(mView.getContext()).put(key, snapshots);
+        DiskCache.get(mView.getContext()).put(key, saveSnapshots());
+        RxExecutors.getDefault().scheduleDirect(FileCatalog.INSTANCE::save);
+    }
+
+    /**
+     * 只保存每一层的路径和滚动位置，文件列表在返回时通过目录索引重新获取
+     */
+    private String saveSnapshots() {
+        StringBuilder builder = new StringBuilder();
+        for (FileSnapshot snapshot : snapshots) {
+            if (snapshot == searchResult || snapshot.getParent() == null) {
+                continue;
+            }
+            builder.append(snapshot.getScrollOffset())
+                    .append('\t')
+                    .append(snapshot.getParent().getPath())
+                    .append(SNAPSHOT_SEPARATOR);
+        }
+        return builder.toString();
+    }
+
+    private List<FileSnapshot> restoreSnapshots() {
+        List<FileSnapshot> snapshotList = new ArrayList<>();
+        String value = DiskCache.get(mView.getContext()).getAsString(key);
+        if (value == null) {
+            return snapshotList;
+        }
+        for (String line : value.split(String.valueOf(SNAPSHOT_SEPARATOR))) {
+            int index = line.indexOf('\t');
+            if (index <= 0) {
+                continue;
+            }
+            try {
+                FileSnapshot snapshot = new FileSnapshot();
+                snapshot.setScrollOffset(Integer.parseInt(line.substring(0, index)));
+                RipeFile parent = new RipeFile();
+                parent.setPath(line.substring(index + 1));
+                snapshot.setParent(parent);
+                snapshotList.add(snapshot);
+            } catch (NumberFormatException ignore) {
+            }
+        }
+        return snapshotList;
+    }
+
+    /**
+     * 取出上一层，文件列表尚未加载或文件夹已不存在时重新加载，都失败时返回 null
+     */
+    private FileSnapshot popSnapshot() {
+        while (!snapshots.empty()) {
+            FileSnapshot snapshot = snapshots.pop();
+            if (snapshot.getFiles() != null) {
+                return snapshot;
+            }
+            String path = snapshot.getParent().getPath();
+            FileSnapshot loaded;
+            if (ROOT_PATH.equals(path)) {
+                loaded = loadRoot();
+            } else {
+                RipeFile folder = new RipeFile();
+                folder.setFile(new File(path));
+                loaded = loadFolder(folder);
+            }
+            if (loaded != null) {
+                loaded.setScrollOffset(snapshot.getScrollOffset());
+                return loaded;
+            }
+        }
+        return null;
+    }
+
+    private FileSnapshot search() {
+        List<String> roots = FileUtil.getStorageData(mView.getContext());
+        if (roots == null) {
+            return null;
+        }
+        List<RipeFile> fileList = new ArrayList<>();
+        for (FileCatalog.Entry entry : FileCatalog.INSTANCE.search(roots, suffixes)) {
+            RipeFile ripeFile = new RipeFile();
+            ripeFile.setEntry(entry);
+            fileList.add(ripeFile);
+        }
+        sortFiles(fileList, orderIndex);
+        FileCatalog.INSTANCE.save();
+
+        FileSnapshot snapshot = new FileSnapshot();
+        RipeFile parent = new RipeFile();
+        parent.setPath(String.format(Locale.getDefault(), "%s (%d)",
+                mView.getContext().getString(R.string.search_all_files), fileList.size()));
+        snapshot.setParent(parent);
+        snapshot.setFiles(fileList);
+        return snapshot;
     }
 
     private FileSnapshot loadRoot() {
@@ -309,7 +434,7 @@ public class FileSelectorPresenterImpl extends BasePresenterImpl<FileSelectorCon
         if (list != null) {
             FileSnapshot root = new FileSnapshot();
             RipeFile parent = new RipeFile();
-            parent.setPath("/");
+            parent.setPath(ROOT_PATH);
             root.setParent(parent);
             List<RipeFile> fileList = new ArrayList<>();
             for (String path : list) {
@@ -325,17 +450,18 @@ public class FileSelectorPresenterImpl extends BasePresenterImpl<FileSelectorCon
 
     private FileSnapshot loadFolder(RipeFile folder) {
         if (folder != null && folder.exists() && folder.isDirectory()) {
-            File[] files = folder.getFile().listFiles(FileSelectorPresenterImpl.this);
-            if (files != null && files.length > 0) {
-                FileSnapshot snapshot = new FileSnapshot();
-                snapshot.setParent(folder);
-                List<RipeFile> fileList = new ArrayList<>();
-                RipeFile ripeFile;
-                for (File file : files) {
+            List<RipeFile> fileList = new ArrayList<>();
+            RipeFile ripeFile;
+            for (FileCatalog.Entry entry : FileCatalog.INSTANCE.list(folder.getFile())) {
+                if (accept(entry)) {
                     ripeFile = new RipeFile();
-                    ripeFile.setFile(file);
+                    ripeFile.setEntry(entry);
                     fileList.add(ripeFile);
                 }
+            }
+            if (!fileList.isEmpty()) {
+                FileSnapshot snapshot = new FileSnapshot();
+                snapshot.setParent(folder);
                 sortFiles(fileList, orderIndex);
                 snapshot.setFiles(fileList);
                 return snapshot;
@@ -346,6 +472,10 @@ public class FileSelectorPresenterImpl extends BasePresenterImpl<FileSelectorCon
 
     private void sortFiles(List<RipeFile> files, int orderIndex) {
         if (files != null) {
+            //在后台线程中预先计算比较键，切换排序方式时不必再计算
+            for (RipeFile file : files) {
+                file.getNameKey(collator);
+            }
             Collections.sort(files, new FileComparator(orderIndex));
             sortChanged = false;
         }
@@ -360,27 +490,23 @@ public class FileSelectorPresenterImpl extends BasePresenterImpl<FileSelectorCon
         }
 
         @Override
-        public int compare(RipeFile file1, RipeFile file2) {
-            File o1 = file1.getFile();
-            File o2 = file2.getFile();
-            if (o1.isDirectory() && o2.isFile()) {
-                return -1;
-            }
-            if (o2.isDirectory() && o1.isFile()) {
-                return 1;
+        public int compare(RipeFile o1, RipeFile o2) {
+            if (o1.isDirectory() != o2.isDirectory()) {
+                return o1.isDirectory() ? -1 : 1;
             }
+            //名称使用预先计算的 CollationKey 比较，避免每次比较都重新计算
             if (orderIndex == 0) {
-                return collator.compare(o1.getName(), o2.getName());
+                return o1.getNameKey(collator).compareTo(o2.getNameKey(collator));
             } else if (orderIndex == 1) {
-                return collator.compare(o2.getName(), o1.getName());
+                return o2.getNameKey(collator).compareTo(o1.getNameKey(collator));
             } else if (orderIndex == 2) {
-                return Long.compare(o1.lastModified(), o2.lastModified());
+                return Long.compare(o1.getLastModified(), o2.getLastModified());
             } else if (orderIndex == 3) {
-                return Long.compare(o2.lastModified(), o1.lastModified());
+                return Long.compare(o2.getLastModified(), o1.getLastModified());
             } else if (orderIndex == 4) {
-                return Long.compare(o1.length(), o2.length());
+                return Long.compare(o1.getLength(), o2.getLength());
             }
-            return Long.compare(o2.length(), o1.length());
+            return Long.compare(o2.getLength(), o1.getLength());
         }
     }
 }
@@ -1,9 +1,10 @@
 //Copyright (c) 2017. 章钦豪. All rights reserved.
 package com.monke.monkeybook.presenter;
 
+import android.content.Context;
+
 import androidx.annotation.NonNull;
 
-import com.google.gson.reflect.TypeToken;
 import com.hwangjr.rxbus.RxBus;
 import com.hwangjr.rxbus.annotation.Subscribe;
 import com.hwangjr.rxbus.annotation.Tag;
@@ -17,23 +18,27 @@ import com.monke.monkeybook.bean.BookSourceBean;
 import com.monke.monkeybook.bean.FindKindBean;
 import com.monke.monkeybook.bean.FindKindGroupBean;
 import com.monke.monkeybook.bean.SearchBookBean;
-import com.monke.monkeybook.help.ACache;
 import com.monke.monkeybook.help.AppConfigHelper;
+import com.monke.monkeybook.help.FindBookCache;
 import com.monke.monkeybook.help.RxBusTag;
 import com.monke.monkeybook.model.BookSourceManager;
+import com.monke.monkeybook.model.SourceCircuitBreaker;
 import com.monke.monkeybook.model.WebBookModel;
 import com.monke.monkeybook.model.analyzeRule.assit.Assistant;
 import com.monke.monkeybook.model.analyzeRule.assit.SimpleJavaExecutor;
 import com.monke.monkeybook.model.analyzeRule.assit.SimpleJavaExecutorImpl;
 import com.monke.monkeybook.presenter.contract.FindBookContract;
 import com.monke.monkeybook.utils.ListUtils;
-import com.monke.monkeybook.utils.MD5Utils;
 import com.monke.monkeybook.utils.StringUtils;
 
 import java.io.IOException;
 import java.util.ArrayList;
-import java.util.Iterator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
 
@@ -58,10 +63,21 @@ public class FindBookPresenterImpl extends BasePresenterImpl<FindBookContract.Vi
 
     private SimpleJavaExecutor mJavaExecutor;
 
-    private FindGroupIterator mGroupIterator;
+    //等待加载的书源，按列表顺序
+    private final List<FindKindGroupBean> mPendingGroups = new ArrayList<>();
+    //正在加载的书源
+    private final Map<String, LoadingGroup> mLoadingGroups = new LinkedHashMap<>();
+    //屏幕上可见的书源
+    private final Set<String> mVisibleTags = new HashSet<>();
 
     private int mShowFindMode;
 
+    //缓存未过期的书源，不需要刷新
+    private final Set<String> mFreshTags = new HashSet<>();
+    //正在请求的书源，同一书源同时只发出一个请求
+    private final Map<String, Observable<List<SearchBookBean>>> mFindRequests = new HashMap<>();
+    private final Set<String> mJsRequests = new HashSet<>();
+
     private final Function<List<SearchBookBean>, List<SearchBookBean>> mBookFilter = searchBookBeans -> {
         ListUtils.removeDuplicate(searchBookBeans);
         return searchBookBeans;
@@ -116,7 +132,16 @@ public class FindBookPresenterImpl extends BasePresenterImpl<FindBookContract.Vi
                 .flatMap(groupBeans -> Observable.fromIterable(groupBeans)
                         .observeOn(mScheduler)
                         .map(groupBean -> {
-                            groupBean.setBooks(getFromBookCache(groupBean.getTag()));
+                            //过期的结果也先显示，之后在后台刷新
+                            FindBookCache.Books cache = FindBookCache.getBooks(mView.getContext(), groupBean.getTag());
+                            groupBean.setBooks(cache == null ? null : cache.getBooks());
+                            synchronized (mFreshTags) {
+                                if (cache != null && !cache.isStale()) {
+                                    mFreshTags.add(groupBean.getTag());
+                                } else {
+                                    mFreshTags.remove(groupBean.getTag());
+                                }
+                            }
                             return groupBean;
                         }).observeOn(AndroidSchedulers.mainThread())
                         .doOnNext(groupBean -> mView.updateItem(groupBean))
@@ -168,23 +193,16 @@ public class FindBookPresenterImpl extends BasePresenterImpl<FindBookContract.Vi
                     }
                     return Observable.just(groupBean);
                 })
-                .flatMap(findKindGroupBean -> {
-                    FindKindBean kindBean = findKindGroupBean.getChildren().get(0);
-                    return WebBookModel.getInstance().findBook(kindBean.getTag(), kindBean.getKindUrl(), 1)
-                            .subscribeOn(mScheduler)
-                            .timeout(30, TimeUnit.SECONDS)
-                            .map(mBookFilter)
-                            .flatMap(searchBookBeans -> {
-                                findKindGroupBean.setBooks(searchBookBeans);
-                                return Observable.just(findKindGroupBean);
-                            }).onErrorResumeNext(throwable -> {
-                                if (throwable instanceof IOException || throwable instanceof TimeoutException) {
-                                    return Observable.error(throwable);
-                                }
-                                return Observable.just(findKindGroupBean);
-                            });
-                })
-                .doOnNext(this::putBookCache)
+                .flatMap(findKindGroupBean -> fetchBooks(findKindGroupBean)
+                        .flatMap(searchBookBeans -> {
+                            findKindGroupBean.setBooks(searchBookBeans);
+                            return Observable.just(findKindGroupBean);
+                        }).onErrorResumeNext(throwable -> {
+                            if (throwable instanceof IOException || throwable instanceof TimeoutException) {
+                                return Observable.error(throwable);
+                            }
+                            return Observable.just(findKindGroupBean);
+                        }))
                 .observeOn(AndroidSchedulers.mainThread())
                 .subscribe(new SimpleObserver<FindKindGroupBean>() {
                     @Override
@@ -213,34 +231,86 @@ public class FindBookPresenterImpl extends BasePresenterImpl<FindBookContract.Vi
 
     private void startFindBooks(List<FindKindGroupBean> groupBeans) {
         if (groupBeans == null || groupBeans.isEmpty()) return;
-        mGroupIterator = new FindGroupIterator(groupBeans);
 
         resetDispose();
+        mPendingGroups.clear();
+        mLoadingGroups.clear();
+        for (FindKindGroupBean groupBean : groupBeans) {
+            //缓存未过期的不需要刷新
+            if (!isFresh(groupBean)) {
+                mPendingGroups.add(groupBean);
+            }
+        }
+        scheduleFindBooks();
+    }
+
+    @Override
+    public void setVisibleGroups(List<String> tags) {
+        mVisibleTags.clear();
+        mVisibleTags.addAll(tags);
+        scheduleFindBooks();
+    }
 
-        for (int i = 0, size = Math.min(THREADS_NUM, groupBeans.size()); i < size; i++) {
-            findBooks();
+    /**
+     * 填满同时加载的名额，优先加载屏幕上可见的书源；
+     * 名额已满而可见的书源仍在等待时，取消一个不可见的加载让出名额
+     */
+    private void scheduleFindBooks() {
+        if (mDisposableMgr == null) return;
+        while (!mPendingGroups.isEmpty()) {
+            FindKindGroupBean next = nextPendingGroup();
+            boolean visible = mVisibleTags.contains(next.getTag());
+            if (mLoadingGroups.size() >= THREADS_NUM && !(visible && cancelInvisibleLoad())) {
+                return;
+            }
+            mPendingGroups.remove(next);
+            //熔断中的书源保留原有的结果
+            if (SourceCircuitBreaker.INSTANCE.allowRequest(next.getTag())) {
+                findBooks(next);
+            }
         }
     }
 
-    private void findBooks() {
-        if (mGroupIterator == null || !mGroupIterator.hasNext()) return;
-        final FindKindGroupBean kindGroupBean = mGroupIterator.next();
+    private FindKindGroupBean nextPendingGroup() {
+        for (FindKindGroupBean groupBean : mPendingGroups) {
+            if (mVisibleTags.contains(groupBean.getTag())) {
+                return groupBean;
+            }
+        }
+        return mPendingGroups.get(0);
+    }
+
+    private boolean cancelInvisibleLoad() {
+        for (Map.Entry<String, LoadingGroup> entry : mLoadingGroups.entrySet()) {
+            if (!mVisibleTags.contains(entry.getKey())) {
+                LoadingGroup loading = mLoadingGroups.remove(entry.getKey());
+                mDisposableMgr.delete(loading.disposable);
+                loading.disposable.dispose();
+                SourceCircuitBreaker.INSTANCE.recordCancel(entry.getKey());
+                //放回等待队列，之后重新加载
+                mPendingGroups.add(0, loading.groupBean);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void findBooks(final FindKindGroupBean kindGroupBean) {
+        final LoadingGroup loading = new LoadingGroup(kindGroupBean);
+        mLoadingGroups.put(kindGroupBean.getTag(), loading);
         Observable.just(kindGroupBean)
                 .flatMap(findKindGroupBean -> {
-                    if (findKindGroupBean.getBooks() != null && !findKindGroupBean.getBooks().isEmpty()) {
-                        return Observable.error(new Exception("cached"));
-                    }
-                    FindKindBean kindBean = findKindGroupBean.getChildren().get(0);
-                    return WebBookModel.getInstance().findBook(kindBean.getTag(), kindBean.getKindUrl(), 1)
-                            .subscribeOn(mScheduler)
-                            .timeout(30, TimeUnit.SECONDS)
-                            .map(mBookFilter)
+                    //有旧的结果时，刷新失败或结果为空都保留旧的结果
+                    final List<SearchBookBean> staleBooks = findKindGroupBean.getBooks();
+                    return fetchBooks(findKindGroupBean)
                             .flatMap(searchBookBeans -> {
-                                findKindGroupBean.setBooks(searchBookBeans);
+                                if (!searchBookBeans.isEmpty() || staleBooks == null) {
+                                    findKindGroupBean.setBooks(searchBookBeans);
+                                }
                                 return Observable.just(findKindGroupBean);
                             })
                             .onErrorResumeNext(throwable -> {
-                                if (throwable instanceof TimeoutException) {
+                                if (throwable instanceof TimeoutException && staleBooks == null) {
                                     return Observable.error(throwable);
                                 }
                                 return Observable.just(findKindGroupBean);
@@ -256,33 +326,43 @@ public class FindBookPresenterImpl extends BasePresenterImpl<FindBookContract.Vi
                                 BookSourceManager.save(sourceBean);
                             });
                 })
-                .doOnNext(this::putBookCache)
                 .observeOn(AndroidSchedulers.mainThread())
                 .subscribe(new SimpleObserver<FindKindGroupBean>() {
 
                     @Override
                     public void onSubscribe(Disposable d) {
+                        loading.disposable = d;
                         mDisposableMgr.add(d);
                     }
 
                     @Override
                     public void onNext(FindKindGroupBean value) {
+                        //哪个书源先完成就先显示
                         if (isFindInvalid(value)) {
                             mView.removeItem(value);
                         } else {
                             mView.updateItem(value);
                         }
-
-                        findBooks();
+                        onFindBooksFinished(loading);
                     }
 
                     @Override
                     public void onError(Throwable e) {
-                        findBooks();
+                        onFindBooksFinished(loading);
                     }
                 });
     }
 
+    private void onFindBooksFinished(LoadingGroup loading) {
+        if (mLoadingGroups.get(loading.groupBean.getTag()) == loading) {
+            mLoadingGroups.remove(loading.groupBean.getTag());
+        }
+        if (mDisposableMgr != null && loading.disposable != null) {
+            mDisposableMgr.delete(loading.disposable);
+        }
+        scheduleFindBooks();
+    }
+
     private void resetDispose() {
         if (mDisposableMgr != null) {
             mDisposableMgr.dispose();
@@ -305,44 +385,80 @@ public class FindBookPresenterImpl extends BasePresenterImpl<FindBookContract.Vi
         return groupBean == null || groupBean.getBooks() == null || groupBean.getBooks().isEmpty();
     }
 
+    private boolean isFresh(FindKindGroupBean groupBean) {
+        synchronized (mFreshTags) {
+            return groupBean.getBooks() != null && !groupBean.getBooks().isEmpty()
+                    && mFreshTags.contains(groupBean.getTag());
+        }
+    }
+
+    /**
+     * 请求书源发现页的第一个分类，同一书源正在请求时共用同一个请求，成功后写入缓存
+     * 结果同时用于书源熔断
+     */
+    private Observable<List<SearchBookBean>> fetchBooks(FindKindGroupBean groupBean) {
+        final String tag = groupBean.getTag();
+        final Context context = mView.getContext().getApplicationContext();
+        synchronized (mFindRequests) {
+            Observable<List<SearchBookBean>> request = mFindRequests.get(tag);
+            if (request == null) {
+                FindKindBean kindBean = groupBean.getChildren().get(0);
+                request = WebBookModel.getInstance().findBook(kindBean.getTag(), kindBean.getKindUrl(), 1)
+                        .subscribeOn(mScheduler)
+                        .timeout(30, TimeUnit.SECONDS)
+                        .map(mBookFilter)
+                        .doOnNext(searchBookBeans -> {
+                            FindBookCache.putBooks(context, tag, searchBookBeans);
+                            if (!searchBookBeans.isEmpty()) {
+                                synchronized (mFreshTags) {
+                                    mFreshTags.add(tag);
+                                }
+                            }
+                        })
+                        .doOnNext(searchBookBeans -> SourceCircuitBreaker.INSTANCE.recordSuccess(tag))
+                        .doOnError(throwable -> SourceCircuitBreaker.INSTANCE.recordFailure(tag))
+                        .doFinally(() -> {
+                            synchronized (mFindRequests) {
+                                mFindRequests.remove(tag);
+                            }
+                        })
+                        //所有订阅者都取消时取消请求
+                        .replay(1)
+                        .refCount();
+                mFindRequests.put(tag, request);
+            }
+            return request;
+        }
+    }
+
     private String evalFindJs(String url, String js) {
         SimpleBindings bindings = new SimpleBindings() {{
             this.put("baseUrl", url);
             this.put("java", getJavaExecutor());
         }};
         String findRule = String.valueOf(Assistant.evalObjectScript(js, bindings));
-        putJsCache(url, findRule);
+        FindBookCache.putFindRule(mView.getContext(), url, findRule);
         return findRule;
     }
 
-
-    private void putJsCache(String url, String findRule) {
-        ACache.get(mView.getContext()).put(MD5Utils.strToMd5By16(url), findRule);
-    }
-
-    private String getFromJsCache(String url) {
-        return ACache.get(mView.getContext()).getAsString(MD5Utils.strToMd5By16(url));
-    }
-
-    private void putBookCache(FindKindGroupBean groupBean) {
-        if (groupBean.getBooks() == null || groupBean.getBooks().isEmpty()) {
-            return;
-        }
-        try {
-            String json = Assistant.toJson(groupBean.getBooks());
-            ACache.get(mView.getContext()).put(groupBean.getTag(), json, ACache.TIME_DAY);
-        } catch (Exception ignore) {
-        }
-    }
-
-    private List<SearchBookBean> getFromBookCache(String url) {
-        try {
-            String json = ACache.get(mView.getContext()).getAsString(url);
-            return Assistant.fromJson(json, new TypeToken<List<SearchBookBean>>() {
-            }.getType());
-        } catch (Exception ignore) {
+    /**
+     * 在后台重新计算过期的 js 发现规则，下次打开时使用
+     */
+    private void refreshFindJs(String url, String js) {
+        synchronized (mJsRequests) {
+            if (!mJsRequests.add(url)) {
+                return;
+            }
         }
-        return null;
+        mScheduler.scheduleDirect(() -> {
+            try {
+                evalFindJs(url, js);
+            } finally {
+                synchronized (mJsRequests) {
+                    mJsRequests.remove(url);
+                }
+            }
+        });
     }
 
     private List<FindKindGroupBean> obtainFindGroupList() {
@@ -374,11 +490,15 @@ public class FindBookPresenterImpl extends BasePresenterImpl<FindBookContract.Vi
         try {
             boolean isJavaScript = StringUtils.startWithIgnoreCase(sourceBean.getRuleFindUrl(), "<js>");
             if (isJavaScript) {
-                String cacheRule = getFromJsCache(sourceBean.getBookSourceUrl());
+                String js = findRule.substring(4, sourceBean.getRuleFindUrl().lastIndexOf("<"));
+                FindBookCache.FindRule cacheRule = FindBookCache.getFindRule(mView.getContext(), sourceBean.getBookSourceUrl());
                 if (cacheRule != null) {
-                    findRule = cacheRule;
+                    findRule = cacheRule.getRule();
+                    if (cacheRule.isStale()) {
+                        refreshFindJs(sourceBean.getBookSourceUrl(), js);
+                    }
                 } else {
-                    findRule = evalFindJs(sourceBean.getBookSourceUrl(), findRule.substring(4, sourceBean.getRuleFindUrl().lastIndexOf("<")));
+                    findRule = evalFindJs(sourceBean.getBookSourceUrl(), js);
                 }
             }
 
@@ -409,34 +529,12 @@ public class FindBookPresenterImpl extends BasePresenterImpl<FindBookContract.Vi
         return null;
     }
 
-    private class FindGroupIterator implements Iterator<FindKindGroupBean> {
-
-        final List<FindKindGroupBean> groupBeans;
-        final int limit;
-        int cursor;
-
-        FindGroupIterator(List<FindKindGroupBean> bookShelfBeans) {
-            this.groupBeans = bookShelfBeans;
-            this.limit = bookShelfBeans == null ? 0 : bookShelfBeans.size();
-            this.cursor = 0;
-        }
-
-        @Override
-        public synchronized boolean hasNext() {
-            if (limit == 0) {
-                return false;
-            }
-            return cursor < limit;
-        }
+    private static class LoadingGroup {
+        final FindKindGroupBean groupBean;
+        Disposable disposable;
 
-        @Override
-        public synchronized FindKindGroupBean next() {
-            int i = cursor;
-            if (i >= limit)
-                return null;
-            cursor = i + 1;
-            return groupBeans.get(i);
+        LoadingGroup(FindKindGroupBean groupBean) {
+            this.groupBean = groupBean;
         }
-
     }
 }
\ No newline at end of file
@@ -14,7 +14,7 @@ import com.monke.monkeybook.R;
 import com.monke.monkeybook.base.observer.SimpleObserver;
 import com.monke.monkeybook.bean.BookInfoBean;
 import com.monke.monkeybook.bean.BookShelfBean;
-import com.monke.monkeybook.bean.LocBookShelfBean;
+import com.monke.monkeybook.bean.ImportProgressBean;
 import com.monke.monkeybook.dao.BookInfoBeanDao;
 import com.monke.monkeybook.dao.DbHelper;
 import com.monke.monkeybook.help.BookshelfHelp;
@@ -29,13 +29,13 @@ import com.monke.monkeybook.utils.StringUtils;
 
 import java.io.File;
 import java.net.URL;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Locale;
 
 import io.reactivex.Observable;
 import io.reactivex.ObservableOnSubscribe;
-import io.reactivex.ObservableSource;
 import io.reactivex.android.schedulers.AndroidSchedulers;
-import io.reactivex.functions.Function;
 
 public class MainPresenterImpl extends BasePresenterImpl<MainContract.View> implements MainContract.Presenter {
 
@@ -263,24 +263,24 @@ public class MainPresenterImpl extends BasePresenterImpl<MainContract.View> impl
     @Override
     public void importBooks(List<String> books) {
         mView.showLoading("正在导入书籍");
-        Observable.fromIterable(books)
+        List<File> files = new ArrayList<>();
+        for (String path : books) {
+            files.add(new File(path));
+        }
+        ImportBookModelImpl.getInstance().importBooks(files)
                 .subscribeOn(RxExecutors.getDefault())
-                .map(File::new)
-                .flatMap(file -> ImportBookModelImpl.getInstance().importBook(file))
-                .flatMap((Function<LocBookShelfBean, ObservableSource<LocBookShelfBean>>) locBookShelfBean -> {
-                    if (locBookShelfBean.getNew()) {
-                        BookshelfHelp.saveBookToShelf(locBookShelfBean.getBookShelfBean());
-                    }
-                    return Observable.just(locBookShelfBean);
-                })
                 .observeOn(AndroidSchedulers.mainThread())
-                .subscribe(new SimpleObserver<LocBookShelfBean>() {
+                .subscribe(new SimpleObserver<ImportProgressBean>() {
                     @Override
-                    public void onNext(LocBookShelfBean value) {
-                        if (value.getNew()) {
-                            mView.addSuccess(value.getBookShelfBean());
+                    public void onNext(ImportProgressBean value) {
+                        if (value.isComplete()) {
+                            for (BookShelfBean bookShelfBean : value.getBooks()) {
+                                mView.addSuccess(bookShelfBean);
+                            }
+                            mView.dismissHUD();
+                        } else {
+                            mView.showLoading(String.format(Locale.getDefault(), "正在导入书籍 %d/%d", value.getFinished(), value.getTotal()));
                         }
-                        mView.dismissHUD();
                     }
 
                     @Override
@@ -11,10 +11,9 @@ import com.monke.basemvplib.BasePresenterImpl;
 import com.monke.basemvplib.rxjava.RxExecutors;
 import com.monke.monkeybook.base.observer.SimpleObserver;
 import com.monke.monkeybook.bean.BookSourceBean;
-import com.monke.monkeybook.help.ACache;
+import com.monke.monkeybook.help.FindBookCache;
 import com.monke.monkeybook.model.BookSourceManager;
 import com.monke.monkeybook.presenter.contract.SourceEditContract;
-import com.monke.monkeybook.utils.MD5Utils;
 import com.monke.monkeybook.utils.StringUtils;
 
 import java.io.File;
@@ -49,9 +48,7 @@ public class SourceEditPresenterImpl extends BasePresenterImpl<SourceEditContrac
                 .doAfterNext(aBoolean -> {
                     if (aBoolean) {
                         try {
-                            ACache cache = ACache.get(mView.getContext());
-                            cache.remove(bookSource.getBookSourceUrl());
-                            cache.remove(MD5Utils.strToMd5By16(bookSource.getBookSourceUrl()));
+                            FindBookCache.remove(mView.getContext(), bookSource.getBookSourceUrl());
                         } catch (Exception ignore) {
                         }
                     }
@@ -24,6 +24,8 @@ public interface FileSelectorContract {
 
         void refreshCurrent();
 
+        void searchFiles();
+
         boolean canGoBack();
 
         boolean isSingleChoice();
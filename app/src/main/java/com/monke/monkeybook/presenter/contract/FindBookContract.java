@@ -13,6 +13,11 @@ public interface FindBookContract {
         void updateData(String url);
 
         int getFindMode();
+
+        /**
+         * 屏幕上可见的书源，优先加载
+         */
+        void setVisibleGroups(List<String> tags);
     }
 
     interface View extends IView {
@@ -7,6 +7,7 @@ import android.content.Context;
 import android.content.Intent;
 import android.graphics.BitmapFactory;
 import android.os.IBinder;
+import android.text.format.Formatter;
 import android.util.SparseArray;
 
 import androidx.annotation.Nullable;
@@ -14,12 +15,15 @@ import androidx.core.app.NotificationCompat;
 import androidx.core.app.NotificationManagerCompat;
 
 import com.hwangjr.rxbus.RxBus;
+import com.monke.basemvplib.HostMetrics;
 import com.monke.monkeybook.MApplication;
 import com.monke.monkeybook.R;
 import com.monke.monkeybook.bean.ChapterBean;
 import com.monke.monkeybook.bean.DownloadBookBean;
 import com.monke.monkeybook.bean.DownloadInfo;
+import com.monke.monkeybook.bean.DownloadJobBean;
 import com.monke.monkeybook.help.AppConfigHelper;
+import com.monke.monkeybook.help.DownloadJobHelp;
 import com.monke.monkeybook.help.RxBusTag;
 import com.monke.monkeybook.model.impl.IDownloadTask;
 import com.monke.monkeybook.model.task.DownloadTaskImpl;
@@ -27,12 +31,18 @@ import com.monke.monkeybook.utils.ToastUtils;
 import com.monke.monkeybook.view.activity.DownloadActivity;
 
 import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Locale;
-import java.util.Objects;
+import java.util.Set;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 
 import io.reactivex.Scheduler;
+import io.reactivex.Single;
+import io.reactivex.SingleObserver;
+import io.reactivex.android.schedulers.AndroidSchedulers;
+import io.reactivex.disposables.Disposable;
 import io.reactivex.schedulers.Schedulers;
 
 public class DownloadService extends Service {
@@ -55,17 +65,25 @@ public class DownloadService extends Service {
     private ExecutorService executor;
     private Scheduler scheduler;
     private int threadsNum;
+    //每本书同时下载的章节数
+    private int chapterWindow;
 
     private final SparseArray<IDownloadTask> downloadTasks = new SparseArray<>();
+    //已创建的任务(包括还在读取章节、未加入 downloadTasks 的)，按 noteUrl 去重
+    private final Set<String> taskNoteUrls = new HashSet<>();
+    //服务是否由系统重启
+    private boolean restarted;
 
     @Override
     public void onCreate() {
         super.onCreate();
         running = true;
         threadsNum = AppConfigHelper.get().getInt(this.getString(R.string.pk_threads_num), 4);
+        chapterWindow = AppConfigHelper.get().getInt(this.getString(R.string.pk_download_chapter_window), 3);
         executor = Executors.newFixedThreadPool(threadsNum);
         scheduler = Schedulers.from(executor);
         managerCompat = NotificationManagerCompat.from(this);
+        resumeDownloads();
     }
 
     @Override
@@ -78,7 +96,10 @@ public class DownloadService extends Service {
 
     @Override
     public int onStartCommand(Intent intent, int flags, int startId) {
-        if (intent != null) {
+        if (intent == null) {
+            //服务被系统杀死后重启，由 resumeDownloads 恢复下载队列
+            restarted = true;
+        } else {
             String action = intent.getAction();
             if (action == null) {
                 finishSelf();
@@ -117,12 +138,40 @@ public class DownloadService extends Service {
         return null;
     }
 
+    /**
+     * 恢复持久化的下载任务，未完成的章节直接从记录中读取
+     */
+    private void resumeDownloads() {
+        Single.fromCallable(DownloadJobHelp::queryAllJobs)
+                .subscribeOn(DownloadJobHelp.getScheduler())
+                .observeOn(AndroidSchedulers.mainThread())
+                .subscribe(new SingleObserver<List<DownloadJobBean>>() {
+                    @Override
+                    public void onSubscribe(Disposable d) {
+                    }
+
+                    @Override
+                    public void onSuccess(List<DownloadJobBean> jobs) {
+                        for (DownloadJobBean job : jobs) {
+                            addDownload(job.toDownloadBook());
+                        }
+                        if (jobs.isEmpty() && restarted && downloadTasks.size() == 0) {
+                            finishSelf();
+                        }
+                    }
+
+                    @Override
+                    public void onError(Throwable e) {
+                    }
+                });
+    }
+
     private void addDownload(DownloadBookBean downloadBook) {
-        if (checkDownloadTaskExist(downloadBook)) {
+        if (!taskNoteUrls.add(downloadBook.getNoteUrl())) {
             toast("下载任务已存在");
             return;
         }
-        new DownloadTaskImpl(downloadBook) {
+        new DownloadTaskImpl(downloadBook, chapterWindow) {
             @Override
             public void onDownloadPrepared(DownloadBookBean downloadBook) {
                 addDownload(this);
@@ -144,18 +193,21 @@ public class DownloadService extends Service {
             @Override
             public void onDownloadError(DownloadBookBean downloadBook) {
                 toastOnEvent(EVENT_ERROR, downloadBook);
+                DownloadJobHelp.deleteJob(downloadBook.getNoteUrl());
                 deleteDownload(this, true);
             }
 
             @Override
             public void onDownloadComplete(DownloadBookBean downloadBook) {
                 toastOnEvent(EVENT_COMPLETE, downloadBook);
+                DownloadJobHelp.deleteJob(downloadBook.getNoteUrl());
                 deleteDownload(this, true);
             }
 
             @Override
             public void onDownloadCancel(DownloadBookBean downloadBook) {
                 toastOnEvent(EVENT_CANCEL, downloadBook);
+                DownloadJobHelp.deleteJob(downloadBook.getNoteUrl());
                 deleteDownload(this, true);
             }
         };
@@ -188,9 +240,11 @@ public class DownloadService extends Service {
         synchronized (downloadTasks) {
             for (int i = 0; i < downloadTasks.size(); i++) {
                 IDownloadTask downloadTask = downloadTasks.valueAt(i);
+                DownloadJobHelp.deleteJob(downloadTask.getDownloadBook().getNoteUrl());
                 cancelDownload(downloadTask, false);
             }
             downloadTasks.clear();
+            taskNoteUrls.clear();
         }
         finishSelf();
     }
@@ -223,6 +277,7 @@ public class DownloadService extends Service {
         synchronized (downloadTasks) {
             if (downloadTask != null) {
                 downloadTasks.remove(downloadTask.getId());
+                taskNoteUrls.remove(downloadTask.getDownloadBook().getNoteUrl());
                 managerCompat.cancel(downloadTask.getId());
 
                 if (startNext) {
@@ -323,16 +378,6 @@ public class DownloadService extends Service {
     }
 
 
-    private boolean checkDownloadTaskExist(DownloadBookBean downloadBook) {
-        for (int i = downloadTasks.size() - 1; i >= 0; i--) {
-            IDownloadTask downloadTask = downloadTasks.valueAt(i);
-            if (Objects.equals(downloadTask.getDownloadBook(), downloadBook)) {
-                return true;
-            }
-        }
-        return false;
-    }
-
 
     private void sendDownloadBook(String action, DownloadBookBean downloadBook) {
         DownloadInfo downloadInfo = new DownloadInfo(action, downloadBook);
@@ -373,12 +418,28 @@ public class DownloadService extends Service {
                 .setWhen(when)//保持位置不变
                 .setContentTitle("正在下载：" + bookName)
                 .setContentText(downloadChapterBean.getDisplayDurChapterName() == null ? "  " : downloadChapterBean.getDisplayDurChapterName())
+                .setSubText(getMetricsText(downloadChapterBean.getDurChapterUrl()))
                 .setContentIntent(mainPendingIntent);
         builder.addAction(R.drawable.ic_stop_white_24dp, getString(R.string.cancel), getRemovePendingIntent(notificationId));
         //发送通知
         managerCompat.notify(notificationId, builder.build());
     }
 
+    /**
+     * 章节所在网站的下载速度、每分钟章节数、重试和限流次数
+     */
+    private String getMetricsText(String chapterUrl) {
+        HostMetrics.Snapshot snapshot = HostMetrics.getInstance().getSnapshot(HostMetrics.hostOf(chapterUrl));
+        if (snapshot == null) {
+            return null;
+        }
+        return getString(R.string.download_metrics,
+                Formatter.formatShortFileSize(this, snapshot.bytesPerSecond),
+                snapshot.chaptersPerMinute,
+                snapshot.retries,
+                snapshot.status429 + snapshot.status503);
+    }
+
     private void finishSelf() {
         RxBus.get().post(RxBusTag.BOOK_DOWNLOAD, new DownloadInfo(finishDownloadAction));
         stopSelf();
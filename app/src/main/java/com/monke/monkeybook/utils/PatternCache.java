@@ -0,0 +1,58 @@
+package com.monke.monkeybook.utils;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.regex.Pattern;
+
+/**
+ * 正则表达式缓存，避免在热点路径中重复 Pattern.compile
+ */
+public class PatternCache {
+
+    private static final int MAX_SIZE = 256;
+
+    private static final Map<String, Pattern> sCache = new LinkedHashMap<String, Pattern>(64, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Pattern> eldest) {
+            return size() > MAX_SIZE;
+        }
+    };
+
+    private PatternCache() {
+
+    }
+
+    public static Pattern get(String regex) {
+        return get(regex, 0);
+    }
+
+    public static Pattern get(String regex, int flags) {
+        final String key = flags + "\u0000" + regex;
+        synchronized (sCache) {
+            Pattern pattern = sCache.get(key);
+            if (pattern != null) {
+                return pattern;
+            }
+        }
+        //编译放在锁外，出错时直接抛出PatternSyntaxException，不缓存
+        Pattern pattern = Pattern.compile(regex, flags);
+        synchronized (sCache) {
+            sCache.put(key, pattern);
+        }
+        return pattern;
+    }
+
+    public static String replaceAll(String input, String regex, String replacement) {
+        return get(regex).matcher(input).replaceAll(replacement);
+    }
+
+    public static String replaceFirst(String input, String regex, String replacement) {
+        return get(regex).matcher(input).replaceFirst(replacement);
+    }
+
+    public static void clear() {
+        synchronized (sCache) {
+            sCache.clear();
+        }
+    }
+}
@@ -280,11 +280,11 @@ public class StringUtils {
 
     public static int stringToInt(String str) {
         if (str != null) {
-            String num = fullToHalf(str).replaceAll("\\s", "");
+            String num = PatternCache.replaceAll(fullToHalf(str), "\\s", "");
             try {
                 return Integer.parseInt(num);
             } catch (Exception e) {
-                num = num.replaceAll("两", "二").replaceAll("〇", "零");
+                num = num.replace('两', '二').replace('〇', '零');
                 return chineseNumToInt(num);
             }
         }
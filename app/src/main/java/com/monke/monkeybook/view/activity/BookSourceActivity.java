@@ -22,7 +22,7 @@ import com.hwangjr.rxbus.RxBus;
 import com.monke.monkeybook.R;
 import com.monke.monkeybook.base.MBaseActivity;
 import com.monke.monkeybook.bean.BookSourceBean;
-import com.monke.monkeybook.help.ACache;
+import com.monke.monkeybook.help.DiskCache;
 import com.monke.monkeybook.help.MyItemTouchHelpCallback;
 import com.monke.monkeybook.help.RxBusTag;
 import com.monke.monkeybook.help.permission.Permissions;
@@ -351,10 +351,10 @@ public class BookSourceActivity extends MBaseActivity<BookSourceContract.Present
     }
 
     private void importBookSourceOnline() {
-        String cacheUrl = ACache.get(this).getAsString("sourceUrl");
+        String cacheUrl = DiskCache.get(this).getAsString("sourceUrl");
         InputDialog.show(getSupportFragmentManager(), "输入书源网址", cacheUrl,
                 inputText -> {
-                    ACache.get(this).put("sourceUrl", inputText);
+                    DiskCache.get(this).put("sourceUrl", inputText);
                     mPresenter.importBookSource(inputText);
                 });
     }
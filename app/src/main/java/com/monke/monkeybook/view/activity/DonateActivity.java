@@ -17,7 +17,7 @@ import com.hwangjr.rxbus.RxBus;
 import com.monke.basemvplib.impl.IPresenter;
 import com.monke.monkeybook.R;
 import com.monke.monkeybook.base.MBaseActivity;
-import com.monke.monkeybook.help.ACache;
+import com.monke.monkeybook.help.DiskCache;
 import com.monke.monkeybook.help.Donate;
 import com.monke.monkeybook.help.RxBusTag;
 import com.monke.monkeybook.widget.theme.AppCompat;
@@ -108,7 +108,7 @@ public class DonateActivity extends MBaseActivity {
         } catch (Exception e) {
             e.printStackTrace();
         } finally {
-            ACache.get(this).put("getZfbHb", "True", 3 * ACache.TIME_DAY);
+            DiskCache.get(this).put("getZfbHb", "True", 3 * DiskCache.TIME_DAY);
             RxBus.get().post(RxBusTag.GET_ZFB_Hb, true);
         }
     }
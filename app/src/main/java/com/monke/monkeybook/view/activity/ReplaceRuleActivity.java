@@ -19,7 +19,7 @@ import com.hwangjr.rxbus.RxBus;
 import com.monke.monkeybook.R;
 import com.monke.monkeybook.base.MBaseActivity;
 import com.monke.monkeybook.bean.ReplaceRuleBean;
-import com.monke.monkeybook.help.ACache;
+import com.monke.monkeybook.help.DiskCache;
 import com.monke.monkeybook.help.MyItemTouchHelpCallback;
 import com.monke.monkeybook.help.RxBusTag;
 import com.monke.monkeybook.help.permission.Permissions;
@@ -163,10 +163,10 @@ public class ReplaceRuleActivity extends MBaseActivity<ReplaceRuleContract.Prese
                 selectReplaceRuleFile();
                 break;
             case R.id.action_import_onLine:
-                String cacheUrl = ACache.get(this).getAsString("replaceUrl");
+                String cacheUrl = DiskCache.get(this).getAsString("replaceUrl");
                 InputDialog.show(getSupportFragmentManager(), "输入替换规则网址", cacheUrl,
                         inputText -> {
-                            ACache.get(this).put("replaceUrl", inputText);
+                            DiskCache.get(this).put("replaceUrl", inputText);
                             mPresenter.importDataS(inputText);
                         });
                 break;
@@ -127,6 +127,19 @@ public class FindBookAdapter extends RecyclerView.Adapter<FindBookAdapter.MyView
         return mGroupBeans.size();
     }
 
+    /**
+     * 获取 [from, to] 范围内的书源地址
+     */
+    public List<String> getTags(int from, int to) {
+        synchronized (mGroupBeans) {
+            List<String> tags = new ArrayList<>();
+            for (int i = Math.max(0, from), end = Math.min(to, mGroupBeans.size() - 1); i <= end; i++) {
+                tags.add(mGroupBeans.get(i).getTag());
+            }
+            return tags;
+        }
+    }
+
     private FindKindGroupBean getItem(int position) {
         return mGroupBeans.get(position);
     }
@@ -12,10 +12,12 @@ import android.view.MotionEvent;
 import android.view.View;
 import android.view.ViewGroup;
 
+import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 import androidx.appcompat.widget.AppCompatEditText;
 import androidx.coordinatorlayout.widget.CoordinatorLayout;
 import androidx.core.widget.ContentLoadingProgressBar;
+import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 
 import com.monke.basemvplib.BaseFragment;
@@ -55,6 +57,8 @@ public class FindBookFragment extends BaseFragment<FindBookContract.Presenter> i
     private KeyboardHeightProvider mHeightProvider;
     private boolean mKeyboardShown;
 
+    private final Runnable mNotifyVisibleGroups = this::notifyVisibleGroups;
+
     @Override
     protected FindBookContract.Presenter initInjector() {
         return new FindBookPresenterImpl();
@@ -72,6 +76,28 @@ public class FindBookFragment extends BaseFragment<FindBookContract.Presenter> i
         rvFindList.setAdapter(mAdapter = new FindBookAdapter(requireContext()));
     }
 
+    /**
+     * 等列表布局完成后再通知可见的书源，多次调用只通知一次
+     */
+    private void postNotifyVisibleGroups() {
+        rvFindList.removeCallbacks(mNotifyVisibleGroups);
+        rvFindList.post(mNotifyVisibleGroups);
+    }
+
+    /**
+     * 通知可见的书源，优先加载
+     */
+    private void notifyVisibleGroups() {
+        RecyclerView.LayoutManager layoutManager = rvFindList.getLayoutManager();
+        if (layoutManager instanceof LinearLayoutManager) {
+            int first = ((LinearLayoutManager) layoutManager).findFirstVisibleItemPosition();
+            int last = ((LinearLayoutManager) layoutManager).findLastVisibleItemPosition();
+            if (first != RecyclerView.NO_POSITION) {
+                mPresenter.setVisibleGroups(mAdapter.getTags(first, last));
+            }
+        }
+    }
+
     @Override
     protected void bindEvent() {
         mAdapter.setOnMultiItemClickListener(new FindBookAdapter.OnMultiItemClickListener() {
@@ -92,6 +118,28 @@ public class FindBookFragment extends BaseFragment<FindBookContract.Presenter> i
         });
 
 
+        //过滤在后台线程中进行，列表内容变化后才能得到可见的书源
+        mAdapter.registerAdapterDataObserver(new RecyclerView.AdapterDataObserver() {
+            @Override
+            public void onChanged() {
+                postNotifyVisibleGroups();
+            }
+
+            @Override
+            public void onItemRangeRemoved(int positionStart, int itemCount) {
+                postNotifyVisibleGroups();
+            }
+        });
+
+        rvFindList.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrollStateChanged(@NonNull RecyclerView recyclerView, int newState) {
+                if (newState == RecyclerView.SCROLL_STATE_IDLE) {
+                    notifyVisibleGroups();
+                }
+            }
+        });
+
         searchEdit.addTextChangedListener(new TextWatcher() {
             @Override
             public void beforeTextChanged(CharSequence s, int start, int count, int after) {
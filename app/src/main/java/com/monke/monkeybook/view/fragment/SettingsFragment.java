@@ -12,11 +12,16 @@ import android.widget.ListView;
 import androidx.annotation.Nullable;
 
 import com.hwangjr.rxbus.RxBus;
+import com.monke.basemvplib.HostRateLimiter;
 import com.monke.monkeybook.R;
 import com.monke.monkeybook.dao.DbHelper;
 import com.monke.monkeybook.help.RxBusTag;
+import com.monke.monkeybook.utils.ToastUtils;
 import com.monke.monkeybook.view.activity.SettingActivity;
 
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
 /**
  * Created by GKF on 2017/12/16.
  * 设置
@@ -36,6 +41,26 @@ public class SettingsFragment extends PreferenceFragment implements SharedPrefer
 
         bindPreferenceSummaryToValue(findPreference(mContext.getString(R.string.pk_bookshelf_px)));
         bindPreferenceSummaryToValue(findPreference(mContext.getString(R.string.pk_show_find_mode)));
+        findPreference(mContext.getString(R.string.pk_txt_chapter_patterns))
+                .setOnPreferenceChangeListener((preference, value) -> validateChapterPatterns(String.valueOf(value)));
+    }
+
+    /**
+     * 章节名正则每行一个，有无法编译的正则时不保存
+     */
+    private boolean validateChapterPatterns(String value) {
+        for (String regex : value.split("\n")) {
+            if (regex.trim().isEmpty()) {
+                continue;
+            }
+            try {
+                Pattern.compile(regex.trim(), Pattern.MULTILINE);
+            } catch (PatternSyntaxException e) {
+                ToastUtils.toast(mContext, getString(R.string.txt_chapter_patterns_invalid, regex.trim()));
+                return false;
+            }
+        }
+        return true;
     }
 
     @Override
@@ -102,6 +127,8 @@ public class SettingsFragment extends PreferenceFragment implements SharedPrefer
             DbHelper.getInstance().getDaoSession().getChapterBeanDao().detachAll();
         } else if (key.equals(getString(R.string.pk_show_find_mode))) {
             RxBus.get().post(RxBusTag.FIND_LIST_CHANGE, true);
+        } else if (key.equals(getString(R.string.pk_host_rate_limit))) {
+            HostRateLimiter.getInstance().setRate(sharedPreferences.getInt(key, 5));
         }
     }
 }
@@ -240,6 +240,10 @@ public class FileSelectorDialog extends AppCompatDialog implements FileSelectorC
                     okBth.setText(String.format(Locale.getDefault(), "%s(%d)", getString(R.string.ok), count));
                 }
                 break;
+            case R.id.action_search_files:
+                okBth.setText(R.string.ok);
+                mPresenter.searchFiles();
+                break;
             case R.id.item_sort_name_asc:
                 checkIndex = 0;
                 break;
@@ -2,10 +2,15 @@ package com.monke.monkeybook.web;
 
 import com.google.gson.Gson;
 import com.monke.monkeybook.web.controller.BookshelfController;
+import com.monke.monkeybook.web.controller.MetricsController;
 import com.monke.monkeybook.web.controller.SourceController;
 import com.monke.monkeybook.web.utils.AssetsWeb;
 import com.monke.monkeybook.web.utils.ReturnData;
 
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.net.URLEncoder;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -73,6 +78,15 @@ public class HttpServer extends NanoHTTPD {
                         case "/getBookContent":
                             returnData = new BookshelfController().getBookContent(parameters);
                             break;
+                        case "/exportBook":
+                            returnData = new BookshelfController().exportBook(parameters);
+                            if (returnData.isSuccess()) {
+                                return newFileResponse(new File((String) returnData.getData()));
+                            }
+                            break;
+                        case "/getNetworkMetrics":
+                            returnData = new MetricsController().getNetworkMetrics();
+                            break;
                     }
                     break;
             }
@@ -93,4 +107,14 @@ public class HttpServer extends NanoHTTPD {
         }
     }
 
+    /**
+     * 以附件形式分块返回文件，不把整个文件读入内存
+     */
+    private Response newFileResponse(File file) throws IOException {
+        String mimeType = file.getName().endsWith(".epub") ? "application/epub+zip" : "text/plain; charset=utf-8";
+        Response response = newChunkedResponse(Response.Status.OK, mimeType, new FileInputStream(file));
+        response.addHeader("Content-Disposition", "attachment; filename=\"" + URLEncoder.encode(file.getName(), "UTF-8") + "\"");
+        return response;
+    }
+
 }
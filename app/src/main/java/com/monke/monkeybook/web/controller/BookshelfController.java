@@ -6,12 +6,14 @@ import com.monke.monkeybook.bean.BookContentBean;
 import com.monke.monkeybook.bean.BookShelfBean;
 import com.monke.monkeybook.bean.ChapterBean;
 import com.monke.monkeybook.dao.DbHelper;
+import com.monke.monkeybook.help.BookExporter;
 import com.monke.monkeybook.help.BookshelfHelp;
 import com.monke.monkeybook.help.ChapterContentHelp;
 import com.monke.monkeybook.model.WebBookModel;
 import com.monke.monkeybook.utils.GsonUtils;
 import com.monke.monkeybook.web.utils.ReturnData;
 
+import java.io.File;
 import java.util.List;
 import java.util.Map;
 
@@ -62,6 +64,29 @@ public class BookshelfController {
         }
     }
 
+    /**
+     * 将已缓存的章节导出为 txt 或 epub，返回导出文件的路径
+     */
+    public ReturnData exportBook(Map<String, List<String>> parameters) {
+        List<String> strings = parameters.get("url");
+        ReturnData returnData = new ReturnData();
+        if (strings == null) {
+            return returnData.setErrorMsg("参数url不能为空，请指定书籍地址");
+        }
+        BookShelfBean bookShelfBean = BookshelfHelp.queryBookByUrl(strings.get(0));
+        if (bookShelfBean == null || bookShelfBean.realChapterListEmpty()) {
+            return returnData.setErrorMsg("未找到");
+        }
+        List<String> types = parameters.get("type");
+        String type = types == null ? BookExporter.TYPE_TXT : types.get(0);
+        try {
+            File file = new BookExporter(bookShelfBean, type).export(null);
+            return returnData.setData(file.getAbsolutePath());
+        } catch (Exception e) {
+            return returnData.setErrorMsg(e.getMessage());
+        }
+    }
+
     public ReturnData saveBook(String postData) {
         BookShelfBean bookShelfBean = GsonUtils.parseJObject(postData, BookShelfBean.class);
         ReturnData returnData = new ReturnData();
@@ -0,0 +1,21 @@
+package com.monke.monkeybook.web.controller;
+
+import com.monke.basemvplib.HostMetrics;
+import com.monke.monkeybook.web.utils.ReturnData;
+
+import java.util.List;
+
+public class MetricsController {
+
+    /**
+     * 各网站的请求统计：流量、速度、重试和 429/503 次数
+     */
+    public ReturnData getNetworkMetrics() {
+        List<HostMetrics.Snapshot> snapshots = HostMetrics.getInstance().getSnapshots();
+        ReturnData returnData = new ReturnData();
+        if (snapshots.isEmpty()) {
+            return returnData.setErrorMsg("还没有网络请求");
+        }
+        return returnData.setData(snapshots);
+    }
+}
@@ -0,0 +1,166 @@
+package com.monke.monkeybook.widget.page;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 章节的分页结果，只保存行的起止偏移和每页的起始行，便于缓存和持久化
+ */
+class ChapterLayout {
+    private static final int VERSION = 4;
+
+    //每一行在章节文本中的起止位置
+    final int[] lineStarts;
+    final int[] lineEnds;
+    //两端对齐时每行的字间距，0 表示不需要对齐
+    final float[] lineGaps;
+    //每一页的起始行，长度为页数 + 1
+    final int[] pageLines;
+    //每一页中标题所占的行数
+    final int[] pageTitleLines;
+
+    private ChapterLayout(int[] lineStarts, int[] lineEnds, float[] lineGaps, int[] pageLines, int[] pageTitleLines) {
+        this.lineStarts = lineStarts;
+        this.lineEnds = lineEnds;
+        this.lineGaps = lineGaps;
+        this.pageLines = pageLines;
+        this.pageTitleLines = pageTitleLines;
+    }
+
+    int getPageCount() {
+        return pageTitleLines.length;
+    }
+
+    int getLineCount() {
+        return lineStarts.length;
+    }
+
+    /**
+     * 校验偏移是否落在文本范围内，避免错误的缓存导致越界
+     */
+    boolean isValidFor(String text) {
+        int length = text.length();
+        for (int i = 0; i < lineStarts.length; i++) {
+            if (lineStarts[i] < 0 || lineEnds[i] > length || lineStarts[i] > lineEnds[i]) {
+                return false;
+            }
+        }
+        return pageLines.length == pageTitleLines.length + 1
+                && pageLines[pageLines.length - 1] == lineStarts.length;
+    }
+
+    List<TxtPage> toPages(String text, String title) {
+        final List<TxtPage> pages = new ArrayList<>(getPageCount());
+        for (int i = 0, count = getPageCount(); i < count; i++) {
+            TxtPage page = new TxtPage(text, this, i);
+            page.title = title;
+            pages.add(page);
+        }
+        return pages;
+    }
+
+    void writeTo(DataOutputStream out) throws IOException {
+        out.writeInt(VERSION);
+        writeArray(out, lineStarts);
+        writeArray(out, lineEnds);
+        out.writeInt(lineGaps.length);
+        for (float gap : lineGaps) {
+            out.writeFloat(gap);
+        }
+        writeArray(out, pageLines);
+        writeArray(out, pageTitleLines);
+    }
+
+    static ChapterLayout readFrom(DataInputStream in) throws IOException {
+        if (in.readInt() != VERSION) {
+            return null;
+        }
+        int[] lineStarts = readArray(in);
+        int[] lineEnds = readArray(in);
+        float[] lineGaps = new float[in.readInt()];
+        for (int i = 0; i < lineGaps.length; i++) {
+            lineGaps[i] = in.readFloat();
+        }
+        int[] pageLines = readArray(in);
+        int[] pageTitleLines = readArray(in);
+        if (lineStarts.length != lineEnds.length || lineStarts.length != lineGaps.length) {
+            return null;
+        }
+        return new ChapterLayout(lineStarts, lineEnds, lineGaps, pageLines, pageTitleLines);
+    }
+
+    private static void writeArray(DataOutputStream out, int[] array) throws IOException {
+        out.writeInt(array.length);
+        for (int value : array) {
+            out.writeInt(value);
+        }
+    }
+
+    private static int[] readArray(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) {
+            throw new IOException("invalid length");
+        }
+        int[] array = new int[length];
+        for (int i = 0; i < length; i++) {
+            array[i] = in.readInt();
+        }
+        return array;
+    }
+
+    static class Builder {
+        private int[] lineStarts = new int[64];
+        private int[] lineEnds = new int[64];
+        private float[] lineGaps = new float[64];
+        private int lineCount;
+
+        private int[] pageLines = new int[8];
+        private int[] pageTitleLines = new int[8];
+        private int pageCount;
+        private int pageStartLine;
+
+        void addLine(int start, int end, float gap) {
+            if (lineCount == lineStarts.length) {
+                lineStarts = Arrays.copyOf(lineStarts, lineCount * 2);
+                lineEnds = Arrays.copyOf(lineEnds, lineCount * 2);
+                lineGaps = Arrays.copyOf(lineGaps, lineCount * 2);
+            }
+            lineStarts[lineCount] = start;
+            lineEnds[lineCount] = end;
+            lineGaps[lineCount] = gap;
+            lineCount++;
+        }
+
+        /**
+         * 当前页已添加的行数
+         */
+        int getPageLineCount() {
+            return lineCount - pageStartLine;
+        }
+
+        void endPage(int titleLines) {
+            if (pageCount + 1 >= pageLines.length) {
+                pageLines = Arrays.copyOf(pageLines, pageLines.length * 2);
+                pageTitleLines = Arrays.copyOf(pageTitleLines, pageTitleLines.length * 2);
+            }
+            pageLines[pageCount] = pageStartLine;
+            pageTitleLines[pageCount] = titleLines;
+            pageCount++;
+            pageStartLine = lineCount;
+        }
+
+        ChapterLayout build() {
+            int[] pages = Arrays.copyOf(pageLines, pageCount + 1);
+            pages[pageCount] = lineCount;
+            return new ChapterLayout(Arrays.copyOf(lineStarts, lineCount),
+                    Arrays.copyOf(lineEnds, lineCount),
+                    Arrays.copyOf(lineGaps, lineCount),
+                    pages,
+                    Arrays.copyOf(pageTitleLines, pageCount));
+        }
+    }
+}
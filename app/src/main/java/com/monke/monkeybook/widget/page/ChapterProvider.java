@@ -1,21 +1,19 @@
 package com.monke.monkeybook.widget.page;
 
-import android.text.Layout;
-import android.text.StaticLayout;
-
 import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
 
 import com.hwangjr.rxbus.RxBus;
 import com.monke.basemvplib.NetworkUtil;
-import com.monke.basemvplib.rxjava.RxExecutors;
 import com.monke.monkeybook.base.observer.SimpleObserver;
 import com.monke.monkeybook.bean.BookContentBean;
 import com.monke.monkeybook.bean.BookInfoBean;
 import com.monke.monkeybook.bean.BookShelfBean;
 import com.monke.monkeybook.bean.ChapterBean;
 import com.monke.monkeybook.help.ChapterContentHelp;
+import com.monke.monkeybook.help.ChapterTextCache;
 import com.monke.monkeybook.help.ReadBookControl;
+import com.monke.monkeybook.help.ReaderExecutors;
 import com.monke.monkeybook.help.RxBusTag;
 import com.monke.monkeybook.model.WebBookModel;
 import com.monke.monkeybook.model.content.exception.BookSourceException;
@@ -24,12 +22,15 @@ import com.monke.monkeybook.utils.ObjectsCompat;
 import com.monke.monkeybook.utils.StringUtils;
 
 import java.io.BufferedReader;
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Objects;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.TimeoutException;
+import java.util.regex.Pattern;
 
 import io.reactivex.Scheduler;
 import io.reactivex.android.schedulers.AndroidSchedulers;
@@ -37,13 +38,16 @@ import io.reactivex.disposables.Disposable;
 
 class ChapterProvider {
 
-    private static final int THREAD_NUM = 6;
+    private static final Pattern BLANK_PATTERN = Pattern.compile("\\s");
 
-    private final DownloadList mDownloadingChapterList = new DownloadList(THREAD_NUM);
+    private static final String INDENT = StringUtils.halfToFull("  ");
 
-    private PageLoader mPageLoader;
+    //同时请求的章节上限，超出后取消最早的请求
+    private static final int MAX_DOWNLOADING = 10;
 
-    private Scheduler mScheduler;
+    private final DownloadList mDownloadingChapterList = new DownloadList(MAX_DOWNLOADING);
+
+    private PageLoader mPageLoader;
 
     ChapterProvider(PageLoader pageLoader) {
         this.mPageLoader = pageLoader;
@@ -61,10 +65,9 @@ class ChapterProvider {
             return new TxtChapter(chapterPos, !NetworkUtil.isNetworkAvailable() ? PageStatus.STATUS_NETWORK_ERROR : PageStatus.STATUS_LOADING);
         }
 
-        // 获取章节的文本流
+        // 获取处理后的章节内容
         try {
-            BufferedReader reader = mPageLoader.getChapterReader(chapter);
-            return loadChapter(chapter, reader);
+            return loadChapter(chapter, getChapterContent(chapter));
         } catch (Exception e) {
             return new TxtChapter(chapterPos, PageStatus.STATUS_UNKNOWN_ERROR);
         }
@@ -74,111 +77,161 @@ class ChapterProvider {
      * 将章节数据，解析成页面列表
      *
      * @param chapter：章节信息
-     * @param br：章节的文本流
+     * @param content：替换净化后的章节正文
      */
-    private TxtChapter loadChapter(ChapterBean chapter, BufferedReader br) {
-        //生成的页面
-        final List<TxtPage> pages = new ArrayList<>();
+    private TxtChapter loadChapter(ChapterBean chapter, String content) {
         final TxtChapter txtChapter = new TxtChapter(chapter.getDurChapterIndex(), PageStatus.STATUS_FINISH);
-        //使用流的方式加载
-        final List<String> lines = new ArrayList<>();
         final BookShelfBean collBook = mPageLoader.getCollBook();
         final BookInfoBean bookInfo = collBook.getBookInfoBean();
+        List<TxtPage> pages = new ArrayList<>();
+        try {
+            //拼接需要排版的文本，标题在前
+            final StringBuilder builder = new StringBuilder(content.length() + 64);
+            if (ReadBookControl.getInstance().getShowTitle()) {
+                builder.append(ChapterContentHelp.replaceContent(bookInfo.getName(), bookInfo.getTag(), chapter.getDisplayDurChapterName()))
+                        .append('\n');
+            }
+            final int titleEnd = builder.length();
+            appendParagraphs(builder, content);
+            final String text = builder.toString();
+
+            //优先使用缓存的分页结果
+            final String key = PaginationCache.buildKey(text, mPageLoader.getLayoutSignature());
+            ChapterLayout layout = PaginationCache.INSTANCE.get(collBook.getNoteUrl(), key, text);
+            if (layout == null) {
+                layout = paginate(text, titleEnd);
+                PaginationCache.INSTANCE.put(collBook.getNoteUrl(), key, layout);
+            }
+            pages = layout.toPages(text, chapter.getDisplayDurChapterName());
+        } catch (Exception e) {
+            e.printStackTrace();
+        }
+        txtChapter.setTxtPages(pages);
+        return txtChapter;
+    }
+
+    /**
+     * 重置段落：合并空白，去掉空行，增加段首缩进
+     */
+    private static void appendParagraphs(StringBuilder builder, String content) {
+        for (String paragraph : content.split("\n")) {
+            paragraph = BLANK_PATTERN.matcher(paragraph).replaceAll(" ").trim();
+            // 如果只有换行符，那么就不执行
+            if (paragraph.isEmpty()) continue;
+            builder.append(INDENT).append(paragraph).append('\n');
+        }
+    }
+
+    /**
+     * 计算分页，只记录每行的起止位置
+     *
+     * @param text：排版文本，每个段落以换行符结尾
+     * @param titleEnd：标题在文本中的结束位置
+     */
+    private ChapterLayout paginate(String text, int titleEnd) {
+        final ChapterLayout.Builder builder = new ChapterLayout.Builder();
+        final int visibleHeight = mPageLoader.getVisibleHeight();
+        final int textLength = text.length();
 
-        int rHeight = mPageLoader.getVisibleHeight();
+        int rHeight = visibleHeight;
         int titleLinesCount = 0;
-        try {
-            boolean showTitle = ReadBookControl.getInstance().getShowTitle(); // 是否展示标题
-            String paragraph = chapter.getDisplayDurChapterName() + "\n"; //默认展示标题
-            if (collBook.isLocalBook()) {
-                br.readLine();
+        int paraStart = 0;
+        while (paraStart < textLength) {
+            final boolean isTitle = paraStart < titleEnd;
+            int paraEnd;
+            if (isTitle) {
+                paraEnd = titleEnd;
+            } else {
+                paraEnd = text.indexOf('\n', paraStart) + 1;
+                if (paraEnd <= 0) {
+                    paraEnd = textLength;
+                }
             }
-            while (showTitle || (paragraph = br.readLine()) != null) {
-                paragraph = ChapterContentHelp.replaceContent(bookInfo.getName(), bookInfo.getTag(), paragraph);
-                // 重置段落
-                if (!showTitle) {
-                    paragraph = paragraph.replaceAll("\\s", " ").trim();
-                    // 如果只有换行符，那么就不执行
-                    if (paragraph.equals("")) continue;
-                    paragraph = StringUtils.halfToFull("  ") + paragraph + "\n";
+            //行断开器，按缓存的字宽计算，避免每行创建 StaticLayout
+            final LineBreaker breaker = isTitle ? mPageLoader.getTitleBreaker() : mPageLoader.getTextBreaker();
+            int start = paraStart;
+            while (start < paraEnd) {
+                //当前空间，是否容得下一行文字
+                if (isTitle) {
+                    rHeight -= mPageLoader.getTitleTextSize();
+                } else {
+                    rHeight -= mPageLoader.getTextSize();
+                }
+                // 一页已经填充满了，创建 TextPage
+                if (rHeight <= 0) {
+                    builder.endPage(titleLinesCount);
+                    rHeight = visibleHeight;
+                    titleLinesCount = 0;
+                    continue;
                 }
-                int wordCount;
-                String subStr;
-                while (paragraph.length() > 0) {
-                    //当前空间，是否容得下一行文字
-                    if (showTitle) {
-                        rHeight -= mPageLoader.getTitleTextSize();
-                    } else {
-                        rHeight -= mPageLoader.getTextSize();
-                    }
-                    // 一页已经填充满了，创建 TextPage
-                    if (rHeight <= 0) {
-                        // 创建Page
-                        TxtPage page = new TxtPage();
-                        page.position = pages.size();
-                        page.title = chapter.getDisplayDurChapterName();
-                        page.lines = new ArrayList<>(lines);
-                        page.titleLines = titleLinesCount;
-                        pages.add(page);
-                        // 重置Lines
-                        lines.clear();
-                        rHeight = mPageLoader.getVisibleHeight();
-                        titleLinesCount = 0;
-                        continue;
-                    }
 
-                    //测量一行占用的字节数
-                    if (showTitle) {
-                        Layout tempLayout = new StaticLayout(paragraph, mPageLoader.getTitlePaint(), mPageLoader.getVisibleWidth(), Layout.Alignment.ALIGN_NORMAL, 0, 0, false);
-                        wordCount = tempLayout.getLineEnd(0);
-                    } else {
-                        Layout tempLayout = new StaticLayout(paragraph, mPageLoader.getTextPaint(), mPageLoader.getVisibleWidth(), Layout.Alignment.ALIGN_NORMAL, 0, 0, false);
-                        wordCount = tempLayout.getLineEnd(0);
+                //测量一行占用的字节数
+                int end = breaker.nextLineEnd(text, start, paraEnd);
+                if (end - start != 1 || text.charAt(start) != '\n') {
+                    //将一行存储到lines中，段落中间的行预先计算两端对齐的字间距
+                    float gap = 0;
+                    if (!isTitle && text.charAt(end - 1) != '\n') {
+                        gap = breaker.justifyGap(text, start, end);
                     }
+                    builder.addLine(start, end, gap);
 
-                    subStr = paragraph.substring(0, wordCount);
-                    if (!subStr.equals("\n")) {
-                        //将一行字节，存储到lines中
-                        lines.add(subStr);
-
-                        //设置段落间距
-                        if (showTitle) {
-                            titleLinesCount += 1;
-                        }
-                        rHeight -= mPageLoader.getTextInterval();
+                    if (isTitle) {
+                        titleLinesCount += 1;
                     }
-                    //裁剪
-                    paragraph = paragraph.substring(wordCount);
-                }
-
-                //增加段落的间距
-                if (lines.size() != 0) {
-                    rHeight = rHeight - mPageLoader.getTextPara() + mPageLoader.getTextInterval();
+                    rHeight -= mPageLoader.getTextInterval();
                 }
+                //移动到下一行
+                start = end;
+            }
 
-                if (showTitle) {
-                    showTitle = false;
-                }
+            //增加段落的间距
+            if (builder.getPageLineCount() != 0) {
+                rHeight = rHeight - mPageLoader.getTextPara() + mPageLoader.getTextInterval();
             }
+            paraStart = paraEnd;
+        }
 
-            if (lines.size() != 0) {
-                //创建Page
-                TxtPage page = new TxtPage();
-                page.position = pages.size();
-                page.title = chapter.getDisplayDurChapterName();
-                page.lines = new ArrayList<>(lines);
-                page.titleLines = titleLinesCount;
-                pages.add(page);
-                //重置Lines
-                lines.clear();
+        if (builder.getPageLineCount() != 0) {
+            builder.endPage(titleLinesCount);
+        }
+        return builder.build();
+    }
+
+    /**
+     * 获取替换净化后的章节正文，优先从缓存读取
+     */
+    private String getChapterContent(ChapterBean chapter) throws Exception {
+        final BookShelfBean collBook = mPageLoader.getCollBook();
+        final BookInfoBean bookInfo = collBook.getBookInfoBean();
+        final String key = ChapterTextCache.buildKey(bookInfo.getName(), bookInfo.getTag(), mPageLoader.getChapterSourceKey(chapter));
+        String content = ChapterTextCache.INSTANCE.get(key);
+        if (content == null) {
+            BufferedReader reader = mPageLoader.getChapterReader(chapter);
+            try {
+                //按段落替换净化
+                content = ChapterContentHelp.replaceChapterContent(bookInfo.getName(), bookInfo.getTag(),
+                        readContent(reader, collBook.isLocalBook()));
+            } finally {
+                IOUtils.close(reader);
             }
-        } catch (Exception e) {
-            e.printStackTrace();
-        } finally {
-            IOUtils.close(br);
+            ChapterTextCache.INSTANCE.put(key, content);
         }
-        txtChapter.setTxtPages(pages);
-        return txtChapter;
+        return content;
+    }
+
+    /**
+     * 读取章节正文，本地书籍第一行为标题
+     */
+    private static String readContent(BufferedReader br, boolean skipTitle) throws IOException {
+        final StringBuilder builder = new StringBuilder();
+        if (skipTitle) {
+            br.readLine();
+        }
+        String line;
+        while ((line = br.readLine()) != null) {
+            builder.append(line).append('\n');
+        }
+        return builder.toString();
     }
 
     void loadChapterContent(int chapterIndex) {
@@ -187,7 +240,7 @@ class ChapterProvider {
             final ChapterBean chapter = bookShelf.getChapter(chapterIndex);
             if (mPageLoader.chapterNotCached(chapter) && !contains(chapter.getDurChapterUrl())) {
                 WebBookModel.getInstance().getBookContent(bookShelf.getBookInfoBean(), chapter)
-                        .subscribeOn(getScheduler())
+                        .subscribeOn(getScheduler(chapterIndex))
                         .doAfterNext(bookContentBean -> RxBus.get().post(RxBusTag.CHAPTER_CHANGE, bookContentBean))
                         .timeout(30, TimeUnit.SECONDS)
                         .observeOn(AndroidSchedulers.mainThread())
@@ -195,7 +248,7 @@ class ChapterProvider {
 
                             @Override
                             public void onSubscribe(Disposable d) {
-                                addDownloading(chapter.getDurChapterUrl(), d);
+                                addDownloading(chapter.getDurChapterUrl(), chapterIndex, d);
                             }
 
                             @Override
@@ -234,15 +287,30 @@ class ChapterProvider {
         return mDownloadingChapterList.contains(new ChapterDownloading(chapterUrl));
     }
 
-    private synchronized void addDownloading(String chapterUrl, Disposable disposable) {
-        mDownloadingChapterList.add(new ChapterDownloading(chapterUrl, disposable));
+    private synchronized void addDownloading(String chapterUrl, int chapterIndex, Disposable disposable) {
+        mDownloadingChapterList.add(new ChapterDownloading(chapterUrl, chapterIndex, disposable));
     }
 
-    private Scheduler getScheduler() {
-        if (mScheduler == null) {
-            mScheduler = RxExecutors.newScheduler(THREAD_NUM);
+    /**
+     * 取消不在 [from, to] 范围内的章节请求，用于目录跳转后丢弃过期的预下载
+     */
+    synchronized void cancelOutside(int from, int to) {
+        Iterator<ChapterDownloading> iterator = mDownloadingChapterList.iterator();
+        while (iterator.hasNext()) {
+            ChapterDownloading downloading = iterator.next();
+            if (downloading.chapterIndex < from || downloading.chapterIndex > to) {
+                downloading.dispose();
+                iterator.remove();
+            }
         }
-        return mScheduler;
+    }
+
+    /**
+     * 当前章节的请求优先于预下载
+     */
+    private Scheduler getScheduler(int chapterIndex) {
+        return ReaderExecutors.get(ReaderExecutors.Lane.NETWORK, chapterIndex == mPageLoader.getChapterPosition()
+                ? ReaderExecutors.Priority.FOREGROUND : ReaderExecutors.Priority.PREFETCH);
     }
 
     void stop() {
@@ -250,22 +318,20 @@ class ChapterProvider {
             downloading.dispose();
         }
         mDownloadingChapterList.clear();
-        if (mScheduler != null) {
-            mScheduler.shutdown();
-            mScheduler = null;
-        }
     }
 
     private static class ChapterDownloading {
         private String chapterUrl;
+        private int chapterIndex;
         private Disposable disposable;
 
         ChapterDownloading(String chapterUrl) {
             this.chapterUrl = chapterUrl;
         }
 
-        ChapterDownloading(String chapterUrl, Disposable disposable) {
+        ChapterDownloading(String chapterUrl, int chapterIndex, Disposable disposable) {
             this.chapterUrl = chapterUrl;
+            this.chapterIndex = chapterIndex;
             this.disposable = disposable;
         }
 
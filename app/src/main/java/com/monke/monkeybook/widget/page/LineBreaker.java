@@ -0,0 +1,167 @@
+package com.monke.monkeybook.widget.page;
+
+import android.text.TextPaint;
+
+/**
+ * 基于字宽缓存的断行器，替代逐行创建 StaticLayout
+ * 中日韩字符在绝大多数字体中等宽，只测量一次
+ */
+class LineBreaker {
+    //小于该值的字符单独缓存宽度
+    private static final int CACHE_LIMIT = 0x3000;
+    //行首禁则：这些标点不能出现在行首
+    private static final char INDENT_CHAR = '\u3000';
+    private static final String NO_LINE_START = "，。、！？；：,.!?;:”’）》」』】〕〉…—～)]}";
+
+    private final TextPaint mPaint;
+    private final Measurer mMeasurer;
+    private final float mMaxWidth;
+
+    private final float[] mWidths = new float[CACHE_LIMIT];
+    private float mCjkWidth = -1;
+
+    /**
+     * 测量文字宽度，与 {@link TextPaint#measureText(CharSequence, int, int)} 一致
+     */
+    interface Measurer {
+        float measureText(CharSequence text, int start, int end);
+    }
+
+    LineBreaker(TextPaint paint, float maxWidth) {
+        this(paint, paint::measureText, maxWidth);
+    }
+
+    LineBreaker(Measurer measurer, float maxWidth) {
+        this(null, measurer, maxWidth);
+    }
+
+    private LineBreaker(TextPaint paint, Measurer measurer, float maxWidth) {
+        this.mPaint = paint;
+        this.mMeasurer = measurer;
+        this.mMaxWidth = maxWidth;
+    }
+
+    TextPaint getPaint() {
+        return mPaint;
+    }
+
+    float getMaxWidth() {
+        return mMaxWidth;
+    }
+
+    /**
+     * 计算从 start 开始的一行的结束位置(不包含)，换行符包含在行内
+     */
+    int nextLineEnd(CharSequence text, int start, int end) {
+        float width = 0;
+        int i = start;
+        while (i < end) {
+            char c = text.charAt(i);
+            if (c == '\n') {
+                return i + 1;
+            }
+            int count = Character.isHighSurrogate(c) && i + 1 < end ? 2 : 1;
+            float w = count == 2 ? mMeasurer.measureText(text, i, i + 2) : getCharWidth(c);
+            if (width + w > mMaxWidth && i > start) {
+                return adjustBreak(text, start, i);
+            }
+            width += w;
+            i += count;
+        }
+        return end;
+    }
+
+    /**
+     * 测量 [start, end) 的宽度
+     */
+    float measure(CharSequence text, int start, int end) {
+        float width = 0;
+        for (int i = start; i < end; i++) {
+            char c = text.charAt(i);
+            if (c == '\n') {
+                continue;
+            }
+            if (Character.isHighSurrogate(c) && i + 1 < end) {
+                width += mMeasurer.measureText(text, i, i + 2);
+                i++;
+            } else {
+                width += getCharWidth(c);
+            }
+        }
+        return width;
+    }
+
+    /**
+     * 计算两端对齐时相邻字符之间额外的间距
+     * 剩余宽度由字符之间的空隙平分，行首和行尾不加间距；段首缩进不参与对齐
+     */
+    float justifyGap(CharSequence text, int start, int end) {
+        int count = Character.codePointCount(text, skipIndent(text, start, end), end);
+        if (count <= 1) {
+            return 0;
+        }
+        float gap = (mMaxWidth - measure(text, start, end)) / (count - 1);
+        return gap > 0 ? gap : 0;
+    }
+
+    /**
+     * 跳过行首的全角空格缩进，返回需要两端对齐部分的开始位置
+     */
+    static int skipIndent(CharSequence text, int start, int end) {
+        while (start < end && text.charAt(start) == INDENT_CHAR) {
+            start++;
+        }
+        return start;
+    }
+
+    float getCharWidth(char c) {
+        if (c < CACHE_LIMIT) {
+            float w = mWidths[c];
+            if (w == 0) {
+                w = measureChar(c);
+                mWidths[c] = w;
+            }
+            return w;
+        }
+        if (isCjk(c)) {
+            if (mCjkWidth < 0) {
+                mCjkWidth = measureChar('中');
+            }
+            return mCjkWidth;
+        }
+        return measureChar(c);
+    }
+
+    private float measureChar(char c) {
+        return mMeasurer.measureText(String.valueOf(c), 0, 1);
+    }
+
+    /**
+     * 处理断行位置：标点不出现在行首，英文单词不从中间断开
+     */
+    private int adjustBreak(CharSequence text, int start, int breakAt) {
+        char c = text.charAt(breakAt);
+        if (NO_LINE_START.indexOf(c) >= 0) {
+            return breakAt - 1 > start ? breakAt - 1 : breakAt;
+        }
+        if (isWordChar(c) && isWordChar(text.charAt(breakAt - 1))) {
+            for (int i = breakAt - 1; i > start; i--) {
+                if (!isWordChar(text.charAt(i - 1))) {
+                    return i;
+                }
+            }
+        }
+        return breakAt;
+    }
+
+    private static boolean isWordChar(char c) {
+        return c < 0x0250 && Character.isLetterOrDigit(c);
+    }
+
+    private static boolean isCjk(char c) {
+        return (c >= 0x3000 && c <= 0x9FFF)
+                || (c >= 0xAC00 && c <= 0xD7AF)
+                || (c >= 0xF900 && c <= 0xFAFF)
+                || (c >= 0xFF00 && c <= 0xFF60);
+    }
+}
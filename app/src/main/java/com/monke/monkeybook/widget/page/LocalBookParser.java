@@ -0,0 +1,219 @@
+package com.monke.monkeybook.widget.page;
+
+import android.text.TextUtils;
+
+import com.monke.basemvplib.EncodingDetect;
+import com.monke.monkeybook.bean.BookInfoBean;
+import com.monke.monkeybook.bean.ChapterBean;
+import com.monke.monkeybook.help.ReadBookControl;
+import com.monke.monkeybook.help.ReaderExecutors;
+import com.monke.monkeybook.utils.IOUtils;
+import com.monke.monkeybook.utils.MD5Utils;
+import com.monke.monkeybook.utils.PatternCache;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 本地 TXT 的编码检测和分章，打开书籍和批量导入时共用
+ * 分章结果保存在 TxtIndexCache 中，导入时分章后首次打开可以直接使用
+ */
+public class LocalBookParser {
+    //默认从文件中获取数据的长度
+    private final static int BUFFER_SIZE = 512 * 1024;
+    //没有标题的时候，每个章节的最大长度
+    private final static int MAX_LENGTH_WITH_NO_CHAPTER = 10 * 1024;
+
+    //从序章找作者名称
+    private static final String AUTHOR_PATTERN = "(?<=作者[:：])(.*?)(\r\n|,|。|；)";
+
+    //正则表达式章节匹配模式
+    // "(第)([0-9零一二两三四五六七八九十百千万壹贰叁肆伍陆柒捌玖拾佰仟]{1,10})([章节回集卷])(.*)"
+    private static final String[] CHAPTER_PATTERNS = new String[]{"^(.{0,8})(\u7b2c)([0-9\u96f6\u4e00\u4e8c\u4e24\u4e09\u56db\u4e94\u516d\u4e03\u516b\u4e5d\u5341\u767e\u5343\u4e07\u58f9\u8d30\u53c1\u8086\u4f0d\u9646\u67d2\u634c\u7396\u62fe\u4f70\u4edf]{1,10})([\u7ae0\u8282\u56de\u96c6\u5377])(.{0,30})$",
+            "^(\\s{0,4})([\\(\u3010\u300a]?(\u5377)?)([0-9\u96f6\u4e00\u4e8c\u4e24\u4e09\u56db\u4e94\u516d\u4e03\u516b\u4e5d\u5341\u767e\u5343\u4e07\u58f9\u8d30\u53c1\u8086\u4f0d\u9646\u67d2\u634c\u7396\u62fe\u4f70\u4edf]{1,10})([\\.:\uff1a\u0020\f\t])(.{0,30})$",
+            "^(\\s{0,4})([\\(\uff08\u3010\u300a])(.{0,30})([\\)\uff09\u3011\u300b])(\\s{0,2})$",
+            "^(\\s{0,4})(\u6b63\u6587)(.{0,20})$",
+            "^(.{0,4})(Chapter|chapter)(\\s{0,4})([0-9]{1,4})(.{0,30})$"};
+
+    public interface OnProgressListener {
+        void onProgress(int progress);
+    }
+
+    private final File mBookFile;
+    private final Charset mCharset;
+    private final BookInfoBean mBookInfo;
+    private final ReaderExecutors.Priority mPriority;
+    //章节解析模式
+    private Pattern mChapterPattern;
+
+    /**
+     * @param priority 分章任务的优先级，打开书籍时为 FOREGROUND，批量导入时为 BACKGROUND
+     */
+    public LocalBookParser(File bookFile, Charset charset, BookInfoBean bookInfo, ReaderExecutors.Priority priority) {
+        this.mBookFile = bookFile;
+        this.mCharset = charset;
+        this.mBookInfo = bookInfo;
+        this.mPriority = priority;
+    }
+
+    /**
+     * 获取文件编码：优先使用书籍设置的编码，其次是上次检测的结果，检测结果会写回书籍信息
+     */
+    public static Charset detectCharset(File bookFile, BookInfoBean bookInfo) {
+        String charsetName = bookInfo.getCharset();
+        if (TextUtils.isEmpty(charsetName)) {
+            //文件未变化时使用上次检测的编码
+            charsetName = TxtIndexCache.INSTANCE.getCharset(bookFile);
+            if (TextUtils.isEmpty(charsetName)) {
+                charsetName = EncodingDetect.getJavaEncode(bookFile);
+                TxtIndexCache.INSTANCE.putCharset(bookFile, charsetName);
+            }
+            bookInfo.setCharset(charsetName);
+        }
+        return Charset.forName(charsetName);
+    }
+
+    /**
+     * 将文件只读映射到内存，关闭文件后映射仍然有效
+     */
+    public static MappedByteBuffer map(File bookFile) throws IOException {
+        RandomAccessFile bookStream = null;
+        try {
+            bookStream = new RandomAccessFile(bookFile, "r");
+            FileChannel channel = bookStream.getChannel();
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        } finally {
+            IOUtils.close(bookStream);
+        }
+    }
+
+    /**
+     * 分章：存在章节名时并行匹配，否则按长度虚拟分章
+     * 会同步等待 CPU 通道中的匹配任务，需要在 DISK 通道中调用
+     *
+     * @param book 映射的文件内容
+     */
+    public List<ChapterBean> parse(ByteBuffer book, OnProgressListener listener) throws Exception {
+        final TxtChapterIndexer.OnProgressListener progressListener = listener == null ? null : listener::onProgress;
+        List<TxtChapterIndexer.Entry> chapters = null;
+
+        //文件未变化时直接使用缓存的分章结果
+        final TxtIndexCache.Record record = TxtIndexCache.INSTANCE.get(mBookFile, getIndexKey(), book);
+        if (record != null) {
+            mChapterPattern = TextUtils.isEmpty(record.pattern) ? null : PatternCache.get(record.pattern, record.patternFlags);
+            if (record.complete) {
+                chapters = record.chapters;
+            } else if (mChapterPattern != null && !record.chapters.isEmpty()) {
+                //文件尾部追加了内容，从最后一章开始重新分章
+                chapters = record.chapters;
+                TxtChapterIndexer.Entry last = chapters.remove(chapters.size() - 1);
+                TxtChapterIndexer indexer = new TxtChapterIndexer(book, mCharset, mChapterPattern, mPriority);
+                chapters.addAll(indexer.index(last.start, last.title, progressListener));
+            }
+        }
+
+        if (chapters == null) {
+            chapters = indexChapters(book, progressListener);
+        }
+        if (record == null || !record.complete) {
+            TxtIndexCache.INSTANCE.put(mBookFile, getIndexKey(), book,
+                    mChapterPattern == null ? null : mChapterPattern.pattern(),
+                    mChapterPattern == null ? 0 : mChapterPattern.flags(), chapters);
+        }
+
+        List<ChapterBean> chapterList = new ArrayList<>();
+        for (int i = 0, size = chapters.size(); i < size; i++) {
+            TxtChapterIndexer.Entry chapter = chapters.get(i);
+            ChapterBean bean = new ChapterBean();
+            bean.setDurChapterIndex(i);
+            bean.setDurChapterUrl(MD5Utils.strToMd5By16(mBookFile.getAbsolutePath() + i + chapter.title));
+            bean.setDurChapterName(chapter.title);
+            bean.setStart(chapter.start);
+            bean.setEnd(chapter.end);
+            bean.setNoteUrl(mBookFile.getAbsolutePath());
+            chapterList.add(bean);
+        }
+        return chapterList;
+    }
+
+    /**
+     * 扫描整个文件分章
+     */
+    private List<TxtChapterIndexer.Entry> indexChapters(ByteBuffer book, TxtChapterIndexer.OnProgressListener listener) throws Exception {
+        //寻找匹配文章标题的正则表达式，判断是否存在章节名
+        boolean hasChapter = checkChapterType(book);
+
+        List<TxtChapterIndexer.Entry> chapters = null;
+        TxtChapterIndexer indexer = new TxtChapterIndexer(book, mCharset, mChapterPattern, mPriority);
+        if (hasChapter) {
+            chapters = indexer.index(listener);
+            if (indexer.getHead() != null) {
+                setupAuthorName(indexer.getHead());
+            }
+        }
+        if (chapters == null || chapters.isEmpty()) {
+            mChapterPattern = null;
+            chapters = indexer.split(BUFFER_SIZE, MAX_LENGTH_WITH_NO_CHAPTER);
+        }
+        return chapters;
+    }
+
+    /**
+     * 从序章找作者名称
+     */
+    private void setupAuthorName(String firstChapter) {
+        String author = mBookInfo.getAuthor();
+        if (TextUtils.isEmpty(author)) {
+            Pattern pattern = PatternCache.get(AUTHOR_PATTERN);
+            Matcher m = pattern.matcher(firstChapter);
+            if (m.find()) {
+                mBookInfo.setAuthor(m.group().trim());
+            }
+        }
+    }
+
+    /**
+     * 1. 检查文件中是否存在章节名
+     * 2. 在文件的抽样中同时尝试内置和用户自定义的章节名正则，选出得分最高的一个
+     *
+     * @return 是否存在章节名
+     */
+    private boolean checkChapterType(ByteBuffer book) {
+        TxtChapterDetector detector = new TxtChapterDetector(CHAPTER_PATTERNS, getUserChapterPatterns());
+        mChapterPattern = detector.detect(book, mCharset);
+        return mChapterPattern != null;
+    }
+
+    private static List<String> getUserChapterPatterns() {
+        List<String> patterns = new ArrayList<>();
+        String value = ReadBookControl.getInstance().getTxtChapterPatterns();
+        if (!TextUtils.isEmpty(value)) {
+            for (String regex : value.split("\n")) {
+                if (!TextUtils.isEmpty(regex.trim())) {
+                    patterns.add(regex.trim());
+                }
+            }
+        }
+        return patterns;
+    }
+
+    /**
+     * 分章缓存的 key，自定义章节名正则变化后需要重新分章
+     */
+    private String getIndexKey() {
+        String patterns = ReadBookControl.getInstance().getTxtChapterPatterns();
+        if (TextUtils.isEmpty(patterns)) {
+            return mCharset.name();
+        }
+        return mCharset.name() + "_" + MD5Utils.strToMd5By16(patterns);
+    }
+}
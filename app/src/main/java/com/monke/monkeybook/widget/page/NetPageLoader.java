@@ -34,8 +34,11 @@ public class NetPageLoader extends PageLoader {
 
     private Disposable mChapterDisp;
 
+    private final PrefetchController mPrefetchController;
+
     NetPageLoader(PageView pageView, BookShelfBean collBook) {
         super(pageView, collBook);
+        mPrefetchController = new PrefetchController(pageView.getContext());
     }
 
     @Override
@@ -125,6 +128,14 @@ public class NetPageLoader extends PageLoader {
         return new BufferedReader(reader);
     }
 
+    @Override
+    String getChapterSourceKey(ChapterBean chapter) {
+        File file = ChapterContentHelp.getBookFile(ChapterContentHelp.getCacheFolderPath(getCollBook().getBookInfoBean()),
+                ChapterContentHelp.getCacheFileName(chapter));
+        if (!file.exists()) return null;
+        return file.getAbsolutePath() + "#" + file.length() + "#" + file.lastModified();
+    }
+
     @Override
     boolean chapterNotCached(ChapterBean chapter) {
         return !ChapterContentHelp.isChapterCached(getCollBook().getBookInfoBean(), chapter);
@@ -151,31 +162,48 @@ public class NetPageLoader extends PageLoader {
     @Override
     void parsePrevChapter(OnChapterPreparedCallback callback) {
         super.parsePrevChapter(callback);
-        final int position = getChapterPosition();
-        if (position >= 1 && shouldRequestChapter(position - 1)) {
-            getChapterProvider().loadChapterContent(position - 1);
-        }
+        prefetchChapters(getChapterPosition());
     }
 
     @Override
     void parseCurChapter(OnChapterPreparedCallback callback) {
         super.parseCurChapter(callback);
-        final int position = getChapterPosition();
-        for (int i = (position >= 1 ? position - 1 : position); i < position + 3; i++) {
-            if (i < getCollBook().getChapterListSize() && shouldRequestChapter(i)) {
-                getChapterProvider().loadChapterContent(i);
-            }
-        }
+        prefetchChapters(getChapterPosition());
     }
 
     @Override
     void parseNextChapter(OnChapterPreparedCallback callback) {
         super.parseNextChapter(callback);
-        final int position = getChapterPosition();
-        for (int i = position + 1; i < position + 3; i++) {
-            if (i < getCollBook().getChapterListSize() && shouldRequestChapter(i)) {
-                getChapterProvider().loadChapterContent(i);
-            }
+        prefetchChapters(getChapterPosition());
+    }
+
+    @Override
+    void dispatchPagingEndEvent() {
+        super.dispatchPagingEndEvent();
+        mPrefetchController.onPageChanged(getChapterPosition(), getPagePosition());
+    }
+
+    /**
+     * 按阅读速度预下载章节，当前章和下一章优先，范围外的请求会被取消
+     */
+    private void prefetchChapters(int position) {
+        final int ahead = mPrefetchController.getLookahead(getCurrentChapter().size());
+        final int behind = mPrefetchController.getLookbehind();
+        getChapterProvider().cancelOutside(position - behind, position + ahead);
+
+        requestChapter(position);
+        for (int i = 1; i <= ahead; i++) {
+            requestChapter(position + i);
+        }
+        for (int i = 1; i <= behind; i++) {
+            requestChapter(position - i);
+        }
+    }
+
+    private void requestChapter(int chapterIndex) {
+        if (chapterIndex >= 0 && chapterIndex < getCollBook().getChapterListSize()
+                && shouldRequestChapter(chapterIndex)) {
+            getChapterProvider().loadChapterContent(chapterIndex);
         }
     }
 
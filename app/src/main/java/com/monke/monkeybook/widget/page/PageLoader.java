@@ -3,22 +3,19 @@ package com.monke.monkeybook.widget.page;
 import android.content.Context;
 import android.graphics.Bitmap;
 import android.graphics.Canvas;
-import android.graphics.Matrix;
 import android.graphics.Paint;
 import android.graphics.Typeface;
 import android.text.Layout;
 import android.text.StaticLayout;
 import android.text.TextPaint;
-import android.text.TextUtils;
 
-import com.monke.basemvplib.rxjava.RxExecutors;
 import com.monke.monkeybook.bean.BookShelfBean;
 import com.monke.monkeybook.bean.ChapterBean;
 import com.monke.monkeybook.help.BitIntentDataManager;
 import com.monke.monkeybook.help.ChapterContentHelp;
 import com.monke.monkeybook.help.ReadBookControl;
+import com.monke.monkeybook.help.ReaderExecutors;
 import com.monke.monkeybook.utils.ScreenUtils;
-import com.monke.monkeybook.utils.StringUtils;
 import com.monke.monkeybook.utils.ToastUtils;
 import com.monke.monkeybook.view.activity.ReadBookActivity;
 import com.monke.monkeybook.widget.page.animation.Direction;
@@ -27,7 +24,6 @@ import java.io.BufferedReader;
 import java.util.ArrayList;
 import java.util.List;
 
-import io.reactivex.Scheduler;
 import io.reactivex.Single;
 import io.reactivex.SingleObserver;
 import io.reactivex.SingleOnSubscribe;
@@ -84,8 +80,12 @@ public abstract class PageLoader {
     private TextPaint mTitlePaint;
     // 绘制小说内容的画笔
     private TextPaint mTextPaint;
+    // 两端对齐行的逐字宽度，只在主线程绘制时使用
+    private float[] mGlyphWidths = new float[64];
+    // 标题与正文的断行器
+    private LineBreaker mTitleBreaker;
+    private LineBreaker mTextBreaker;
 
-    private Scheduler mScheduler;
     private Disposable mPreLoadPrevDisposable;
     private Disposable mPreLoadNextDisposable;
     private Disposable mCurLoadDisposable;
@@ -229,6 +229,9 @@ public abstract class PageLoader {
         mTextPaint.setFakeBoldText(mSettingManager.getTextBold());
         mTextPaint.setSubpixelText(true);
         mTextPaint.setDither(true);
+
+        mTitleBreaker = null;
+        mTextBreaker = null;
     }
 
 
@@ -243,6 +246,8 @@ public abstract class PageLoader {
         mTextPaint.setTextSize(mTextSize);
         // 设置标题的字体大小
         mTitlePaint.setTextSize(mTextSize * 1.2f);
+        mTitleBreaker = null;
+        mTextBreaker = null;
         // 取消缓存
         mPreChapter = null;
         mNextChapter = null;
@@ -615,6 +620,11 @@ public abstract class PageLoader {
      */
     abstract BufferedReader getChapterReader(ChapterBean chapter) throws Exception;
 
+    /**
+     * 章节原始内容的标识，用于缓存处理后的文本，原文变化时标识也应变化
+     */
+    abstract String getChapterSourceKey(ChapterBean chapter);
+
     /**
      * 章节数据是否存在
      */
@@ -637,12 +647,10 @@ public abstract class PageLoader {
         if (mSettingManager.bgIsColor()) {
             canvas.drawColor(mSettingManager.getBgColor());
         } else {
-            Bitmap bgBitmap = mSettingManager.getBgBitmap();
+            //背景图预先缩放到页面尺寸，每页只需直接绘制
+            Bitmap bgBitmap = mSettingManager.getBgBitmap(canvas.getWidth(), canvas.getHeight());
             if (bgBitmap != null) {
-                Matrix matrix = new Matrix();
-                matrix.postScale((float) canvas.getWidth() / bgBitmap.getWidth(),
-                        (float) canvas.getHeight() / bgBitmap.getHeight());
-                canvas.drawBitmap(bgBitmap, matrix, null);
+                canvas.drawBitmap(bgBitmap, 0, 0, null);
             } else {
                 canvas.drawColor(mSettingManager.getDefaultBgColor());
             }
@@ -689,21 +697,23 @@ public abstract class PageLoader {
             mCurChapter.open();
 
             TxtPage txtPage = mCurChapter.getCurrentPage();
-            if (txtPage == null || txtPage.lines == null) {
+            if (txtPage == null) {
                 return;
             }
 
+            final String text = txtPage.getText();
             float interval = mTextInterval + mTitlePaint.getTextSize();
             float para = mTextPara + mTitlePaint.getTextSize();
             float top = mMarginTop - mTitlePaint.getFontMetrics().ascent;
 
             //对标题进行绘制
             for (int i = 0; i < txtPage.titleLines; i++) {
-                String line = txtPage.lines.get(i);
+                int lineStart = txtPage.getLineStart(i);
+                int lineEnd = txtPage.getLineEnd(i);
 
-                float start = (mDisplayWidth - mTitlePaint.measureText(line)) / 2;
+                float start = (mDisplayWidth - mTitlePaint.measureText(text, lineStart, lineEnd)) / 2;
                 //进行绘制
-                canvas.drawText(line, start, top, mTitlePaint);
+                canvas.drawText(text, lineStart, lineEnd, start, top, mTitlePaint);
 
                 //设置尾部间距
                 top += i == txtPage.titleLines - 1 ? para : interval;
@@ -712,40 +722,48 @@ public abstract class PageLoader {
             interval = mTextInterval + mTextPaint.getTextSize();
             para = mTextPara + mTextPaint.getTextSize();
 
-            //对内容进行绘制
-            for (int i = txtPage.titleLines, size = txtPage.lines.size(); i < size; i++) {
-                String line = txtPage.lines.get(i);
-                if (needScale(line)) {
-                    Layout tempLayout = new StaticLayout(line, mTextPaint, mVisibleWidth, Layout.Alignment.ALIGN_NORMAL, 0, 0, false);
-                    float width = StaticLayout.getDesiredWidth(line, tempLayout.getLineStart(0), tempLayout.getLineEnd(0), mTextPaint);
-                    drawScaledText(canvas, line, width, mTextPaint, top);
+            //对内容进行绘制，直接按偏移绘制章节文本，两端对齐的行逐字绘制
+            for (int i = txtPage.titleLines, size = txtPage.getLineCount(); i < size; i++) {
+                int lineStart = txtPage.getLineStart(i);
+                int lineEnd = txtPage.getLineEnd(i);
+                float gap = txtPage.getLineGap(i);
+                if (gap > 0) {
+                    drawJustifiedLine(canvas, text, lineStart, lineEnd, top, gap);
                 } else {
-                    canvas.drawText(line, mMarginLeft, top, mTextPaint);
+                    canvas.drawText(text, lineStart, lineEnd, mMarginLeft, top, mTextPaint);
                 }
                 //设置尾部间距
-                top += line.endsWith("\n") ? para : interval;
+                top += txtPage.isParagraphEnd(i) ? para : interval;
             }
         }
     }
 
-    private void drawScaledText(Canvas canvas, String line, float lineWidth, TextPaint paint, float top) {
-        float x = mMarginLeft;
-        if (isFirstLineOfParagraph(line)) {
-            String blanks = StringUtils.halfToFull("  ");
-            canvas.drawText(blanks, x, top, paint);
-            float bw = StaticLayout.getDesiredWidth(blanks, paint);
-            x += bw;
-            line = line.substring(2);
+    /**
+     * 按字符宽度逐字计算位置绘制两端对齐的行
+     * 段首缩进按原宽度绘制，其余相邻字符之间加上 gap，行首和行尾与普通行对齐
+     */
+    private void drawJustifiedLine(Canvas canvas, CharSequence text, int start, int end, float top, float gap) {
+        final int length = end - start;
+        if (mGlyphWidths.length < length) {
+            mGlyphWidths = new float[Math.max(length, mGlyphWidths.length * 2)];
         }
-
-        final int lineLength = line.length();
-        final int gapCount = lineLength - 1;
-        final float d = ((mDisplayWidth - (mMarginLeft + mMarginRight)) - lineWidth) / gapCount;
-        for (int i = 0; i < lineLength; i++) {
-            String c = String.valueOf(line.charAt(i));
-            float cw = StaticLayout.getDesiredWidth(c, paint);
-            canvas.drawText(c, x, top, paint);
-            x += cw + d;
+        mTextPaint.getTextWidths(text, start, end, mGlyphWidths);
+        final int runStart = LineBreaker.skipIndent(text, start, end);
+        float x = mMarginLeft;
+        int i = start;
+        while (i < end) {
+            final int next = Math.min(end, i + Character.charCount(Character.codePointAt(text, i)));
+            if (text.charAt(i) != '\n') {
+                canvas.drawText(text, i, next, x, top, mTextPaint);
+            }
+            //代理对的宽度记在第一个字符上，第二个为 0
+            for (int j = i; j < next; j++) {
+                x += mGlyphWidths[j - start];
+            }
+            if (i >= runStart) {
+                x += gap;
+            }
+            i = next;
         }
     }
 
@@ -952,7 +970,7 @@ public abstract class PageLoader {
 
         Single.create((SingleOnSubscribe<TxtChapter>) emitter ->
                 emitter.onSuccess(mChapterProvider.provideChapter(chapterPos)))
-                .subscribeOn(getScheduler())
+                .subscribeOn(ReaderExecutors.get(ReaderExecutors.Lane.CPU, ReaderExecutors.Priority.FOREGROUND))
                 .observeOn(AndroidSchedulers.mainThread())
                 .subscribe(new SingleObserver<TxtChapter>() {
                     @Override
@@ -1000,7 +1018,7 @@ public abstract class PageLoader {
 
         //调用异步进行预加载加载
         Single.create((SingleOnSubscribe<TxtChapter>) e -> e.onSuccess(mChapterProvider.provideChapter(nextChapter)))
-                .subscribeOn(getScheduler())
+                .subscribeOn(ReaderExecutors.get(ReaderExecutors.Lane.CPU, ReaderExecutors.Priority.PREFETCH))
                 .subscribe(new SingleObserver<TxtChapter>() {
                     @Override
                     public void onSubscribe(Disposable d) {
@@ -1041,7 +1059,7 @@ public abstract class PageLoader {
 
         //调用异步进行预加载加载
         Single.create((SingleOnSubscribe<TxtChapter>) e -> e.onSuccess(mChapterProvider.provideChapter(prevChapter)))
-                .subscribeOn(getScheduler())
+                .subscribeOn(ReaderExecutors.get(ReaderExecutors.Lane.CPU, ReaderExecutors.Priority.PREFETCH))
                 .subscribe(new SingleObserver<TxtChapter>() {
                     @Override
                     public void onSubscribe(Disposable d) {
@@ -1062,13 +1080,6 @@ public abstract class PageLoader {
                 });
     }
 
-    private Scheduler getScheduler() {
-        if (mScheduler == null) {
-            mScheduler = RxExecutors.newScheduler(16);
-        }
-        return mScheduler;
-    }
-
     private void preload() {
         // 预加载上一页面
         preloadPrevChapter();
@@ -1166,15 +1177,6 @@ public abstract class PageLoader {
         dispatchChapterChangeEvent();
     }
 
-    //判断是不是d'hou
-    private boolean isFirstLineOfParagraph(String line) {
-        return line.length() > 3 && line.charAt(0) == (char) 12288 && line.charAt(1) == (char) 12288;
-    }
-
-    private boolean needScale(String line) {//判断不是空行
-        return !TextUtils.isEmpty(line) && !line.endsWith("\n");
-    }
-
     public String getContent(int pagePos) {
         return mCurChapter.getContent(pagePos);
     }
@@ -1196,6 +1198,14 @@ public abstract class PageLoader {
         }
     }
 
+    /**
+     * 更新当前状态的提示语，如分章进度
+     */
+    void setStatusPrompt(String prompt) {
+        mCurChapter.setStatusPrompt(prompt);
+        mPageView.drawPage();
+    }
+
     int getCurrentStatus() {
         return mCurChapter.getStatus();
     }
@@ -1272,6 +1282,38 @@ public abstract class PageLoader {
         return mTitlePaint;
     }
 
+    /**
+     * 影响分页结果的排版参数
+     */
+    String getLayoutSignature() {
+        return mSettingManager.getFontPath()
+                + "|" + mSettingManager.getTextBold()
+                + "|" + getTextSize()
+                + "|" + getTitleTextSize()
+                + "|" + mVisibleWidth
+                + "|" + mVisibleHeight
+                + "|" + mTextInterval
+                + "|" + mTextPara;
+    }
+
+    LineBreaker getTextBreaker() {
+        LineBreaker breaker = mTextBreaker;
+        if (breaker == null || breaker.getPaint() != mTextPaint || breaker.getMaxWidth() != mVisibleWidth) {
+            breaker = new LineBreaker(mTextPaint, mVisibleWidth);
+            mTextBreaker = breaker;
+        }
+        return breaker;
+    }
+
+    LineBreaker getTitleBreaker() {
+        LineBreaker breaker = mTitleBreaker;
+        if (breaker == null || breaker.getPaint() != mTitlePaint || breaker.getMaxWidth() != mVisibleWidth) {
+            breaker = new LineBreaker(mTitlePaint, mVisibleWidth);
+            mTitleBreaker = breaker;
+        }
+        return breaker;
+    }
+
     int getTextInterval() {
         return mTextInterval;
     }
@@ -1306,11 +1348,6 @@ public abstract class PageLoader {
         mNextChapter = null;
 
         mChapterProvider.stop();
-
-        if (mScheduler != null) {
-            mScheduler.shutdown();
-            mScheduler = null;
-        }
     }
 
     interface OnChapterPreparedCallback {
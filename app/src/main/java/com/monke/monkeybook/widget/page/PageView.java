@@ -18,6 +18,7 @@ import com.monke.monkeybook.widget.page.animation.CoverPageAnim;
 import com.monke.monkeybook.widget.page.animation.Direction;
 import com.monke.monkeybook.widget.page.animation.HorizonPageAnim;
 import com.monke.monkeybook.widget.page.animation.NonePageAnim;
+import com.monke.monkeybook.widget.page.animation.PageBitmapPool;
 import com.monke.monkeybook.widget.page.animation.PageAnimation;
 import com.monke.monkeybook.widget.page.animation.SimulationPageAnim;
 import com.monke.monkeybook.widget.page.animation.SlidePageAnim;
@@ -47,6 +48,8 @@ public class PageView extends View {
     private boolean isLayoutPrepared;
     // 动画类
     private PageAnimation mPageAnim;
+    // 页面图片，各翻页动画共用
+    private final PageBitmapPool mBitmapPool = new PageBitmapPool();
     private boolean drawAfterComputeScroll = false;
 
     private int mTouchSlop;
@@ -95,6 +98,7 @@ public class PageView extends View {
         super.onSizeChanged(w, h, oldw, oldh);
         mViewWidth = w;
         mViewHeight = h;
+        mBitmapPool.setSize(w, h);
 
         isLayoutPrepared = true;
 
@@ -135,6 +139,10 @@ public class PageView extends View {
     }
 
 
+    public PageBitmapPool getBitmapPool() {
+        return mBitmapPool;
+    }
+
     public Bitmap getNextBitmap() {
         if (mPageAnim == null) return null;
         return mPageAnim.getNextBitmap();
@@ -348,6 +356,7 @@ public class PageView extends View {
 
         mPageLoader = null;
         mPageAnim = null;
+        mBitmapPool.release();
     }
 
     /**
@@ -0,0 +1,153 @@
+package com.monke.monkeybook.widget.page;
+
+import android.util.LruCache;
+
+import com.monke.monkeybook.help.FileHelp;
+import com.monke.monkeybook.utils.IOUtils;
+import com.monke.monkeybook.utils.MD5Utils;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.util.Arrays;
+
+/**
+ * 分页结果缓存，按书分目录持久化
+ * key 由章节文本的摘要和排版参数(字体、字号、边距、间距、可见区域)组成
+ */
+public enum PaginationCache {
+
+    INSTANCE;
+
+    private static final int MAX_MEMORY_COUNT = 48;
+    //每本书最多保留的分页文件数，排版参数变化后旧的文件不再命中，由此回收
+    private static final int MAX_BOOK_FILES = 300;
+    private static final int TRIM_INTERVAL = 30;
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    private final LruCache<String, ChapterLayout> mMemoryCache = new LruCache<>(MAX_MEMORY_COUNT);
+
+    private int mPutCount;
+
+    static String buildKey(String text, String layoutSignature) {
+        return MD5Utils.strToMd5By32(layoutSignature + "\u0000" + MD5Utils.strToMd5By32(text));
+    }
+
+    private static String memoryKey(String bookUrl, String key) {
+        return bookUrl + "\u0000" + key;
+    }
+
+    ChapterLayout get(String bookUrl, String key, String text) {
+        final String memoryKey = memoryKey(bookUrl, key);
+        ChapterLayout layout = mMemoryCache.get(memoryKey);
+        if (layout == null) {
+            File file = getFile(bookUrl, key);
+            layout = readFromDisk(file);
+            if (layout != null) {
+                mMemoryCache.put(memoryKey, layout);
+                //按修改时间淘汰，读取时更新
+                file.setLastModified(System.currentTimeMillis());
+            }
+        }
+        if (layout != null && !layout.isValidFor(text)) {
+            mMemoryCache.remove(memoryKey);
+            return null;
+        }
+        return layout;
+    }
+
+    void put(String bookUrl, String key, ChapterLayout layout) {
+        mMemoryCache.put(memoryKey(bookUrl, key), layout);
+        writeToDisk(getFile(bookUrl, key), layout);
+        synchronized (this) {
+            if (++mPutCount % TRIM_INTERVAL == 0) {
+                trimBookDir(getBookDir(bookUrl));
+            }
+        }
+    }
+
+    /**
+     * 删除一本书的分页缓存
+     */
+    public void clear(String bookUrl) {
+        final String prefix = memoryKey(bookUrl, "");
+        for (String memoryKey : mMemoryCache.snapshot().keySet()) {
+            if (memoryKey.startsWith(prefix)) {
+                mMemoryCache.remove(memoryKey);
+            }
+        }
+        File dir = getBookDir(bookUrl);
+        File[] files = dir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        dir.delete();
+    }
+
+    private static ChapterLayout readFromDisk(File file) {
+        if (!file.exists()) {
+            return null;
+        }
+        DataInputStream in = null;
+        try {
+            in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+            return ChapterLayout.readFrom(in);
+        } catch (Exception e) {
+            file.delete();
+            return null;
+        } finally {
+            IOUtils.close(in);
+        }
+    }
+
+    /**
+     * 先写入临时文件再重命名，避免读到不完整的分页文件
+     */
+    private static void writeToDisk(File file, ChapterLayout layout) {
+        final File temp = new File(file.getParent(), file.getName() + TEMP_SUFFIX);
+        DataOutputStream out = null;
+        boolean success = false;
+        try {
+            FileHelp.getFolder(file.getParent());
+            out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)));
+            layout.writeTo(out);
+            out.flush();
+            out.close();
+            out = null;
+            success = temp.renameTo(file);
+        } catch (Exception ignored) {
+        } finally {
+            IOUtils.close(out);
+            if (!success) {
+                temp.delete();
+            }
+        }
+    }
+
+    private static void trimBookDir(File dir) {
+        File[] files = dir.listFiles();
+        if (files == null || files.length <= MAX_BOOK_FILES) {
+            return;
+        }
+        Arrays.sort(files, (o1, o2) -> Long.compare(o1.lastModified(), o2.lastModified()));
+        for (int i = 0, count = files.length - MAX_BOOK_FILES; i < count; i++) {
+            if (!files[i].getName().endsWith(TEMP_SUFFIX)) {
+                files[i].delete();
+            }
+        }
+    }
+
+    private static File getBookDir(String bookUrl) {
+        return new File(FileHelp.getCachePath() + File.separator + "pagination", MD5Utils.strToMd5By16(bookUrl));
+    }
+
+    private static File getFile(String bookUrl, String key) {
+        return new File(getBookDir(bookUrl), key);
+    }
+}
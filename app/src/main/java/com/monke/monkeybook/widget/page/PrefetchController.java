@@ -0,0 +1,119 @@
+package com.monke.monkeybook.widget.page;
+
+import android.content.Context;
+import android.net.ConnectivityManager;
+import android.os.SystemClock;
+
+import com.monke.monkeybook.utils.BatteryUtil;
+
+/**
+ * 根据阅读速度决定预下载的章节范围
+ * 连续快速阅读且使用非计费网络时预下载更多章节，计费网络或低电量时只预下载下一章
+ */
+class PrefetchController {
+    //默认向后预下载的章节数
+    private static final int DEFAULT_AHEAD = 2;
+    private static final int MAX_AHEAD = 6;
+    //希望提前准备好的阅读时长
+    private static final long PREFETCH_HORIZON = 10 * 60 * 1000L;
+    //超过该时长的停留视为中断阅读，不参与统计
+    private static final long IDLE_THRESHOLD = 5 * 60 * 1000L;
+    private static final int LOW_BATTERY_LEVEL = 20;
+    //网络和电量状态的检查间隔
+    private static final long STATE_CHECK_INTERVAL = 60 * 1000L;
+    //指数平均的权重
+    private static final float SMOOTHING = 0.3f;
+
+    private final Context mContext;
+
+    private int mLastChapter = -1;
+    private int mLastPage = -1;
+    private long mChapterEnterTime;
+    private long mLastPageTime;
+
+    //平均每章停留时长(ms)
+    private float mAvgDwell = -1;
+    //平均每页停留时长(ms)
+    private float mAvgPageTime = -1;
+
+    private boolean mConstrained;
+    private long mLastStateCheck;
+
+    PrefetchController(Context context) {
+        this.mContext = context.getApplicationContext();
+    }
+
+    /**
+     * 每次翻页结束时调用
+     */
+    void onPageChanged(int chapter, int page) {
+        final long now = SystemClock.elapsedRealtime();
+        if (chapter != mLastChapter) {
+            if (mLastChapter >= 0 && Math.abs(chapter - mLastChapter) == 1) {
+                long dwell = now - mChapterEnterTime;
+                if (dwell < IDLE_THRESHOLD * 6) {
+                    mAvgDwell = smooth(mAvgDwell, dwell);
+                }
+            }
+            mChapterEnterTime = now;
+        } else if (page != mLastPage && mLastPageTime > 0) {
+            long interval = now - mLastPageTime;
+            if (interval < IDLE_THRESHOLD) {
+                mAvgPageTime = smooth(mAvgPageTime, interval);
+            }
+        }
+        mLastChapter = chapter;
+        mLastPage = page;
+        mLastPageTime = now;
+    }
+
+    /**
+     * 向后预下载的章节数
+     *
+     * @param pageCount 当前章节页数，用于在没有章节统计时估算停留时长
+     */
+    int getLookahead(int pageCount) {
+        if (isConstrained()) {
+            return 1;
+        }
+        float dwell = mAvgDwell;
+        if (dwell <= 0 && mAvgPageTime > 0 && pageCount > 0) {
+            dwell = mAvgPageTime * pageCount;
+        }
+        if (dwell <= 0) {
+            return DEFAULT_AHEAD;
+        }
+        int ahead = (int) Math.ceil(PREFETCH_HORIZON / dwell);
+        return Math.max(DEFAULT_AHEAD, Math.min(MAX_AHEAD, ahead));
+    }
+
+    /**
+     * 向前预下载的章节数
+     */
+    int getLookbehind() {
+        return isConstrained() ? 0 : 1;
+    }
+
+    private boolean isConstrained() {
+        final long now = SystemClock.elapsedRealtime();
+        if (mLastStateCheck == 0 || now - mLastStateCheck > STATE_CHECK_INTERVAL) {
+            mLastStateCheck = now;
+            mConstrained = isMetered() || isLowBattery();
+        }
+        return mConstrained;
+    }
+
+    private boolean isMetered() {
+        ConnectivityManager manager = (ConnectivityManager) mContext.getSystemService(Context.CONNECTIVITY_SERVICE);
+        return manager != null && manager.isActiveNetworkMetered();
+    }
+
+    private boolean isLowBattery() {
+        int level = BatteryUtil.getLevel(mContext);
+        return level >= 0 && level < LOW_BATTERY_LEVEL;
+    }
+
+    private static float smooth(float average, long value) {
+        return average < 0 ? value : average + SMOOTHING * (value - average);
+    }
+}
@@ -88,6 +88,10 @@ public class TxtChapter {
         this.errorMsg = PageStatus.getStatusPrompt(status);
     }
 
+    void setStatusPrompt(String prompt) {
+        this.errorMsg = prompt;
+    }
+
     int getStatus() {
         return status;
     }
@@ -119,12 +123,7 @@ public class TxtChapter {
         if (pagePos < 0 || pagePos >= size()) {
             return null;
         }
-        TxtPage txtPage = txtPages.get(pagePos);
-        StringBuilder s = new StringBuilder();
-        for (int i = 0, lines = txtPage.lines.size(); i < lines; i++) {
-            s.append(txtPage.lines.get(i));
-        }
-        return s.toString();
+        return txtPages.get(pagePos).getContent();
     }
 
     /**
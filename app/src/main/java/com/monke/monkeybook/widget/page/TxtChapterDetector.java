@@ -0,0 +1,180 @@
+package com.monke.monkeybook.widget.page;
+
+import com.monke.monkeybook.utils.PatternCache;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * 检测本地 TXT 使用的章节名格式
+ * 从文件中均匀抽取若干段，逐行同时用所有候选正则匹配，按匹配数量和章节间距的均匀程度打分
+ */
+class TxtChapterDetector {
+    //抽样段数和每段的字节数
+    private static final int SAMPLE_COUNT = 8;
+    private static final int SAMPLE_SIZE = 32 * 1024;
+    //超过该长度的行不可能是章节名，直接跳过
+    private static final int MAX_TITLE_LINE_LENGTH = 80;
+    //用户正则优先于内置正则
+    private static final float USER_WEIGHT = 1.5f;
+    private static final float BUILTIN_WEIGHT_STEP = 0.05f;
+
+    private final List<Candidate> mCandidates = new ArrayList<>();
+
+    /**
+     * @param builtinPatterns 内置正则，越靠前权重越高
+     * @param userPatterns    用户自定义正则，无效的正则会被忽略
+     */
+    TxtChapterDetector(String[] builtinPatterns, List<String> userPatterns) {
+        if (userPatterns != null) {
+            for (String regex : userPatterns) {
+                try {
+                    mCandidates.add(new Candidate(PatternCache.get(regex, Pattern.MULTILINE), USER_WEIGHT));
+                } catch (PatternSyntaxException ignored) {
+                }
+            }
+        }
+        for (int i = 0; i < builtinPatterns.length; i++) {
+            mCandidates.add(new Candidate(PatternCache.get(builtinPatterns[i], Pattern.MULTILINE),
+                    1 - i * BUILTIN_WEIGHT_STEP));
+        }
+    }
+
+    /**
+     * 返回得分最高的正则，没有任何匹配时返回 null
+     */
+    Pattern detect(ByteBuffer book, Charset charset) {
+        final TxtEncoding encoding = TxtEncoding.of(charset, book);
+        final CharsetDecoder decoder = encoding.charset.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        for (int[] range : getSampleRanges(book, encoding)) {
+            ByteBuffer bytes = book.duplicate();
+            bytes.position(range[0]);
+            bytes.limit(range[1]);
+            try {
+                scanSample(decoder.decode(bytes), range[0]);
+            } catch (Exception ignored) {
+            }
+        }
+
+        Candidate best = null;
+        float bestScore = 0;
+        for (Candidate candidate : mCandidates) {
+            float score = candidate.score();
+            if (score > bestScore) {
+                best = candidate;
+                bestScore = score;
+            }
+        }
+        return best == null ? null : best.pattern;
+    }
+
+    /**
+     * 一次遍历样本的每一行，所有候选正则同时匹配
+     */
+    private void scanSample(CharBuffer chars, int sampleOffset) {
+        for (Candidate candidate : mCandidates) {
+            candidate.beginSample();
+        }
+        final int length = chars.length();
+        int lineStart = 0;
+        while (lineStart < length) {
+            int lineEnd = lineStart;
+            while (lineEnd < length && chars.charAt(lineEnd) != '\n') {
+                lineEnd++;
+            }
+            int end = lineEnd > lineStart && chars.charAt(lineEnd - 1) == '\r' ? lineEnd - 1 : lineEnd;
+            if (end > lineStart && end - lineStart <= MAX_TITLE_LINE_LENGTH) {
+                CharSequence line = chars.subSequence(lineStart, end);
+                for (Candidate candidate : mCandidates) {
+                    candidate.match(line, sampleOffset + lineStart);
+                }
+            }
+            lineStart = lineEnd + 1;
+        }
+    }
+
+    /**
+     * 在文件中均匀取样，每段从行首开始、在行尾结束，UTF-16/32 按码元查找换行符
+     */
+    private static List<int[]> getSampleRanges(ByteBuffer book, TxtEncoding encoding) {
+        final List<int[]> ranges = new ArrayList<>();
+        final int length = book.capacity();
+        if (length - encoding.bomLength <= SAMPLE_COUNT * SAMPLE_SIZE) {
+            ranges.add(new int[]{encoding.bomLength, length});
+            return ranges;
+        }
+        final int step = length / SAMPLE_COUNT;
+        for (int i = 0; i < SAMPLE_COUNT; i++) {
+            int start = i == 0 ? encoding.bomLength : encoding.nextLineStart(book, i * step, length);
+            int end = encoding.nextLineStart(book, Math.min(length, start + SAMPLE_SIZE), length);
+            if (start < end) {
+                ranges.add(new int[]{start, end});
+            }
+        }
+        return ranges;
+    }
+
+    private static class Candidate {
+        final Pattern pattern;
+        final float weight;
+        final Matcher matcher;
+
+        int count;
+        //相邻章节间距的统计，用于衡量间距是否均匀
+        int gapCount;
+        double gapSum;
+        double gapSquareSum;
+        int lastPosition = -1;
+
+        Candidate(Pattern pattern, float weight) {
+            this.pattern = pattern;
+            this.weight = weight;
+            this.matcher = pattern.matcher("");
+        }
+
+        void beginSample() {
+            lastPosition = -1;
+        }
+
+        void match(CharSequence line, int position) {
+            if (!matcher.reset(line).find()) {
+                return;
+            }
+            count++;
+            if (lastPosition >= 0) {
+                double gap = position - lastPosition;
+                gapCount++;
+                gapSum += gap;
+                gapSquareSum += gap * gap;
+            }
+            lastPosition = position;
+        }
+
+        /**
+         * 得分 = 匹配数 × 间距均匀度 × 权重，间距越接近越均匀
+         */
+        float score() {
+            if (count == 0) {
+                return 0;
+            }
+            double regularity = 0.5;
+            if (gapCount > 1) {
+                double mean = gapSum / gapCount;
+                double variance = Math.max(0, gapSquareSum / gapCount - mean * mean);
+                double cv = mean > 0 ? Math.sqrt(variance) / mean : 1;
+                regularity = 1 / (1 + cv);
+            }
+            return (float) (count * regularity * weight);
+        }
+    }
+}
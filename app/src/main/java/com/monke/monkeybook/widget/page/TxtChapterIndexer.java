@@ -0,0 +1,295 @@
+package com.monke.monkeybook.widget.page;
+
+import com.monke.monkeybook.help.ReaderExecutors;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 本地 TXT 分章
+ * 将映射的文件按行边界切成若干段并行匹配章节名，章节名只会出现在一行之内，因此匹配不会跨段
+ * 解码时同时记录每行的字节位置，由字符位置直接换算字节偏移，只有行内的少量字符需要重新编码
+ * UTF-16/32 按码元查找换行符，切分位置都在码元边界上
+ */
+class TxtChapterIndexer {
+    //每段的字节数
+    private static final int SEGMENT_SIZE = 1024 * 1024;
+    //章节内容小于该字节数时丢弃
+    private static final int MIN_CHAPTER_LENGTH = 30;
+    //用于查找作者的序章文本最大长度
+    private static final int MAX_HEAD_LENGTH = 64 * 1024;
+
+    interface OnProgressListener {
+        void onProgress(int progress);
+    }
+
+    static class Entry {
+        String title;
+        int start;
+        int end;
+
+        Entry(String title, int start, int end) {
+            this.title = title;
+            this.start = start;
+            this.end = end;
+        }
+    }
+
+    private final ByteBuffer mBook;
+    private final TxtEncoding mEncoding;
+    private final Pattern mPattern;
+    private final ReaderExecutors.Priority mPriority;
+
+    //第一个章节名之前的文本，用于查找作者
+    private String mHead;
+
+    /**
+     * @param priority 在 CPU 通道中匹配各段时使用的优先级，打开书籍为前台，批量导入为后台
+     */
+    TxtChapterIndexer(ByteBuffer book, Charset charset, Pattern pattern, ReaderExecutors.Priority priority) {
+        this.mBook = book;
+        this.mEncoding = TxtEncoding.of(charset, book);
+        this.mPattern = pattern;
+        this.mPriority = priority;
+    }
+
+    String getHead() {
+        return mHead;
+    }
+
+    /**
+     * 按章节名分章，没有匹配到章节名时返回空列表
+     */
+    List<Entry> index(OnProgressListener listener) throws Exception {
+        return index(0, null, listener);
+    }
+
+    /**
+     * 从指定位置开始分章，用于文件尾部追加内容后的增量分章
+     * 各段在 CPU 通道中匹配，调用线程同步等待结果，因此应在 DISK 通道中调用，不能在 CPU 通道中调用
+     *
+     * @param from         开始位置，必须在行首
+     * @param leadingTitle from 之后第一个章节名之前内容所属的章节名
+     */
+    List<Entry> index(int from, String leadingTitle, OnProgressListener listener) throws Exception {
+        if (ReaderExecutors.isOnLane(ReaderExecutors.Lane.CPU)) {
+            //CPU 通道的线程都在等待时，分段任务无法执行
+            throw new IllegalStateException("不能在 CPU 通道中同步分章");
+        }
+        final int length = mBook.capacity();
+        //从头分章时才记录序章内容，并跳过文件开头的 BOM
+        final boolean fromStart = from <= mEncoding.bomLength;
+        from = Math.max(from, mEncoding.bomLength);
+        final int[] bounds = splitSegments(from, length);
+        final int count = bounds.length - 1;
+        final AtomicInteger finished = new AtomicInteger();
+
+        final Executor executor = ReaderExecutors.executor(ReaderExecutors.Lane.CPU, mPriority);
+        final List<FutureTask<Segment>> tasks = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            final int start = bounds[i];
+            final int end = bounds[i + 1];
+            final boolean first = i == 0 && fromStart;
+            FutureTask<Segment> task = new FutureTask<>(() -> {
+                Segment segment = scanSegment(start, end, first);
+                if (listener != null) {
+                    listener.onProgress(finished.incrementAndGet() * 100 / count);
+                }
+                return segment;
+            });
+            tasks.add(task);
+            executor.execute(task);
+        }
+
+        //按顺序拼接各段的匹配结果
+        final List<Entry> matches = new ArrayList<>();
+        try {
+            for (FutureTask<Segment> task : tasks) {
+                Segment segment = task.get();
+                if (segment.head != null) {
+                    mHead = segment.head;
+                }
+                matches.addAll(segment.entries);
+            }
+        } finally {
+            for (FutureTask<Segment> task : tasks) {
+                task.cancel(false);
+            }
+        }
+        return buildChapters(matches, from, leadingTitle, length);
+    }
+
+    /**
+     * 没有章节名时按固定长度在换行处虚拟分章
+     */
+    List<Entry> split(int blockSize, int chapterSize) {
+        final List<Entry> chapters = new ArrayList<>();
+        final int length = mBook.capacity();
+        int start = mEncoding.bomLength;
+        int lastBlock = -1;
+        int chapterPos = 0;
+        while (start < length) {
+            int end = mEncoding.nextLineStart(mBook, Math.min(length, start + chapterSize), length);
+            if (end <= start) {
+                end = length;
+            }
+            int block = start / blockSize;
+            chapterPos = block == lastBlock ? chapterPos + 1 : 1;
+            lastBlock = block;
+            chapters.add(new Entry("第" + (block + 1) + "章" + "(" + chapterPos + ")", start, end));
+            start = end;
+        }
+        return chapters;
+    }
+
+    /**
+     * 将文件切成若干段，每段都从行首开始
+     */
+    private int[] splitSegments(int from, int length) {
+        if (length - from <= SEGMENT_SIZE) {
+            return new int[]{from, length};
+        }
+        int[] bounds = new int[(length - from) / SEGMENT_SIZE + 2];
+        int count = 0;
+        bounds[count++] = from;
+        int pos = mEncoding.nextLineStart(mBook, from + SEGMENT_SIZE, length);
+        while (pos < length) {
+            bounds[count++] = pos;
+            pos = mEncoding.nextLineStart(mBook, pos + SEGMENT_SIZE, length);
+        }
+        bounds[count++] = length;
+        return Arrays.copyOf(bounds, count);
+    }
+
+    private Segment scanSegment(int start, int end, boolean first) throws CharacterCodingException {
+        final ByteBuffer bytes = mBook.duplicate();
+        bytes.position(start);
+        bytes.limit(end);
+
+        //记录每行开始的字节位置，按码元查找换行符
+        final int unitSize = mEncoding.unitSize;
+        int[] byteLines = new int[256];
+        int byteLineCount = 0;
+        byteLines[byteLineCount++] = start;
+        for (int i = start + unitSize; i < end; i += unitSize) {
+            if (mEncoding.isLineStart(bytes, i)) {
+                if (byteLineCount == byteLines.length) {
+                    byteLines = Arrays.copyOf(byteLines, byteLineCount * 2);
+                }
+                byteLines[byteLineCount++] = i;
+            }
+        }
+
+        final CharsetDecoder decoder = mEncoding.charset.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        final CharBuffer chars = decoder.decode(bytes);
+
+        //记录每行开始的字符位置，与字节行一一对应
+        final int charLength = chars.length();
+        int[] charLines = new int[byteLineCount];
+        int charLineCount = 0;
+        charLines[charLineCount++] = 0;
+        for (int i = 0; i < charLength - 1 && charLineCount < byteLineCount; i++) {
+            if (chars.charAt(i) == '\n') {
+                charLines[charLineCount++] = i + 1;
+            }
+        }
+        final OffsetMapper mapper = new OffsetMapper(chars, byteLines, charLines,
+                charLineCount == byteLineCount ? charLineCount : 1);
+
+        final Segment segment = new Segment();
+        final Matcher matcher = mPattern.matcher(chars);
+        while (matcher.find()) {
+            if (first && segment.entries.isEmpty()) {
+                segment.head = chars.subSequence(0, Math.min(matcher.start(), MAX_HEAD_LENGTH)).toString();
+            }
+            segment.entries.add(new Entry(matcher.group(), mapper.toByteOffset(matcher.start()), end));
+        }
+        return segment;
+    }
+
+    private List<Entry> buildChapters(List<Entry> matches, int from, String leadingTitle, int length) {
+        final List<Entry> chapters = new ArrayList<>();
+        final int firstStart = matches.isEmpty() ? length : matches.get(0).start;
+        if (leadingTitle != null) {
+            //增量分章时，第一个章节名之前的内容属于上一章
+            if (firstStart > from) {
+                chapters.add(new Entry(leadingTitle, from, firstStart));
+            }
+        } else if (matches.isEmpty()) {
+            return chapters;
+        } else if (firstStart - from > MIN_CHAPTER_LENGTH) {
+            //第一个章节名之前的内容作为序章
+            chapters.add(new Entry("序章", from, firstStart));
+        }
+        for (int i = 0, size = matches.size(); i < size; i++) {
+            Entry entry = matches.get(i);
+            entry.end = i + 1 < size ? matches.get(i + 1).start : length;
+            //只有标题的章节丢弃，最后一章保留
+            if (entry.end - entry.start < MIN_CHAPTER_LENGTH && i + 1 < size) {
+                continue;
+            }
+            chapters.add(entry);
+        }
+        return chapters;
+    }
+
+    private class OffsetMapper {
+        private final CharBuffer chars;
+        private final int[] byteLines;
+        private final int[] charLines;
+        private final int lineCount;
+        //上一次换算的位置，匹配按顺序换算，行数对不上时从这里继续编码，整段最多编码一遍
+        private int lastChar;
+        private int lastByte;
+
+        OffsetMapper(CharBuffer chars, int[] byteLines, int[] charLines, int lineCount) {
+            this.chars = chars;
+            this.byteLines = byteLines;
+            this.charLines = charLines;
+            this.lineCount = lineCount;
+            this.lastByte = byteLines[0];
+        }
+
+        /**
+         * 字符位置换算为文件中的字节位置，只有不在行首时才编码行内的少量字符
+         */
+        int toByteOffset(int charPos) {
+            int line = Arrays.binarySearch(charLines, 0, lineCount, charPos);
+            if (line >= 0) {
+                return byteLines[line];
+            }
+            line = -line - 2;
+            int baseChar = charLines[line];
+            int baseByte = byteLines[line];
+            if (lastChar > baseChar && lastChar <= charPos) {
+                baseChar = lastChar;
+                baseByte = lastByte;
+            }
+            CharBuffer prefix = chars.duplicate();
+            prefix.position(baseChar);
+            prefix.limit(charPos);
+            lastChar = charPos;
+            lastByte = baseByte + mEncoding.charset.encode(prefix).remaining();
+            return lastByte;
+        }
+    }
+
+    private static class Segment {
+        final List<Entry> entries = new ArrayList<>();
+        String head;
+    }
+}
@@ -0,0 +1,110 @@
+package com.monke.monkeybook.widget.page;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * TXT 文件编码的字节布局：码元长度、换行符的字节和 BOM 长度
+ * UTF-16/32 的换行符占多个字节，只能在码元边界上查找；
+ * 不带字节序的编码换成带字节序的编码，解码文件中间的片段和编码时都不会受 BOM 影响
+ */
+final class TxtEncoding {
+
+    //解码和编码使用的编码，不会输出 BOM
+    final Charset charset;
+    //每个码元的字节数，换行符也是一个码元
+    final int unitSize;
+    //文件开头 BOM 的字节数，分章时跳过
+    final int bomLength;
+
+    private final byte[] mLineFeed;
+
+    private TxtEncoding(Charset charset, int unitSize, boolean bigEndian, int bomLength) {
+        this.charset = charset;
+        this.unitSize = unitSize;
+        this.bomLength = bomLength;
+        this.mLineFeed = new byte[unitSize];
+        this.mLineFeed[bigEndian ? unitSize - 1 : 0] = '\n';
+    }
+
+    static TxtEncoding of(Charset charset, ByteBuffer book) {
+        final String name = charset.name().toUpperCase();
+        if (name.startsWith("UTF-16")) {
+            boolean bigEndian = isBigEndian(name, book, 2);
+            return new TxtEncoding(bigEndian ? StandardCharsets.UTF_16BE : StandardCharsets.UTF_16LE,
+                    2, bigEndian, hasBom(book, bigEndian, 2) ? 2 : 0);
+        }
+        if (name.startsWith("UTF-32")) {
+            boolean bigEndian = isBigEndian(name, book, 4);
+            return new TxtEncoding(Charset.forName(bigEndian ? "UTF-32BE" : "UTF-32LE"),
+                    4, bigEndian, hasBom(book, bigEndian, 4) ? 4 : 0);
+        }
+        if (name.equals("UTF-8") && book.capacity() >= 3
+                && book.get(0) == (byte) 0xEF && book.get(1) == (byte) 0xBB && book.get(2) == (byte) 0xBF) {
+            return new TxtEncoding(charset, 1, false, 3);
+        }
+        return new TxtEncoding(charset, 1, false, 0);
+    }
+
+    /**
+     * 指定了字节序时使用指定的，否则按 BOM 判断，没有 BOM 时与 Java 一致按大端处理
+     */
+    private static boolean isBigEndian(String name, ByteBuffer book, int unitSize) {
+        if (name.endsWith("LE")) {
+            return false;
+        }
+        if (name.endsWith("BE")) {
+            return true;
+        }
+        return !hasBom(book, false, unitSize);
+    }
+
+    private static boolean hasBom(ByteBuffer book, boolean bigEndian, int unitSize) {
+        if (book.capacity() < unitSize) {
+            return false;
+        }
+        //BOM 为 U+FEFF
+        final int bom = 0xFEFF;
+        for (int i = 0; i < unitSize; i++) {
+            int shift = 8 * (bigEndian ? unitSize - 1 - i : i);
+            if (book.get(i) != (byte) (bom >>> shift)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 向下对齐到码元边界
+     */
+    int align(int position) {
+        return position - position % unitSize;
+    }
+
+    /**
+     * position 之前的一个码元是否为换行符，position 必须在码元边界上
+     */
+    boolean isLineStart(ByteBuffer book, int position) {
+        if (position <= bomLength) {
+            return true;
+        }
+        for (int i = 0; i < unitSize; i++) {
+            if (book.get(position - unitSize + i) != mLineFeed[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 从 position 开始查找第一个行首位置，找不到时返回 limit
+     */
+    int nextLineStart(ByteBuffer book, int position, int limit) {
+        position = align(position);
+        while (position < limit && !isLineStart(book, position)) {
+            position += unitSize;
+        }
+        return Math.min(position, limit);
+    }
+}
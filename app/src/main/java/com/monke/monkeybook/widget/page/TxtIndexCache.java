@@ -0,0 +1,219 @@
+package com.monke.monkeybook.widget.page;
+
+import com.monke.monkeybook.help.FileHelp;
+import com.monke.monkeybook.utils.IOUtils;
+import com.monke.monkeybook.utils.MD5Utils;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 本地书籍的分章结果缓存
+ * 以文件大小和头、中、尾三段采样的摘要作为指纹，文件未变化时直接使用缓存的目录
+ * 文件只在尾部追加内容时，只需从最后一章开始重新分章
+ */
+public enum TxtIndexCache {
+
+    INSTANCE;
+
+    private static final int VERSION = 2;
+    //每段采样的字节数
+    private static final int SAMPLE_SIZE = 64 * 1024;
+
+    static class Record {
+        //分章时使用的章节名正则，空表示虚拟分章
+        String pattern;
+        int patternFlags;
+        List<TxtChapterIndexer.Entry> chapters;
+        //缓存是否完全匹配当前文件，false 表示文件在尾部追加了内容
+        boolean complete;
+        //记录对应的文件长度
+        int length;
+    }
+
+    /**
+     * 获取缓存的分章结果，文件被修改(尾部追加除外)时返回 null
+     */
+    Record get(File file, String key, ByteBuffer book) {
+        final File cacheFile = getIndexFile(file, key);
+        if (!cacheFile.exists()) {
+            return null;
+        }
+        DataInputStream in = null;
+        try {
+            in = new DataInputStream(new BufferedInputStream(new FileInputStream(cacheFile)));
+            if (in.readInt() != VERSION) {
+                return null;
+            }
+            final int length = in.readInt();
+            final byte[] fingerprint = new byte[in.readInt()];
+            in.readFully(fingerprint);
+            if (length > book.capacity() || !Arrays.equals(fingerprint, fingerprint(book, length))) {
+                return null;
+            }
+            Record record = new Record();
+            record.length = length;
+            record.complete = length == book.capacity();
+            record.pattern = in.readUTF();
+            record.patternFlags = in.readInt();
+            int count = in.readInt();
+            record.chapters = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                record.chapters.add(new TxtChapterIndexer.Entry(in.readUTF(), in.readInt(), in.readInt()));
+            }
+            return record;
+        } catch (Exception e) {
+            cacheFile.delete();
+            return null;
+        } finally {
+            IOUtils.close(in);
+        }
+    }
+
+    void put(File file, String key, ByteBuffer book, String pattern, int patternFlags,
+             List<TxtChapterIndexer.Entry> chapters) {
+        final File cacheFile = getIndexFile(file, key);
+        File temp = null;
+        DataOutputStream out = null;
+        try {
+            temp = newTempFile(cacheFile);
+            out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)));
+            out.writeInt(VERSION);
+            final int length = book.capacity();
+            final byte[] fingerprint = fingerprint(book, length);
+            out.writeInt(length);
+            out.writeInt(fingerprint.length);
+            out.write(fingerprint);
+            out.writeUTF(pattern == null ? "" : pattern);
+            out.writeInt(patternFlags);
+            out.writeInt(chapters.size());
+            for (TxtChapterIndexer.Entry chapter : chapters) {
+                out.writeUTF(chapter.title);
+                out.writeInt(chapter.start);
+                out.writeInt(chapter.end);
+            }
+            out.close();
+            out = null;
+            publish(temp, cacheFile);
+        } catch (Exception e) {
+            IOUtils.close(out);
+            if (temp != null) {
+                temp.delete();
+            }
+        }
+    }
+
+    /**
+     * 获取上次检测到的编码，文件大小或修改时间变化时返回 null
+     */
+    String getCharset(File file) {
+        final File cacheFile = getCharsetFile(file);
+        if (!cacheFile.exists()) {
+            return null;
+        }
+        DataInputStream in = null;
+        try {
+            in = new DataInputStream(new BufferedInputStream(new FileInputStream(cacheFile)));
+            if (in.readLong() != file.length() || in.readLong() != file.lastModified()) {
+                return null;
+            }
+            return in.readUTF();
+        } catch (Exception e) {
+            return null;
+        } finally {
+            IOUtils.close(in);
+        }
+    }
+
+    void putCharset(File file, String charset) {
+        final File cacheFile = getCharsetFile(file);
+        File temp = null;
+        DataOutputStream out = null;
+        try {
+            temp = newTempFile(cacheFile);
+            out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)));
+            out.writeLong(file.length());
+            out.writeLong(file.lastModified());
+            out.writeUTF(charset);
+            out.close();
+            out = null;
+            publish(temp, cacheFile);
+        } catch (Exception e) {
+            IOUtils.close(out);
+            if (temp != null) {
+                temp.delete();
+            }
+        }
+    }
+
+    /**
+     * 先写入临时文件再重命名，进程被杀时不会留下不完整的缓存；临时文件名唯一，同时写入同一本书时互不影响
+     */
+    private static File newTempFile(File target) throws IOException {
+        File dir = FileHelp.getFolder(target.getParent());
+        return File.createTempFile(target.getName() + ".", ".tmp", dir);
+    }
+
+    private static void publish(File temp, File target) throws IOException {
+        if (!temp.renameTo(target)) {
+            throw new IOException("rename failed");
+        }
+    }
+
+    /**
+     * 删除一本书的分章缓存
+     */
+    public void clear(String bookPath) {
+        File dir = getBookDir(bookPath);
+        File[] files = dir.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        dir.delete();
+    }
+
+    /**
+     * 文件前 length 字节的指纹：长度与头、中、尾三段采样的摘要
+     */
+    private static byte[] fingerprint(ByteBuffer book, int length) throws Exception {
+        final MessageDigest digest = MessageDigest.getInstance("MD5");
+        final byte[] buffer = new byte[Math.min(SAMPLE_SIZE, length)];
+        final int[] offsets = {0, Math.max(0, length / 2 - SAMPLE_SIZE / 2), Math.max(0, length - SAMPLE_SIZE)};
+        for (int offset : offsets) {
+            ByteBuffer sample = book.duplicate();
+            sample.position(offset);
+            sample.get(buffer, 0, Math.min(buffer.length, length - offset));
+            digest.update(buffer, 0, Math.min(buffer.length, length - offset));
+        }
+        digest.update(ByteBuffer.allocate(4).putInt(length).array());
+        return digest.digest();
+    }
+
+    private static File getBookDir(String bookPath) {
+        return new File(FileHelp.getCachePath() + File.separator + "txtIndex", MD5Utils.strToMd5By16(bookPath));
+    }
+
+    /**
+     * @param key 编码名称，使用自定义章节名正则时附加正则的摘要
+     */
+    private static File getIndexFile(File file, String key) {
+        return new File(getBookDir(file.getAbsolutePath()), "index_" + key);
+    }
+
+    private static File getCharsetFile(File file) {
+        return new File(getBookDir(file.getAbsolutePath()), "charset");
+    }
+}
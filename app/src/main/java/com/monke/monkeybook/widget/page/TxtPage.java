@@ -1,14 +1,70 @@
 package com.monke.monkeybook.widget.page;
 
-import java.util.List;
-
 /**
  * Created by newbiechen on 17-7-1.
+ * 页面只引用章节文本和分页偏移，不再为每一行创建字符串
  */
 
 class TxtPage {
     int position;
     String title;
-    int titleLines; //当前 lines 中为 title 的行数。
-    List<String> lines;
+    int titleLines; //当前页中为 title 的行数。
+
+    //整章的排版文本和分页结果，同一章节的页面共享
+    private final String text;
+    private final ChapterLayout layout;
+    //当前页在 layout 中的起止行
+    private final int firstLine;
+    private final int lineCount;
+
+    TxtPage(String text, ChapterLayout layout, int position) {
+        this.text = text;
+        this.layout = layout;
+        this.position = position;
+        this.titleLines = layout.pageTitleLines[position];
+        this.firstLine = layout.pageLines[position];
+        this.lineCount = layout.pageLines[position + 1] - firstLine;
+    }
+
+    String getText() {
+        return text;
+    }
+
+    int getLineCount() {
+        return lineCount;
+    }
+
+    int getLineStart(int line) {
+        return layout.lineStarts[firstLine + line];
+    }
+
+    /**
+     * 行的结束位置，不包含段尾的换行符
+     */
+    int getLineEnd(int line) {
+        int end = layout.lineEnds[firstLine + line];
+        return isParagraphEnd(line) ? end - 1 : end;
+    }
+
+    boolean isParagraphEnd(int line) {
+        int end = layout.lineEnds[firstLine + line];
+        return end > 0 && text.charAt(end - 1) == '\n';
+    }
+
+    /**
+     * 两端对齐时该行的字间距
+     */
+    float getLineGap(int line) {
+        return layout.lineGaps[firstLine + line];
+    }
+
+    /**
+     * 当前页的文本，包含换行符
+     */
+    String getContent() {
+        if (lineCount == 0) {
+            return "";
+        }
+        return text.substring(layout.lineStarts[firstLine], layout.lineEnds[firstLine + lineCount - 1]);
+    }
 }
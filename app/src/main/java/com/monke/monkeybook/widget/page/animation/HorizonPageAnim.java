@@ -21,6 +21,7 @@ public abstract class HorizonPageAnim extends PageAnimation implements GestureDe
     //动画速度
     Bitmap mCurBitmap;
     Bitmap mNextBitmap;
+    private PageBitmapPool mBitmapPool;
 
     //是否移动了
     private boolean isMove = false;
@@ -40,14 +41,10 @@ public abstract class HorizonPageAnim extends PageAnimation implements GestureDe
     @Override
     public void init(int w, int h, PageView view, OnPageChangeListener listener) {
         super.init(w, h, view, listener);
-        //创建图片
-        if (mCurBitmap == null || mCurBitmap.isRecycled()) {
-            mCurBitmap = Bitmap.createBitmap(mViewWidth, mViewHeight, Bitmap.Config.RGB_565);
-        }
-
-        if (mNextBitmap == null || mNextBitmap.isRecycled()) {
-            mNextBitmap = Bitmap.createBitmap(mViewWidth, mViewHeight, Bitmap.Config.RGB_565);
-        }
+        //页面图片由 PageView 统一持有，切换动画时不重新创建
+        mBitmapPool = view.getBitmapPool();
+        mCurBitmap = mBitmapPool.getCurrent();
+        mNextBitmap = mBitmapPool.getNext();
 
         mDetector = new GestureDetector(view.getContext(), this);
     }
@@ -56,9 +53,25 @@ public abstract class HorizonPageAnim extends PageAnimation implements GestureDe
      * 转换页面，在显示下一章的时候，必须首先调用此方法
      */
     public void changePage() {
-        Bitmap bitmap = mCurBitmap;
-        mCurBitmap = mNextBitmap;
-        mNextBitmap = bitmap;
+        mBitmapPool.swap();
+        mCurBitmap = mBitmapPool.getCurrent();
+        mNextBitmap = mBitmapPool.getNext();
+    }
+
+    /**
+     * 取消翻页后当前页仍显示在 mCurBitmap 中，交换后 mNextBitmap 即为显示的页面，无需复制图片
+     */
+    private void finishCancel() {
+        if (isCancel) {
+            isCancel = false;
+            changePage();
+        }
+    }
+
+    @Override
+    public void resetAnim() {
+        finishCancel();
+        super.resetAnim();
     }
 
     public abstract void drawMove(Canvas canvas);
@@ -91,7 +104,7 @@ public abstract class HorizonPageAnim extends PageAnimation implements GestureDe
         //是否正在执行动画
         isRunning = false;
         //取消
-        isCancel = false;
+        finishCancel();
         //设置起始位置的触摸点
         setStartPoint(e.getX(), e.getY());
         abortAnim();
@@ -182,7 +195,6 @@ public abstract class HorizonPageAnim extends PageAnimation implements GestureDe
             drawMove(canvas);
         } else {
             if (isCancel) {
-                mNextBitmap = mCurBitmap.copy(Bitmap.Config.RGB_565, true);
                 canvas.drawBitmap(mCurBitmap, 0, 0, null);
             } else {
                 canvas.drawBitmap(mNextBitmap, 0, 0, null);
@@ -0,0 +1,66 @@
+package com.monke.monkeybook.widget.page.animation;
+
+import android.graphics.Bitmap;
+
+/**
+ * 翻页使用的页面图片，由 PageView 持有，切换翻页模式时各动画共用
+ * 只在尺寸变化时重新创建
+ */
+public class PageBitmapPool {
+
+    private Bitmap mCurBitmap;
+    private Bitmap mNextBitmap;
+
+    private int mWidth;
+    private int mHeight;
+
+    /**
+     * 设置页面尺寸，尺寸变化时回收旧图片
+     */
+    public void setSize(int w, int h) {
+        if (w == mWidth && h == mHeight) {
+            return;
+        }
+        release();
+        mWidth = w;
+        mHeight = h;
+    }
+
+    Bitmap getCurrent() {
+        if (mCurBitmap == null || mCurBitmap.isRecycled()) {
+            mCurBitmap = createBitmap();
+        }
+        return mCurBitmap;
+    }
+
+    Bitmap getNext() {
+        if (mNextBitmap == null || mNextBitmap.isRecycled()) {
+            mNextBitmap = createBitmap();
+        }
+        return mNextBitmap;
+    }
+
+    /**
+     * 交换当前页和下一页
+     */
+    void swap() {
+        Bitmap bitmap = mCurBitmap;
+        mCurBitmap = mNextBitmap;
+        mNextBitmap = bitmap;
+    }
+
+    public void release() {
+        if (mCurBitmap != null) {
+            mCurBitmap.recycle();
+            mCurBitmap = null;
+        }
+        if (mNextBitmap != null) {
+            mNextBitmap.recycle();
+            mNextBitmap = null;
+        }
+    }
+
+    private Bitmap createBitmap() {
+        return Bitmap.createBitmap(Math.max(1, mWidth), Math.max(1, mHeight), Bitmap.Config.RGB_565);
+    }
+}
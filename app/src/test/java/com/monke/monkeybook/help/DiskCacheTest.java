@@ -0,0 +1,180 @@
+package com.monke.monkeybook.help;
+
+import com.monke.monkeybook.utils.MD5Utils;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class DiskCacheTest {
+
+    private static final long MAX_SIZE = 1024 * 1024;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void replay_restoresValues() throws IOException {
+        File dir = folder.newFolder();
+        DiskCache cache = new DiskCache(dir, MAX_SIZE);
+        cache.put("a", "first");
+        cache.put("b", new byte[]{1, 2, 3});
+        cache.put("multi", "line1\nline2\n");
+
+        DiskCache reopened = new DiskCache(dir, MAX_SIZE);
+        assertEquals("first", reopened.getAsString("a"));
+        assertArrayEquals(new byte[]{1, 2, 3}, reopened.getAsBinary("b"));
+        assertEquals("line1\nline2\n", reopened.getAsString("multi"));
+        assertEquals(cache.size(), reopened.size());
+    }
+
+    @Test
+    public void replay_appliesOverwritesAndDeletes() throws IOException {
+        File dir = folder.newFolder();
+        DiskCache cache = new DiskCache(dir, MAX_SIZE);
+        cache.put("a", "old value");
+        cache.put("a", "new");
+        cache.put("b", "gone");
+        assertTrue(cache.remove("b"));
+
+        DiskCache reopened = new DiskCache(dir, MAX_SIZE);
+        assertEquals("new", reopened.getAsString("a"));
+        assertNull(reopened.getAsString("b"));
+        assertEquals(3, reopened.size());
+    }
+
+    @Test
+    public void replay_rebuildsAfterTruncatedLastLine() throws IOException {
+        File dir = folder.newFolder();
+        DiskCache cache = new DiskCache(dir, MAX_SIZE);
+        cache.put("a", "value");
+        //写入中断，最后一行没有换行符
+        appendJournal(dir, "PUT " + MD5Utils.strToMd5By32("c") + " 12", false);
+
+        DiskCache reopened = new DiskCache(dir, MAX_SIZE);
+        assertEquals("value", reopened.getAsString("a"));
+        assertNull(reopened.getAsString("c"));
+        assertEquals(5, reopened.size());
+        //之后的写入不能接在不完整的行后面
+        reopened.put("b", "second");
+
+        DiskCache again = new DiskCache(dir, MAX_SIZE);
+        assertEquals("value", again.getAsString("a"));
+        assertEquals("second", again.getAsString("b"));
+        assertEquals(11, again.size());
+    }
+
+    @Test
+    public void replay_skipsMalformedLineAndRebuilds() throws IOException {
+        File dir = folder.newFolder();
+        DiskCache cache = new DiskCache(dir, MAX_SIZE);
+        cache.put("a", "value");
+        appendJournal(dir, "PUT " + MD5Utils.strToMd5By32("c") + " twelve 0", true);
+        appendJournal(dir, "PUT " + MD5Utils.strToMd5By32("d"), true);
+        cache.put("b", "second");
+
+        DiskCache reopened = new DiskCache(dir, MAX_SIZE);
+        assertEquals("value", reopened.getAsString("a"));
+        assertEquals("second", reopened.getAsString("b"));
+        for (String line : readJournal(dir)) {
+            assertFalse(line, line.contains("twelve") || line.endsWith(MD5Utils.strToMd5By32("d")));
+        }
+    }
+
+    @Test
+    public void replay_dropsExpiredEntries() throws IOException {
+        File dir = folder.newFolder();
+        DiskCache cache = new DiskCache(dir, MAX_SIZE);
+        cache.put("a", "value");
+        //重新写入同一个值，过期时间改为已过去的时间
+        appendJournal(dir, "PUT " + MD5Utils.strToMd5By32("a") + " 5 1", true);
+
+        DiskCache reopened = new DiskCache(dir, MAX_SIZE);
+        assertNull(reopened.getAsString("a"));
+        assertEquals(0, reopened.size());
+        assertFalse(new File(dir, MD5Utils.strToMd5By32("a")).exists());
+    }
+
+    @Test
+    public void replay_dropsEntryWhoseFileChanged() throws IOException {
+        File dir = folder.newFolder();
+        DiskCache cache = new DiskCache(dir, MAX_SIZE);
+        cache.put("a", "value");
+        Files.write(new File(dir, MD5Utils.strToMd5By32("a")).toPath(), "longer value".getBytes(StandardCharsets.UTF_8));
+
+        DiskCache reopened = new DiskCache(dir, MAX_SIZE);
+        assertNull(reopened.getAsString("a"));
+        assertEquals(0, reopened.size());
+    }
+
+    @Test
+    public void unknownJournal_isRebuiltAndOrphansDeleted() throws IOException {
+        File dir = folder.newFolder();
+        DiskCache cache = new DiskCache(dir, MAX_SIZE);
+        cache.put("a", "value");
+        Files.write(new File(dir, "journal").toPath(), "ACache 0\n".getBytes(StandardCharsets.UTF_8));
+
+        DiskCache reopened = new DiskCache(dir, MAX_SIZE);
+        assertNull(reopened.getAsString("a"));
+        assertFalse(new File(dir, MD5Utils.strToMd5By32("a")).exists());
+        assertEquals("DiskCache 1", readJournal(dir).get(0));
+    }
+
+    @Test
+    public void trim_evictsLeastRecentlyUsed() throws IOException {
+        File dir = folder.newFolder();
+        DiskCache cache = new DiskCache(dir, 10);
+        cache.put("a", "aaaa");
+        cache.put("b", "bbbb");
+        //访问 a 之后 b 成为最久未使用的
+        assertEquals("aaaa", cache.getAsString("a"));
+        cache.put("c", "cccc");
+
+        assertNull(cache.getAsString("b"));
+        assertEquals("aaaa", cache.getAsString("a"));
+        assertEquals("cccc", cache.getAsString("c"));
+
+        DiskCache reopened = new DiskCache(dir, 10);
+        assertNull(reopened.getAsString("b"));
+        assertEquals(8, reopened.size());
+    }
+
+    @Test
+    public void journal_isCompactedAfterManyOverwrites() throws IOException {
+        File dir = folder.newFolder();
+        DiskCache cache = new DiskCache(dir, MAX_SIZE);
+        for (int i = 0; i < 5000; i++) {
+            cache.put("a", "value" + i);
+        }
+        assertTrue(readJournal(dir).size() < 3000);
+
+        DiskCache reopened = new DiskCache(dir, MAX_SIZE);
+        assertEquals("value4999", reopened.getAsString("a"));
+    }
+
+    private static void appendJournal(File dir, String line, boolean newline) throws IOException {
+        try (FileWriter writer = new FileWriter(new File(dir, "journal"), true)) {
+            writer.write(line);
+            if (newline) {
+                writer.write('\n');
+            }
+        }
+    }
+
+    private static List<String> readJournal(File dir) throws IOException {
+        return Files.readAllLines(new File(dir, "journal").toPath(), StandardCharsets.UTF_8);
+    }
+}
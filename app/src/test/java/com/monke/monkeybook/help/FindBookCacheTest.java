@@ -0,0 +1,50 @@
+package com.monke.monkeybook.help;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+
+public class FindBookCacheTest {
+
+    private static final long HOUR = TimeUnit.HOURS.toMillis(1);
+
+    @Test
+    public void adaptTtl_startsWithDefault() {
+        assertEquals(12 * HOUR, FindBookCache.adaptTtl(0, false));
+        assertEquals(12 * HOUR, FindBookCache.adaptTtl(0, true));
+        assertEquals(12 * HOUR, FindBookCache.adaptTtl(-1, true));
+    }
+
+    @Test
+    public void adaptTtl_doublesWhenUnchanged() {
+        assertEquals(24 * HOUR, FindBookCache.adaptTtl(12 * HOUR, true));
+        assertEquals(48 * HOUR, FindBookCache.adaptTtl(24 * HOUR, true));
+        //最多 3 天
+        assertEquals(72 * HOUR, FindBookCache.adaptTtl(48 * HOUR, true));
+        assertEquals(72 * HOUR, FindBookCache.adaptTtl(72 * HOUR, true));
+    }
+
+    @Test
+    public void adaptTtl_halvesWhenChanged() {
+        assertEquals(6 * HOUR, FindBookCache.adaptTtl(12 * HOUR, false));
+        assertEquals(90 * TimeUnit.MINUTES.toMillis(1), FindBookCache.adaptTtl(3 * HOUR, false));
+        //最少 1 小时
+        assertEquals(HOUR, FindBookCache.adaptTtl(90 * TimeUnit.MINUTES.toMillis(1), false));
+        assertEquals(HOUR, FindBookCache.adaptTtl(HOUR, false));
+    }
+
+    @Test
+    public void adaptTtl_recoversAfterChange() {
+        long ttl = 0;
+        for (int i = 0; i < 10; i++) {
+            ttl = FindBookCache.adaptTtl(ttl, false);
+        }
+        assertEquals(HOUR, ttl);
+        for (int i = 0; i < 10; i++) {
+            ttl = FindBookCache.adaptTtl(ttl, true);
+        }
+        assertEquals(72 * HOUR, ttl);
+    }
+}
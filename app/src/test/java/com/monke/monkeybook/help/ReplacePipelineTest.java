@@ -0,0 +1,130 @@
+package com.monke.monkeybook.help;
+
+import com.monke.monkeybook.bean.ReplaceRuleBean;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+public class ReplacePipelineTest {
+
+    private static ReplaceRuleBean rule(String regex, String replacement, boolean isRegex) {
+        ReplaceRuleBean bean = new ReplaceRuleBean();
+        bean.setRegex(regex);
+        bean.setReplacement(replacement);
+        bean.setIsRegex(isRegex);
+        return bean;
+    }
+
+    private static ReplaceRuleBean literal(String target, String replacement) {
+        return rule(target, replacement, false);
+    }
+
+    /**
+     * 原先逐条规则、逐段落替换的结果
+     */
+    private static String sequential(List<ReplaceRuleBean> rules, String paragraph) {
+        for (ReplaceRuleBean bean : rules) {
+            paragraph = paragraph.replaceAll(bean.getFixedRegex(), bean.getReplacement()).trim();
+        }
+        return paragraph;
+    }
+
+    private static String apply(List<ReplaceRuleBean> rules, String content) {
+        return new ReplacePipeline(rules).forBook("书名", "tag").apply(content);
+    }
+
+    @Test
+    public void emptyReplacementIsNotMerged() {
+        List<ReplaceRuleBean> rules = Arrays.asList(literal("X", ""), literal("ab", "Z"));
+        assertEquals("Z", sequential(rules, "aXb"));
+        assertEquals("Z", apply(rules, "aXb"));
+    }
+
+    @Test
+    public void overlappingTargetsAreNotMerged() {
+        List<ReplaceRuleBean> rules = Arrays.asList(literal("bc", "Y"), literal("ab", "X"));
+        assertEquals("aY", sequential(rules, "abc"));
+        assertEquals("aY", apply(rules, "abc"));
+    }
+
+    @Test
+    public void replacementFeedingLaterTargetIsNotMerged() {
+        List<ReplaceRuleBean> rules = Arrays.asList(literal("a", "b"), literal("bc", "D"));
+        assertEquals("D", apply(rules, "ac"));
+    }
+
+    @Test
+    public void independentLiteralsAreMerged() {
+        List<ReplaceRuleBean> rules = Arrays.asList(literal("广告", "**"), literal("笔趣阁", "##"), literal("www", "@@"));
+        String content = "广告本章来自笔趣阁www";
+        assertEquals(sequential(rules, content), apply(rules, content));
+        assertEquals("**本章来自##@@", apply(rules, content));
+    }
+
+    @Test
+    public void regexAndLiteralKeepOrder() {
+        List<ReplaceRuleBean> rules = Arrays.asList(rule("\\d+", "N", true), literal("N章", "章"), literal("a$", "b"));
+        String content = "第12章 a$";
+        assertEquals(sequential(rules, content), apply(rules, content));
+    }
+
+    @Test
+    public void applyByLineMatchesParagraphs() {
+        List<ReplaceRuleBean> rules = Arrays.asList(rule("^广告.*$", "", true), literal("X", ""), literal("ab", "Z"));
+        String content = "广告一\naXb\n正文\n";
+        StringBuilder expected = new StringBuilder();
+        for (String paragraph : content.split("\n")) {
+            expected.append(sequential(rules, paragraph)).append('\n');
+        }
+        assertEquals(expected.toString(), new ReplacePipeline(rules).forBook("书名", "tag").applyByLine(content));
+    }
+
+    @Test
+    public void useToFiltersByBook() {
+        ReplaceRuleBean bean = literal("a", "b");
+        bean.setUseTo("其它书");
+        ReplacePipeline pipeline = new ReplacePipeline(Arrays.asList(bean));
+        assertEquals("a", pipeline.forBook("书名", "tag").apply("a"));
+        assertEquals("b", pipeline.forBook("其它书", "tag").apply("a"));
+    }
+
+    @Test
+    public void versionChangesWithRules() {
+        ReplacePipeline first = new ReplacePipeline(Arrays.asList(literal("a", "b")));
+        ReplacePipeline second = new ReplacePipeline(Arrays.asList(literal("a", "c")));
+        assertEquals(first.getVersion(), new ReplacePipeline(Arrays.asList(literal("a", "b"))).getVersion());
+        assertNotEquals(first.getVersion(), second.getVersion());
+    }
+
+    /**
+     * 随机规则和文本，合并后的结果应与逐条替换一致
+     */
+    @Test
+    public void randomLiteralsMatchSequential() {
+        final String alphabet = "ab c";
+        Random random = new Random(42);
+        for (int round = 0; round < 2000; round++) {
+            List<ReplaceRuleBean> rules = new ArrayList<>();
+            for (int i = 0, count = 1 + random.nextInt(4); i < count; i++) {
+                rules.add(literal(randomText(random, alphabet, 1, 3), randomText(random, alphabet, 0, 3)));
+            }
+            String content = randomText(random, alphabet, 0, 12);
+            assertEquals(rules.toString() + content, sequential(rules, content), apply(rules, content));
+        }
+    }
+
+    private static String randomText(Random random, String alphabet, int min, int max) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0, length = min + random.nextInt(max - min + 1); i < length; i++) {
+            builder.append(alphabet.charAt(random.nextInt(alphabet.length())));
+        }
+        return builder.toString();
+    }
+}
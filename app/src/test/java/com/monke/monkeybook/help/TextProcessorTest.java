@@ -0,0 +1,27 @@
+package com.monke.monkeybook.help;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class TextProcessorTest {
+
+    @Test
+    public void formatChapterName() {
+        assertEquals("第12章 开始", TextProcessor.formatChapterName("第十二章 开始"));
+        assertEquals("第3章 结束", TextProcessor.formatChapterName("第３章　结束"));
+        assertEquals("", TextProcessor.formatChapterName("   "));
+        assertEquals("第一卷 第5章 序", TextProcessor.formatChapterName("第一卷 第5章 序"));
+    }
+
+    @Test
+    public void guessChapterNum() {
+        assertEquals(125, TextProcessor.guessChapterNum("第一百二十五章 归来"));
+        assertEquals(-1, TextProcessor.guessChapterNum(null));
+    }
+
+    @Test
+    public void formatChapterName_numberedTitle() {
+        assertEquals("第7章 标题7", TextProcessor.formatChapterName("7、标题7"));
+    }
+}
@@ -0,0 +1,101 @@
+package com.monke.monkeybook.model;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.SocketTimeoutException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import io.reactivex.Observable;
+import io.reactivex.observers.TestObserver;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class RetryPolicyTest {
+
+    private final RetryPolicy policy = new RetryPolicy(3, 500, 1500, 10000);
+
+    @Test
+    public void nextDelay_exponentialWithJitter() {
+        for (int i = 0; i < 200; i++) {
+            assertInRange(policy.nextDelay(new IOException(), 1), 250, 500);
+            assertInRange(policy.nextDelay(new IOException(), 2), 500, 1000);
+            //超过 maxDelay 时按 maxDelay 计算
+            assertInRange(policy.nextDelay(new IOException(), 3), 750, 1500);
+        }
+    }
+
+    @Test
+    public void nextDelay_stopsAfterMaxRetries() {
+        assertEquals(-1, policy.nextDelay(new IOException(), 4));
+        assertEquals(-1, RetryPolicy.NONE.nextDelay(new IOException(), 1));
+    }
+
+    @Test
+    public void maxTotalMillis_coversEveryAttemptAndBudget() {
+        assertEquals(4 * 2000 + 10000, policy.maxTotalMillis(2000));
+        assertEquals(2000, RetryPolicy.NONE.maxTotalMillis(2000));
+    }
+
+    @Test
+    public void nextDelay_retryableErrors() {
+        assertTrue(policy.nextDelay(new SocketTimeoutException(), 1) >= 0);
+        assertTrue(policy.nextDelay(status(408, null), 1) >= 0);
+        assertTrue(policy.nextDelay(status(500, null), 1) >= 0);
+        assertTrue(policy.nextDelay(status(503, null), 1) >= 0);
+    }
+
+    @Test
+    public void nextDelay_notRetryableErrors() {
+        //取消的请求
+        assertEquals(-1, policy.nextDelay(new InterruptedIOException(), 1));
+        //解析错误
+        assertEquals(-1, policy.nextDelay(new IllegalStateException(), 1));
+        assertEquals(-1, policy.nextDelay(status(404, null), 1));
+        assertEquals(-1, policy.nextDelay(status(403, "5"), 1));
+    }
+
+    @Test
+    public void nextDelay_prefersRetryAfter() {
+        assertEquals(7000, policy.nextDelay(status(429, "7"), 1));
+        assertEquals(0, policy.nextDelay(status(503, "0"), 3));
+        //无法解析的 Retry-After 按指数退避
+        assertInRange(policy.nextDelay(status(429, "soon"), 1), 250, 500);
+    }
+
+    @Test
+    public void retryHandler_retriesUpToMaxRetries() {
+        AtomicInteger subscriptions = new AtomicInteger();
+        TestObserver<Object> observer = Observable.error(status(503, "0"))
+                .doOnSubscribe(d -> subscriptions.incrementAndGet())
+                .retryWhen(policy.toRetryHandler("example.com"))
+                .test();
+        observer.awaitTerminalEvent(5, TimeUnit.SECONDS);
+        observer.assertError(RetryPolicy.HttpStatusException.class);
+        assertEquals(4, subscriptions.get());
+    }
+
+    @Test
+    public void retryHandler_stopsWhenBudgetExceeded() {
+        AtomicInteger subscriptions = new AtomicInteger();
+        //Retry-After 超过累计等待上限，不再重试
+        TestObserver<Object> observer = Observable.error(status(429, "60"))
+                .doOnSubscribe(d -> subscriptions.incrementAndGet())
+                .retryWhen(policy.toRetryHandler("example.com"))
+                .test();
+        observer.awaitTerminalEvent(5, TimeUnit.SECONDS);
+        observer.assertError(RetryPolicy.HttpStatusException.class);
+        assertEquals(1, subscriptions.get());
+    }
+
+    private static RetryPolicy.HttpStatusException status(int code, String retryAfter) {
+        return new RetryPolicy.HttpStatusException(code, retryAfter, null);
+    }
+
+    private static void assertInRange(long value, long min, long max) {
+        assertTrue(value + " not in [" + min + ", " + max + "]", value >= min && value <= max);
+    }
+}
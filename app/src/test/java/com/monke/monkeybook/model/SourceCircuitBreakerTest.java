@@ -0,0 +1,97 @@
+package com.monke.monkeybook.model;
+
+import org.junit.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class SourceCircuitBreakerTest {
+
+    private static final long MINUTE = TimeUnit.MINUTES.toMillis(1);
+
+    private final SourceCircuitBreaker breaker = SourceCircuitBreaker.INSTANCE;
+
+    @Test
+    public void opensAfterConsecutiveFailures() {
+        final String source = "http://open.example.com";
+        breaker.recordFailure(source, 0);
+        breaker.recordFailure(source, 0);
+        assertTrue(breaker.allowRequest(source, 0));
+        breaker.recordFailure(source, 0);
+        assertFalse(breaker.allowRequest(source, 0));
+        assertFalse(breaker.allowRequest(source, 2 * MINUTE - 1));
+    }
+
+    @Test
+    public void successResetsFailures() {
+        final String source = "http://reset.example.com";
+        breaker.recordFailure(source, 0);
+        breaker.recordFailure(source, 0);
+        breaker.recordSuccess(source);
+        breaker.recordFailure(source, 0);
+        breaker.recordFailure(source, 0);
+        assertTrue(breaker.allowRequest(source, 0));
+    }
+
+    @Test
+    public void allowsOneProbeAfterCoolDown() {
+        final String source = "http://probe.example.com";
+        open(source, 0);
+        assertTrue(breaker.allowRequest(source, 2 * MINUTE));
+        //试探请求未完成时不再放行
+        assertFalse(breaker.allowRequest(source, 2 * MINUTE));
+        breaker.recordSuccess(source);
+        assertTrue(breaker.allowRequest(source, 2 * MINUTE));
+        assertTrue(breaker.allowRequest(source, 2 * MINUTE));
+    }
+
+    @Test
+    public void failedProbeDoublesCoolDown() {
+        final String source = "http://backoff.example.com";
+        open(source, 0);
+        long now = 2 * MINUTE;
+        assertTrue(breaker.allowRequest(source, now));
+        breaker.recordFailure(source, now);
+        assertFalse(breaker.allowRequest(source, now + 4 * MINUTE - 1));
+        assertTrue(breaker.allowRequest(source, now + 4 * MINUTE));
+    }
+
+    @Test
+    public void coolDownIsCapped() {
+        final String source = "http://cap.example.com";
+        open(source, 0);
+        long now = 0;
+        for (int i = 0; i < 10; i++) {
+            now += 60 * MINUTE;
+            assertTrue(breaker.allowRequest(source, now));
+            breaker.recordFailure(source, now);
+        }
+        assertFalse(breaker.allowRequest(source, now + 30 * MINUTE - 1));
+        assertTrue(breaker.allowRequest(source, now + 30 * MINUTE));
+    }
+
+    @Test
+    public void cancelledProbeCanBeRetried() {
+        final String source = "http://cancel.example.com";
+        open(source, 0);
+        assertTrue(breaker.allowRequest(source, 2 * MINUTE));
+        breaker.recordCancel(source);
+        assertTrue(breaker.allowRequest(source, 2 * MINUTE));
+    }
+
+    @Test
+    public void sourcesAreIndependent() {
+        open("http://a.example.com", 0);
+        assertFalse(breaker.allowRequest("http://a.example.com", 0));
+        assertTrue(breaker.allowRequest("http://b.example.com", 0));
+    }
+
+    private void open(String source, long now) {
+        for (int i = 0; i < 3; i++) {
+            breaker.recordFailure(source, now);
+        }
+        assertFalse(breaker.allowRequest(source, now));
+    }
+}
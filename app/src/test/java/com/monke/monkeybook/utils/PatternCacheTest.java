@@ -0,0 +1,66 @@
+package com.monke.monkeybook.utils;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+public class PatternCacheTest {
+
+    @Before
+    public void setUp() {
+        PatternCache.clear();
+    }
+
+    @Test
+    public void get_returnsSameInstance() {
+        Pattern first = PatternCache.get("第(\\d+)章");
+        assertSame(first, PatternCache.get("第(\\d+)章"));
+    }
+
+    @Test
+    public void get_flagsArePartOfKey() {
+        Pattern plain = PatternCache.get("abc");
+        Pattern ignoreCase = PatternCache.get("abc", Pattern.CASE_INSENSITIVE);
+        assertNotSame(plain, ignoreCase);
+        assertEquals(Pattern.CASE_INSENSITIVE, ignoreCase.flags());
+        assertSame(ignoreCase, PatternCache.get("abc", Pattern.CASE_INSENSITIVE));
+    }
+
+    @Test
+    public void get_evictsLeastRecentlyUsed() {
+        Pattern first = PatternCache.get("p0");
+        for (int i = 1; i <= 256; i++) {
+            PatternCache.get("p" + i);
+        }
+        assertNotSame(first, PatternCache.get("p0"));
+    }
+
+    @Test
+    public void get_keepsRecentlyUsed() {
+        Pattern first = PatternCache.get("p0");
+        for (int i = 1; i <= 256; i++) {
+            PatternCache.get("p" + i);
+            PatternCache.get("p0");
+        }
+        assertSame(first, PatternCache.get("p0"));
+    }
+
+    @Test(expected = PatternSyntaxException.class)
+    public void get_invalidRegexThrows() {
+        PatternCache.get("(");
+    }
+
+    @Test
+    public void replace_matchesStringMethods() {
+        String input = "第1章  开始 第2章 结束";
+        assertEquals(input.replaceAll("\\s+", " "), PatternCache.replaceAll(input, "\\s+", " "));
+        assertEquals(input.replaceFirst("第(\\d+)章", "Chapter $1"),
+                PatternCache.replaceFirst(input, "第(\\d+)章", "Chapter $1"));
+    }
+}
@@ -0,0 +1,108 @@
+package com.monke.monkeybook.widget.page;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class LineBreakerTest {
+
+    private static final float CJK_WIDTH = 10;
+    private static final float LATIN_WIDTH = 5;
+
+    //汉字宽 10，其它字符宽 5，一行最多 10 个汉字
+    private static final LineBreaker.Measurer MEASURER = (text, start, end) -> {
+        float width = 0;
+        for (int i = start; i < end; i++) {
+            width += text.charAt(i) < 0x3000 ? LATIN_WIDTH : CJK_WIDTH;
+        }
+        return width;
+    };
+
+    private static LineBreaker newBreaker() {
+        return new LineBreaker(MEASURER, 100);
+    }
+
+    private static String repeat(String text, int count) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            builder.append(text);
+        }
+        return builder.toString();
+    }
+
+    @Test
+    public void nextLineEnd_fillsLine() {
+        String text = repeat("中", 25);
+        LineBreaker breaker = newBreaker();
+        assertEquals(10, breaker.nextLineEnd(text, 0, text.length()));
+        assertEquals(20, breaker.nextLineEnd(text, 10, text.length()));
+        assertEquals(25, breaker.nextLineEnd(text, 20, text.length()));
+    }
+
+    @Test
+    public void nextLineEnd_includesNewline() {
+        String text = "中文\n下一段";
+        assertEquals(3, newBreaker().nextLineEnd(text, 0, text.length()));
+    }
+
+    @Test
+    public void nextLineEnd_punctuationNotAtLineStart() {
+        String text = repeat("中", 10) + "，后面";
+        assertEquals(9, newBreaker().nextLineEnd(text, 0, text.length()));
+    }
+
+    @Test
+    public void nextLineEnd_keepsWordsTogether() {
+        //前 8 个汉字宽 80，单词 hello 需要 25
+        String text = repeat("中", 8) + "hello";
+        assertEquals(8, newBreaker().nextLineEnd(text, 0, text.length()));
+    }
+
+    @Test
+    public void nextLineEnd_alwaysAdvances() {
+        LineBreaker breaker = new LineBreaker(MEASURER, 5);
+        String text = "中文";
+        assertEquals(1, breaker.nextLineEnd(text, 0, text.length()));
+    }
+
+    @Test
+    public void measure_skipsNewline() {
+        assertEquals(2 * CJK_WIDTH + LATIN_WIDTH, newBreaker().measure("中a文\n", 0, 4), 0);
+    }
+
+    @Test
+    public void measure_surrogatePairAsOneGlyph() {
+        String text = new String(Character.toChars(0x20000)) + "中";
+        assertEquals(2 * CJK_WIDTH + CJK_WIDTH, newBreaker().measure(text, 0, text.length()), 0);
+    }
+
+    @Test
+    public void justifyGap_dividesBetweenGlyphs() {
+        //间距只加在相邻字符之间，9 个字符有 8 个空隙，加上间距后正好填满一行
+        String text = repeat("中", 9);
+        LineBreaker breaker = newBreaker();
+        float gap = breaker.justifyGap(text, 0, text.length());
+        assertEquals(10f / 8, gap, 1e-4);
+        assertEquals(100, breaker.measure(text, 0, text.length()) + 8 * gap, 1e-3);
+    }
+
+    @Test
+    public void justifyGap_excludesIndent() {
+        //两个全角空格缩进不加间距，剩余宽度由 7 个字符之间的 6 个空隙平分
+        String text = "\u3000\u3000" + repeat("中", 7);
+        LineBreaker breaker = newBreaker();
+        float gap = breaker.justifyGap(text, 0, text.length());
+        assertEquals(10f / 6, gap, 1e-4);
+        assertEquals(2, LineBreaker.skipIndent(text, 0, text.length()));
+        assertEquals(100, breaker.measure(text, 0, text.length()) + 6 * gap, 1e-3);
+    }
+
+    @Test
+    public void justifyGap_noGapWhenFullOrSingle() {
+        LineBreaker breaker = newBreaker();
+        String full = repeat("中", 10);
+        assertEquals(0, breaker.justifyGap(full, 0, full.length()), 0);
+        assertEquals(0, breaker.justifyGap("中", 0, 1), 0);
+        assertEquals(0, breaker.justifyGap("\u3000中", 0, 2), 0);
+    }
+}
@@ -0,0 +1,70 @@
+package com.monke.monkeybook.widget.page;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class TxtChapterDetectorTest {
+
+    private static final String[] BUILTIN = new String[]{
+            "^第\\d+章.{0,30}$",
+            "^Chapter\\s?\\d+.{0,30}$"
+    };
+
+    private static String buildText(String titleFormat, int chapters, int bodyRepeat) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 1; i <= chapters; i++) {
+            builder.append(String.format(titleFormat, i)).append('\n');
+            for (int j = 0; j < bodyRepeat; j++) {
+                builder.append("正文内容，第三章只是正文中的词语。\n");
+            }
+        }
+        return builder.toString();
+    }
+
+    private static Pattern detect(String text, Charset charset, String... userPatterns) {
+        TxtChapterDetector detector = new TxtChapterDetector(BUILTIN, Arrays.asList(userPatterns));
+        return detector.detect(ByteBuffer.wrap(text.getBytes(charset)), charset);
+    }
+
+    @Test
+    public void detect_builtinPattern() {
+        assertEquals(BUILTIN[1], detect(buildText("Chapter %d", 50, 10), StandardCharsets.UTF_8).pattern());
+        assertEquals(BUILTIN[0], detect(buildText("第%d章 开始", 50, 10), StandardCharsets.UTF_8).pattern());
+    }
+
+    @Test
+    public void detect_userPatternPreferred() {
+        String text = buildText("【%d】", 50, 10);
+        assertEquals("^【\\d+】$", detect(text, StandardCharsets.UTF_8, "^【\\d+】$").pattern());
+    }
+
+    @Test
+    public void detect_invalidUserPatternIgnored() {
+        assertEquals(BUILTIN[0], detect(buildText("第%d章", 50, 10), StandardCharsets.UTF_8, "(").pattern());
+    }
+
+    @Test
+    public void detect_noChapter() {
+        TxtChapterDetector detector = new TxtChapterDetector(BUILTIN, Collections.emptyList());
+        byte[] bytes = buildText("普通的一行", 50, 10).getBytes(StandardCharsets.UTF_8);
+        assertNull(detector.detect(ByteBuffer.wrap(bytes), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void detect_sampledUtf16() {
+        //大于抽样总长度时分段抽样，UTF-16 的抽样位置需要在码元边界上
+        String text = buildText("Chapter %d", 2000, 20);
+        for (Charset charset : new Charset[]{StandardCharsets.UTF_16LE, StandardCharsets.UTF_16BE}) {
+            assertEquals(BUILTIN[1], detect(text, charset).pattern());
+        }
+    }
+}
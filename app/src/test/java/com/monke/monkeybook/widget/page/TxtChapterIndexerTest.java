@@ -0,0 +1,156 @@
+package com.monke.monkeybook.widget.page;
+
+import com.monke.monkeybook.help.ReaderExecutors;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class TxtChapterIndexerTest {
+
+    private static final Pattern TITLE = Pattern.compile("^第\\d+章.*$", Pattern.MULTILINE);
+    private static final String BODY = "这是正文内容，用来撑开章节长度。\n第二行正文 with ascii text.\n";
+
+    private static String buildText(int chapters, int bodyRepeat) {
+        StringBuilder builder = new StringBuilder("作者：测试\n");
+        for (int i = 1; i <= chapters; i++) {
+            builder.append("第").append(i).append("章 标题").append(i).append('\n');
+            for (int j = 0; j < bodyRepeat; j++) {
+                builder.append(BODY);
+            }
+        }
+        return builder.toString();
+    }
+
+    private static ByteBuffer encode(String text, Charset charset, byte[] bom) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(bom, 0, bom.length);
+        byte[] bytes = text.getBytes(charset);
+        out.write(bytes, 0, bytes.length);
+        return ByteBuffer.wrap(out.toByteArray());
+    }
+
+    private static String decode(ByteBuffer book, Charset charset, int start, int end) {
+        byte[] bytes = new byte[end - start];
+        ByteBuffer duplicate = book.duplicate();
+        duplicate.position(start);
+        duplicate.get(bytes);
+        return new String(bytes, charset);
+    }
+
+    private static void assertChapters(ByteBuffer book, Charset fileCharset, Charset textCharset,
+                                       int chapterCount, Pattern pattern) throws Exception {
+        TxtChapterIndexer indexer = new TxtChapterIndexer(book, fileCharset, pattern, ReaderExecutors.Priority.FOREGROUND);
+        List<TxtChapterIndexer.Entry> chapters = indexer.index(null);
+        assertEquals(chapterCount, chapters.size());
+        for (int i = 0; i < chapters.size(); i++) {
+            TxtChapterIndexer.Entry entry = chapters.get(i);
+            String content = decode(book, textCharset, entry.start, entry.end);
+            assertTrue(content, content.startsWith("第" + (i + 1) + "章"));
+            assertEquals(entry.title, "第" + (i + 1) + "章 标题" + (i + 1));
+            if (i + 1 < chapters.size()) {
+                assertEquals(entry.end, chapters.get(i + 1).start);
+            } else {
+                assertEquals(book.capacity(), entry.end);
+            }
+        }
+        assertTrue(indexer.getHead().startsWith("作者："));
+    }
+
+    @Test
+    public void index_utf8() throws Exception {
+        ByteBuffer book = encode(buildText(20, 3), StandardCharsets.UTF_8, new byte[0]);
+        assertChapters(book, StandardCharsets.UTF_8, StandardCharsets.UTF_8, 20, TITLE);
+    }
+
+    @Test
+    public void index_gbk() throws Exception {
+        Charset gbk = Charset.forName("GBK");
+        ByteBuffer book = encode(buildText(20, 3), gbk, new byte[0]);
+        assertChapters(book, gbk, gbk, 20, TITLE);
+    }
+
+    @Test
+    public void index_utf16LittleEndianWithBom() throws Exception {
+        ByteBuffer book = encode(buildText(20, 3), StandardCharsets.UTF_16LE, new byte[]{(byte) 0xFF, (byte) 0xFE});
+        //检测结果可能是 UTF-16LE，也可能是按 BOM 判断字节序的 UTF-16
+        assertChapters(book, StandardCharsets.UTF_16LE, StandardCharsets.UTF_16LE, 20, TITLE);
+        assertChapters(book, StandardCharsets.UTF_16, StandardCharsets.UTF_16LE, 20, TITLE);
+    }
+
+    @Test
+    public void index_utf16BigEndianWithBom() throws Exception {
+        ByteBuffer book = encode(buildText(20, 3), StandardCharsets.UTF_16BE, new byte[]{(byte) 0xFE, (byte) 0xFF});
+        assertChapters(book, StandardCharsets.UTF_16, StandardCharsets.UTF_16BE, 20, TITLE);
+    }
+
+    @Test
+    public void index_utf32() throws Exception {
+        Charset utf32 = Charset.forName("UTF-32LE");
+        ByteBuffer book = encode(buildText(20, 3), utf32, new byte[0]);
+        assertChapters(book, utf32, utf32, 20, TITLE);
+    }
+
+    @Test
+    public void index_utf16AcrossSegments() throws Exception {
+        //超过 1M 字节，分成多段并行匹配
+        ByteBuffer book = encode(buildText(300, 60), StandardCharsets.UTF_16LE, new byte[]{(byte) 0xFF, (byte) 0xFE});
+        assertTrue(book.capacity() > 1024 * 1024);
+        assertChapters(book, StandardCharsets.UTF_16LE, StandardCharsets.UTF_16LE, 300, TITLE);
+    }
+
+    @Test
+    public void index_matchInsideLine() throws Exception {
+        //章节名不在行首时需要编码行内的字符换算字节位置
+        String text = buildText(20, 2).replace("\n第", "\n前缀 第");
+        Pattern pattern = Pattern.compile("第\\d+章.*$", Pattern.MULTILINE);
+        for (Charset charset : new Charset[]{StandardCharsets.UTF_8, StandardCharsets.UTF_16LE}) {
+            ByteBuffer book = encode(text, charset, new byte[0]);
+            assertChapters(book, charset, charset, 20, pattern);
+        }
+    }
+
+    @Test
+    public void index_incrementalFromChapterStart() throws Exception {
+        ByteBuffer book = encode(buildText(10, 3), StandardCharsets.UTF_8, new byte[0]);
+        TxtChapterIndexer indexer = new TxtChapterIndexer(book, StandardCharsets.UTF_8, TITLE, ReaderExecutors.Priority.BACKGROUND);
+        List<TxtChapterIndexer.Entry> all = indexer.index(null);
+        TxtChapterIndexer.Entry last = all.get(all.size() - 1);
+        List<TxtChapterIndexer.Entry> tail = indexer.index(all.get(5).start, "上一章", null);
+        assertEquals(5, tail.size());
+        assertEquals(all.get(5).start, tail.get(0).start);
+        assertEquals(last.start, tail.get(tail.size() - 1).start);
+    }
+
+    @Test
+    public void split_keepsCodeUnitsAndLines() {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < 500; i++) {
+            builder.append("没有章节名的一行文字").append(i).append('\n');
+        }
+        for (Charset charset : new Charset[]{StandardCharsets.UTF_8, StandardCharsets.UTF_16LE, StandardCharsets.UTF_16BE}) {
+            ByteBuffer book = encode(builder.toString(), charset, new byte[0]);
+            TxtChapterIndexer indexer = new TxtChapterIndexer(book, charset, null, ReaderExecutors.Priority.FOREGROUND);
+            //奇数长度，容易落在码元中间
+            List<TxtChapterIndexer.Entry> chapters = indexer.split(4096, 1001);
+            assertTrue(chapters.size() > 1);
+            int expectedStart = 0;
+            for (TxtChapterIndexer.Entry entry : chapters) {
+                assertEquals(expectedStart, entry.start);
+                String content = decode(book, charset, entry.start, entry.end);
+                assertTrue(charset + " " + content, content.endsWith("\n"));
+                assertTrue(content.startsWith("没有章节名"));
+                expectedStart = entry.end;
+            }
+            assertEquals(book.capacity(), expectedStart);
+        }
+    }
+}
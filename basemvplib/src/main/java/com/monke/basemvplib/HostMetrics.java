@@ -0,0 +1,212 @@
+package com.monke.basemvplib;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import okhttp3.HttpUrl;
+
+/**
+ * 按域名统计网络请求：请求数、失败数、重试数、429/503 次数，以及最近一分钟的流量和完成章节数
+ */
+public class HostMetrics {
+    //滑动窗口的秒数
+    private static final int WINDOW_SECONDS = 60;
+
+    private volatile static HostMetrics mInstance;
+
+    private final Map<String, Stats> stats = new HashMap<>();
+
+    private HostMetrics() {
+    }
+
+    public static HostMetrics getInstance() {
+        if (mInstance == null) {
+            synchronized (HostMetrics.class) {
+                if (mInstance == null) {
+                    mInstance = new HostMetrics();
+                }
+            }
+        }
+        return mInstance;
+    }
+
+    /**
+     * 从网址中取出域名，无法解析时原样返回
+     */
+    public static String hostOf(String url) {
+        HttpUrl httpUrl = url == null ? null : HttpUrl.parse(url);
+        return httpUrl == null ? url : httpUrl.host();
+    }
+
+    void recordRequest(String host) {
+        Stats s = getStats(host);
+        synchronized (s) {
+            s.requests++;
+        }
+    }
+
+    void recordResponse(String host, int code) {
+        Stats s = getStats(host);
+        synchronized (s) {
+            if (code == 429) {
+                s.status429++;
+            } else if (code == 503) {
+                s.status503++;
+            }
+            if (code >= 400) {
+                s.failures++;
+            }
+        }
+    }
+
+    void recordFailure(String host) {
+        Stats s = getStats(host);
+        synchronized (s) {
+            s.failures++;
+        }
+    }
+
+    public void recordRetry(String host) {
+        Stats s = getStats(host);
+        synchronized (s) {
+            s.retries++;
+        }
+    }
+
+    void recordBytes(String host, long bytes) {
+        Stats s = getStats(host);
+        synchronized (s) {
+            s.bytes += bytes;
+            s.recentBytes.add(System.currentTimeMillis(), bytes);
+        }
+    }
+
+    /**
+     * 记录一个章节下载完成
+     */
+    public void recordChapter(String host) {
+        Stats s = getStats(host);
+        synchronized (s) {
+            s.recentChapters.add(System.currentTimeMillis(), 1);
+        }
+    }
+
+    /**
+     * 获取一个域名的统计，没有记录时返回 null
+     */
+    public Snapshot getSnapshot(String host) {
+        Stats s;
+        synchronized (stats) {
+            s = stats.get(host);
+        }
+        return s == null ? null : s.snapshot(host);
+    }
+
+    public List<Snapshot> getSnapshots() {
+        List<Map.Entry<String, Stats>> entries;
+        synchronized (stats) {
+            entries = new ArrayList<>(stats.entrySet());
+        }
+        List<Snapshot> snapshots = new ArrayList<>(entries.size());
+        for (Map.Entry<String, Stats> entry : entries) {
+            snapshots.add(entry.getValue().snapshot(entry.getKey()));
+        }
+        return snapshots;
+    }
+
+    private Stats getStats(String host) {
+        synchronized (stats) {
+            Stats s = stats.get(host);
+            if (s == null) {
+                s = new Stats();
+                stats.put(host, s);
+            }
+            return s;
+        }
+    }
+
+    public static class Snapshot {
+        public String host;
+        public long requests;
+        public long failures;
+        public long retries;
+        public long status429;
+        public long status503;
+        public long bytes;
+        //最近一分钟的平均速度
+        public long bytesPerSecond;
+        //最近一分钟完成的章节数
+        public long chaptersPerMinute;
+    }
+
+    private static class Stats {
+        long requests;
+        long failures;
+        long retries;
+        long status429;
+        long status503;
+        long bytes;
+        final RollingCounter recentBytes = new RollingCounter();
+        final RollingCounter recentChapters = new RollingCounter();
+
+        synchronized Snapshot snapshot(String host) {
+            final long now = System.currentTimeMillis();
+            Snapshot snapshot = new Snapshot();
+            snapshot.host = host;
+            snapshot.requests = requests;
+            snapshot.failures = failures;
+            snapshot.retries = retries;
+            snapshot.status429 = status429;
+            snapshot.status503 = status503;
+            snapshot.bytes = bytes;
+            snapshot.bytesPerSecond = recentBytes.sum(now) / recentBytes.elapsedSeconds(now);
+            snapshot.chaptersPerMinute = recentChapters.sum(now);
+            return snapshot;
+        }
+    }
+
+    /**
+     * 按秒分槽的环形计数器，只保留最近 WINDOW_SECONDS 秒
+     */
+    private static class RollingCounter {
+        private final long[] values = new long[WINDOW_SECONDS];
+        private final long[] seconds = new long[WINDOW_SECONDS];
+        private long firstSecond = -1;
+
+        void add(long now, long value) {
+            final long second = now / 1000;
+            final int slot = (int) (second % WINDOW_SECONDS);
+            if (seconds[slot] != second) {
+                seconds[slot] = second;
+                values[slot] = 0;
+            }
+            values[slot] += value;
+            if (firstSecond < 0) {
+                firstSecond = second;
+            }
+        }
+
+        long sum(long now) {
+            final long second = now / 1000;
+            long sum = 0;
+            for (int i = 0; i < WINDOW_SECONDS; i++) {
+                if (second - seconds[i] < WINDOW_SECONDS) {
+                    sum += values[i];
+                }
+            }
+            return sum;
+        }
+
+        /**
+         * 窗口实际覆盖的秒数，刚开始统计时不足一分钟
+         */
+        long elapsedSeconds(long now) {
+            if (firstSecond < 0) {
+                return WINDOW_SECONDS;
+            }
+            return Math.max(1, Math.min(WINDOW_SECONDS, now / 1000 - firstSecond + 1));
+        }
+    }
+}
@@ -0,0 +1,208 @@
+package com.monke.basemvplib;
+
+import androidx.annotation.NonNull;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.HashMap;
+import java.util.Map;
+
+import okhttp3.Interceptor;
+import okhttp3.MediaType;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import okio.Buffer;
+import okio.BufferedSource;
+import okio.ForwardingSource;
+import okio.Okio;
+
+/**
+ * 按域名的令牌桶限速，下载、预加载和刷新共用同一个桶
+ * 服务器返回 429/503 时按 Retry-After 暂停该域名的请求，同时向 HostMetrics 记录统计
+ */
+public class HostRateLimiter implements Interceptor {
+    //没有 Retry-After 时的暂停时间
+    private static final long DEFAULT_PAUSE_MILLIS = 2000;
+    //暂停时间上限，也是一次请求在限速中等待的最长时间
+    public static final long MAX_PAUSE_MILLIS = 60 * 1000;
+
+    private volatile static HostRateLimiter mInstance;
+
+    private final Map<String, Bucket> buckets = new HashMap<>();
+    //每秒请求数，不大于 0 时不限速
+    private volatile double permitsPerSecond = 5;
+    private volatile int burst = 5;
+
+    private HostRateLimiter() {
+    }
+
+    public static HostRateLimiter getInstance() {
+        if (mInstance == null) {
+            synchronized (HostRateLimiter.class) {
+                if (mInstance == null) {
+                    mInstance = new HostRateLimiter();
+                }
+            }
+        }
+        return mInstance;
+    }
+
+    /**
+     * @param permitsPerSecond 同一域名每秒的请求数，同时也是允许的突发请求数
+     */
+    public void setRate(int permitsPerSecond) {
+        this.permitsPerSecond = permitsPerSecond;
+        this.burst = Math.max(1, permitsPerSecond);
+    }
+
+    @Override
+    public Response intercept(@NonNull Chain chain) throws IOException {
+        final Request request = chain.request();
+        final String host = request.url().host();
+        acquire(host);
+
+        final HostMetrics metrics = HostMetrics.getInstance();
+        metrics.recordRequest(host);
+        final Response response;
+        try {
+            response = chain.proceed(request);
+        } catch (IOException e) {
+            metrics.recordFailure(host);
+            throw e;
+        }
+
+        final int code = response.code();
+        metrics.recordResponse(host, code);
+        if (code == 429 || code == 503) {
+            getBucket(host).pause(parseRetryAfter(response.header("Retry-After")), System.nanoTime());
+        }
+
+        final ResponseBody body = response.body();
+        if (body == null) {
+            return response;
+        }
+        return response.newBuilder()
+                .body(new MeteredResponseBody(body, host))
+                .build();
+    }
+
+    private void acquire(String host) throws IOException {
+        final Bucket bucket = getBucket(host);
+        long wait;
+        while ((wait = bucket.reserve(permitsPerSecond, burst, System.nanoTime())) > 0) {
+            try {
+                Thread.sleep(wait);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("rate limit wait interrupted");
+            }
+        }
+    }
+
+    private Bucket getBucket(String host) {
+        synchronized (buckets) {
+            Bucket bucket = buckets.get(host);
+            if (bucket == null) {
+                bucket = new Bucket(burst, System.nanoTime());
+                buckets.put(host, bucket);
+            }
+            return bucket;
+        }
+    }
+
+    /**
+     * 只支持秒数形式的 Retry-After
+     */
+    static long parseRetryAfter(String value) {
+        if (value != null) {
+            try {
+                long seconds = Long.parseLong(value.trim());
+                return Math.min(MAX_PAUSE_MILLIS, Math.max(0, seconds * 1000));
+            } catch (NumberFormatException ignored) {
+            }
+        }
+        return DEFAULT_PAUSE_MILLIS;
+    }
+
+    /**
+     * 时间均由调用者传入(纳秒)，便于测试
+     */
+    static class Bucket {
+        private double tokens;
+        private long lastRefill;
+        private long pausedUntil;
+
+        Bucket(int burst, long now) {
+            this.tokens = burst;
+            this.lastRefill = now;
+        }
+
+        /**
+         * 取一个令牌，成功返回 0，否则返回需要等待的毫秒数
+         */
+        synchronized long reserve(double permitsPerSecond, int burst, long now) {
+            if (permitsPerSecond <= 0) {
+                return 0;
+            }
+            if (now < pausedUntil) {
+                return Math.max(1, (pausedUntil - now) / 1000000);
+            }
+            tokens = Math.min(burst, tokens + (now - lastRefill) / 1e9 * permitsPerSecond);
+            lastRefill = now;
+            if (tokens >= 1) {
+                tokens -= 1;
+                return 0;
+            }
+            return Math.max(1, (long) Math.ceil((1 - tokens) / permitsPerSecond * 1000));
+        }
+
+        synchronized void pause(long millis, long now) {
+            pausedUntil = Math.max(pausedUntil, now + millis * 1000000);
+            //暂停结束后令牌从 0 开始补充
+            tokens = 0;
+            lastRefill = pausedUntil;
+        }
+    }
+
+    /**
+     * 读取响应内容时统计字节数
+     */
+    private static class MeteredResponseBody extends ResponseBody {
+        private final ResponseBody body;
+        private final String host;
+        private BufferedSource source;
+
+        MeteredResponseBody(ResponseBody body, String host) {
+            this.body = body;
+            this.host = host;
+        }
+
+        @Override
+        public MediaType contentType() {
+            return body.contentType();
+        }
+
+        @Override
+        public long contentLength() {
+            return body.contentLength();
+        }
+
+        @Override
+        public BufferedSource source() {
+            if (source == null) {
+                source = Okio.buffer(new ForwardingSource(body.source()) {
+                    @Override
+                    public long read(@NonNull Buffer sink, long byteCount) throws IOException {
+                        long read = super.read(sink, byteCount);
+                        if (read > 0) {
+                            HostMetrics.getInstance().recordBytes(host, read);
+                        }
+                        return read;
+                    }
+                });
+            }
+            return source;
+        }
+    }
+}
@@ -15,6 +15,8 @@ import retrofit2.Retrofit;
 import retrofit2.adapter.rxjava2.RxJava2CallAdapterFactory;
 
 public class OkHttpHelper {
+    //连接、写入、读取各自的超时
+    public static final int TIMEOUT_SECONDS = 15;
 
     private OkHttpClient okHttpClient;
 
@@ -77,9 +79,9 @@ public class OkHttpHelper {
 
             SSLHelper.SSLParams sslParams = SSLHelper.getSslSocketFactory();
             okHttpClient = new OkHttpClient.Builder()
-                    .connectTimeout(15, TimeUnit.SECONDS)
-                    .writeTimeout(15, TimeUnit.SECONDS)
-                    .readTimeout(15, TimeUnit.SECONDS)
+                    .connectTimeout(TIMEOUT_SECONDS, TimeUnit.SECONDS)
+                    .writeTimeout(TIMEOUT_SECONDS, TimeUnit.SECONDS)
+                    .readTimeout(TIMEOUT_SECONDS, TimeUnit.SECONDS)
                     .retryOnConnectionFailure(true)
                     .sslSocketFactory(sslParams.sSLSocketFactory, sslParams.trustManager)
                     .hostnameVerifier(SSLHelper.UnSafeHostnameVerifier)
@@ -87,7 +89,7 @@ public class OkHttpHelper {
                     .protocols(Collections.singletonList(Protocol.HTTP_1_1))
                     .addInterceptor(getHeaderInterceptor())
                     .addInterceptor(new HttpLoggingInterceptor().setLevel(BuildConfig.DEBUG ? HttpLoggingInterceptor.Level.BODY : HttpLoggingInterceptor.Level.NONE))
-                    .addInterceptor(new RetryInterceptor(1))
+                    .addInterceptor(HostRateLimiter.getInstance())
                     .build();
         }
         return okHttpClient;
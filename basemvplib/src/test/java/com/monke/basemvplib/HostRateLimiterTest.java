@@ -0,0 +1,79 @@
+package com.monke.basemvplib;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class HostRateLimiterTest {
+
+    private static final long MILLIS = 1000000L;
+    private static final long SECOND = 1000 * MILLIS;
+
+    @Test
+    public void reserve_allowsBurstThenWaits() {
+        HostRateLimiter.Bucket bucket = new HostRateLimiter.Bucket(5, 0);
+        for (int i = 0; i < 5; i++) {
+            assertEquals(0, bucket.reserve(5, 5, 0));
+        }
+        //每秒 5 个令牌，下一个需要等 200ms
+        assertEquals(200, bucket.reserve(5, 5, 0));
+    }
+
+    @Test
+    public void reserve_refillsOverTime() {
+        HostRateLimiter.Bucket bucket = new HostRateLimiter.Bucket(2, 0);
+        assertEquals(0, bucket.reserve(2, 2, 0));
+        assertEquals(0, bucket.reserve(2, 2, 0));
+        assertTrue(bucket.reserve(2, 2, 0) > 0);
+        assertEquals(0, bucket.reserve(2, 2, 500 * MILLIS));
+        assertTrue(bucket.reserve(2, 2, 500 * MILLIS) > 0);
+    }
+
+    @Test
+    public void reserve_refillCappedAtBurst() {
+        HostRateLimiter.Bucket bucket = new HostRateLimiter.Bucket(3, 0);
+        //空闲很久也只能攒满 burst 个令牌
+        int granted = 0;
+        while (bucket.reserve(3, 3, 100 * SECOND) == 0) {
+            granted++;
+        }
+        assertEquals(3, granted);
+    }
+
+    @Test
+    public void reserve_unlimitedWhenRateNotPositive() {
+        HostRateLimiter.Bucket bucket = new HostRateLimiter.Bucket(1, 0);
+        for (int i = 0; i < 100; i++) {
+            assertEquals(0, bucket.reserve(0, 1, 0));
+        }
+    }
+
+    @Test
+    public void pause_blocksUntilDeadlineAndDrainsTokens() {
+        HostRateLimiter.Bucket bucket = new HostRateLimiter.Bucket(5, 0);
+        bucket.pause(3000, 0);
+        assertEquals(3000, bucket.reserve(5, 5, 0));
+        assertEquals(1000, bucket.reserve(5, 5, 2 * SECOND));
+        //暂停结束后令牌从 0 开始补充，暂停期间不攒令牌
+        assertEquals(200, bucket.reserve(5, 5, 3 * SECOND));
+        assertEquals(0, bucket.reserve(5, 5, 3 * SECOND + 200 * MILLIS));
+    }
+
+    @Test
+    public void pause_keepsLongerDeadline() {
+        HostRateLimiter.Bucket bucket = new HostRateLimiter.Bucket(5, 0);
+        bucket.pause(5000, 0);
+        bucket.pause(1000, 0);
+        assertEquals(5000, bucket.reserve(5, 5, 0));
+    }
+
+    @Test
+    public void parseRetryAfter() {
+        assertEquals(2000, HostRateLimiter.parseRetryAfter(null));
+        assertEquals(2000, HostRateLimiter.parseRetryAfter("Wed, 21 Oct 2015 07:28:00 GMT"));
+        assertEquals(7000, HostRateLimiter.parseRetryAfter(" 7 "));
+        assertEquals(0, HostRateLimiter.parseRetryAfter("-3"));
+        assertEquals(60000, HostRateLimiter.parseRetryAfter("3600"));
+    }
+}